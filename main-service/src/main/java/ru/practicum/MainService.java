@@ -2,8 +2,22 @@ package ru.practicum;
 
 import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import ru.practicum.embedded.EmbeddedStatisticsConfig;
 
-@SpringBootApplication
+/**
+ * Scanning is limited to the service's own packages: the statistics server shares the {@code ru.practicum}
+ * package and is on the classpath for {@code stats.client.mode=embedded}.
+ */
+@SpringBootApplication(scanBasePackages = {"ru.practicum.users", "ru.practicum.categories", "ru.practicum.events",
+        "ru.practicum.requests", "ru.practicum.compilations", "ru.practicum.exceptions"})
+@EntityScan({"ru.practicum.users", "ru.practicum.categories", "ru.practicum.events", "ru.practicum.requests",
+        "ru.practicum.compilations"})
+@EnableJpaRepositories({"ru.practicum.users", "ru.practicum.categories", "ru.practicum.events",
+        "ru.practicum.requests", "ru.practicum.compilations"})
+@Import({StatisticsClientConfig.class, EmbeddedStatisticsConfig.class})
 public class MainService {
     public static void main(String[] args) {
         SpringApplication.run(MainService.class, args);
@@ -2,5 +2,6 @@ package ru.practicum.events.entity.enums;
 
 public enum EventSort {
     EVENT_DATE,
-    VIEWS
+    VIEWS,
+    TRENDING
 }
@@ -107,4 +107,16 @@ public interface EventSpecRepository extends JpaRepository<Event, Long>, JpaSpec
             }
         };
     }
+
+    static Specification<Event> hasIds(List<Long> ids) {
+        return (event, query, critBuilder) -> {
+            if (ids == null) {
+                return critBuilder.isTrue(critBuilder.literal(true));
+            } else if (ids.isEmpty()) {
+                return critBuilder.isTrue(critBuilder.literal(false));
+            } else {
+                return event.get("id").in(ids);
+            }
+        };
+    }
 }
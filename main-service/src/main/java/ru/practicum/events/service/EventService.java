@@ -2,10 +2,12 @@ package ru.practicum.events.service;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.data.domain.Page;
 import org.springframework.data.domain.PageRequest;
 import org.springframework.data.domain.Pageable;
 import org.springframework.data.domain.Sort;
+import org.springframework.data.jpa.domain.Specification;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
 import org.springframework.stereotype.Service;
@@ -32,10 +34,15 @@ import ru.practicum.users.entity.User;
 import ru.practicum.users.repository.UserRepository;
 
 import javax.servlet.http.HttpServletRequest;
+import java.time.Duration;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
 import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
@@ -47,12 +54,23 @@ import static ru.practicum.events.repository.EventSpecRepository.*;
 @Slf4j
 public class EventService {
     private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String EVENT_URI_PREFIX = "/events/";
     private final EventRepository eventRepository;
     private final EventSpecRepository eventSpecRepository;
     private final UserRepository userRepository;
     private final CategoryRepository categoryRepository;
     private final EventMapper eventMapper;
-    private final StatisticsClient statisticsClient = new StatisticsClient("http://ewm-stats-server:9090");
+    private final RecentViewFilter recentViewFilter;
+    private final StatisticsClient statisticsClient;
+
+    @Value("${events.trending.minutes:15}")
+    private long trendingMinutes;
+
+    @Value("${events.trending.candidates:1000}")
+    private int trendingCandidates;
+
+    @Value("${events.views.flush-timeout-ms:500}")
+    private long viewsFlushTimeoutMs;
 
     @Transactional(readOnly = true)
     public List<EventFullDTO> getAdminEvents(List<Long> users, List<EventState> states, List<Long> categories,
@@ -127,16 +145,26 @@ public class EventService {
             throw new IncorrectRequestException("Start time must not after or equal to end time.");
         }
 
-        Pageable pageable = sort.equals(EventSort.VIEWS)
-                ? PageRequest.of(from / size, size, Sort.by("views"))
-                : PageRequest.of(from / size, size, Sort.by("eventDate"));
-
-        Page<Event> eventsPage = eventSpecRepository.findAll(where(hasText(text))
+        Specification<Event> filter = where(hasText(text))
                 .and(hasCategories(categories))
                 .and(hasPaid(paid))
                 .and(hasRangeStart(rangeStart))
                 .and(hasRangeEnd(rangeEnd))
-                .and(hasAvailable(onlyAvailable)), pageable);
+                .and(hasAvailable(onlyAvailable));
+
+        if (sort.equals(EventSort.TRENDING)) {
+            Optional<List<Long>> trendingIds = findTrendingEventIds();
+            if (trendingIds.isPresent()) {
+                return getTrending(filter, trendingIds.get(), from, size, request);
+            }
+            log.warn("Trending events are unavailable, sorting by views");
+        }
+
+        Pageable pageable = sort.equals(EventSort.EVENT_DATE)
+                ? PageRequest.of(from / size, size, Sort.by("eventDate"))
+                : PageRequest.of(from / size, size, Sort.by("views"));
+
+        Page<Event> eventsPage = eventSpecRepository.findAll(filter, pageable);
 
         updateViews(eventsPage.toList(), request);
 
@@ -233,22 +261,76 @@ public class EventService {
         requestDto.setTimestamp(LocalDateTime.now());
         requestDto.setApp("main-service");
 
-        ResponseEntity<List<RequestOutDTO>> listResponseEntity = statisticsClient.getStatsByIp(LocalDateTime.now().minusHours(1).format(DTF),
-                LocalDateTime.now().format(DTF),
-                Collections.singletonList(requestDto.getUri()),
-                true,
-                request.getRemoteAddr());
+        RecentViewFilter.Decision decision = recentViewFilter.markViewed(requestDto.getIp(), requestDto.getUri());
+        boolean firstView = decision == RecentViewFilter.Decision.NOT_SEEN
+                || (decision == RecentViewFilter.Decision.UNKNOWN && isFirstView(requestDto));
 
         statisticsClient.addRequest(requestDto);
 
-        if (listResponseEntity.getStatusCode() == HttpStatus.OK &&
-                Optional.ofNullable(listResponseEntity.getBody())
-                        .map(List::isEmpty).orElse(false)) {
+        if (firstView) {
             events.forEach(event -> event.setViews(event.getViews() + 1));
             eventRepository.saveAll(events);
         }
     }
 
+    private boolean isFirstView(RequestDTO requestDto) {
+        // an earlier hit of this visitor may still wait in the client buffer, the query would not count it
+        statisticsClient.flush(Duration.ofMillis(viewsFlushTimeoutMs));
+        ResponseEntity<List<RequestOutDTO>> listResponseEntity = statisticsClient.getStatsByIp(
+                requestDto.getTimestamp().minusHours(1).format(DTF),
+                requestDto.getTimestamp().format(DTF),
+                Collections.singletonList(requestDto.getUri()),
+                true,
+                requestDto.getIp());
+
+        return listResponseEntity.getStatusCode() == HttpStatus.OK &&
+                Optional.ofNullable(listResponseEntity.getBody())
+                        .map(List::isEmpty).orElse(false);
+    }
+
+    private List<EventShortDTO> getTrending(Specification<Event> filter, List<Long> trendingIds, Integer from,
+                                            Integer size, HttpServletRequest request) {
+        Map<Long, Integer> ranks = new HashMap<>();
+        for (Long id : trendingIds) {
+            ranks.putIfAbsent(id, ranks.size());
+        }
+
+        List<Event> events = eventSpecRepository.findAll(filter.and(hasIds(trendingIds))).stream()
+                .sorted(Comparator.comparing(event -> ranks.get(event.getId())))
+                .skip(from)
+                .limit(size)
+                .collect(Collectors.toList());
+
+        updateViews(events, request);
+
+        return events.stream()
+                .filter(event -> event.getPublishedOn() != null)
+                .map(eventMapper::eventToShortDto)
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Ids of the most viewed events over the last {@code events.trending.minutes}, empty when the
+     * statistics server can't tell.
+     */
+    private Optional<List<Long>> findTrendingEventIds() {
+        ResponseEntity<List<RequestOutDTO>> trending = statisticsClient.getTrending(trendingMinutes,
+                trendingCandidates, EVENT_URI_PREFIX);
+        if (trending.getStatusCode() != HttpStatus.OK || trending.getBody() == null) {
+            return Optional.empty();
+        }
+
+        List<Long> ids = new ArrayList<>();
+        for (RequestOutDTO stat : trending.getBody()) {
+            try {
+                ids.add(Long.parseLong(stat.getUri().substring(EVENT_URI_PREFIX.length())));
+            } catch (NumberFormatException e) {
+                log.debug("Skipping trending uri {}", stat.getUri());
+            }
+        }
+        return Optional.of(ids);
+    }
+
     private void updateEvent(Event event, Long userId, NewEventDTO eventDto) {
         User initiator = userRepository.findById(userId).orElseThrow(() -> {
             throw new ObjectNotFoundException("User with id = " + userId + " doesn't exist.");
@@ -0,0 +1,138 @@
+package ru.practicum.events.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+
+import java.nio.charset.StandardCharsets;
+import java.util.concurrent.TimeUnit;
+import java.util.function.LongSupplier;
+
+/**
+ * Local answer to "has this IP viewed this URI during the last window" for the unique view counter.
+ * <p>
+ * Views are recorded in a ring of Bloom filters, one per slice of the window. A key found in a slice lying
+ * entirely inside the window is "seen", which is wrong with a probability of about {@code slices} times the
+ * configured false positive rate. A key found in none of the filters is "not seen" once the ring covers a
+ * whole window. A key found only in the slice crossing the window start, or any key before the ring is warm,
+ * is left to the statistics server.
+ */
+@Component
+public class RecentViewFilter {
+    private final boolean enabled;
+    private final long sliceMillis;
+    private final int windowSlices;
+    private final Slice[] slices;
+    private final long startedAt;
+    private final LongSupplier clock;
+
+    private final Counter seen;
+    private final Counter notSeen;
+    private final Counter unknown;
+
+    public RecentViewFilter(MeterRegistry meterRegistry,
+                            @Value("${views.filter.enabled:true}") boolean enabled,
+                            @Value("${views.filter.window-minutes:60}") long windowMinutes,
+                            @Value("${views.filter.slices:6}") int windowSlices,
+                            @Value("${views.filter.expected-views:100000}") long expectedViews,
+                            @Value("${views.filter.false-positive-rate:0.001}") double falsePositiveRate) {
+        this(meterRegistry, enabled, windowMinutes, windowSlices, expectedViews, falsePositiveRate,
+                System::currentTimeMillis);
+    }
+
+    RecentViewFilter(MeterRegistry meterRegistry, boolean enabled, long windowMinutes, int windowSlices,
+                     long expectedViews, double falsePositiveRate, LongSupplier clock) {
+        this.enabled = enabled;
+        this.clock = clock;
+        this.windowSlices = windowSlices;
+        this.sliceMillis = TimeUnit.MINUTES.toMillis(windowMinutes) / windowSlices;
+        this.slices = new Slice[windowSlices + 1];
+        for (int i = 0; i < slices.length; i++) {
+            slices[i] = new Slice(new BloomFilter(expectedViews, falsePositiveRate));
+        }
+        this.startedAt = clock.getAsLong();
+        this.seen = meterRegistry.counter("views.filter.decisions", "decision", "seen");
+        this.notSeen = meterRegistry.counter("views.filter.decisions", "decision", "not_seen");
+        this.unknown = meterRegistry.counter("views.filter.decisions", "decision", "unknown");
+    }
+
+    /**
+     * Records a view of {@code uri} from {@code ip} and tells whether an earlier view falls into the window.
+     */
+    public Decision markViewed(String ip, String uri) {
+        if (!enabled) return Decision.UNKNOWN;
+
+        long now = clock.getAsLong();
+        long current = now / sliceMillis;
+        byte[] key = (ip + ' ' + uri).getBytes(StandardCharsets.UTF_8);
+        long hash1 = hash(key, 0x9E3779B97F4A7C15L);
+        long hash2 = hash(key, 0xC2B2AE3D27D4EB4FL) | 1;
+
+        Decision decision = decide(current, hash1, hash2, now);
+        slice(current).filter.add(hash1, hash2);
+
+        if (decision == Decision.SEEN) {
+            seen.increment();
+        } else if (decision == Decision.NOT_SEEN) {
+            notSeen.increment();
+        } else {
+            unknown.increment();
+        }
+        return decision;
+    }
+
+    private Decision decide(long current, long hash1, long hash2, long now) {
+        for (long id = current; id > current - windowSlices; id--) {
+            Slice slice = slices[(int) Math.floorMod(id, (long) slices.length)];
+            if (slice.id == id && slice.filter.mightContain(hash1, hash2)) return Decision.SEEN;
+        }
+
+        long edge = current - windowSlices;
+        Slice edgeSlice = slices[(int) Math.floorMod(edge, (long) slices.length)];
+        if (edgeSlice.id == edge && edgeSlice.filter.mightContain(hash1, hash2)) return Decision.UNKNOWN;
+
+        boolean warm = now - startedAt >= windowSlices * sliceMillis;
+        return warm ? Decision.NOT_SEEN : Decision.UNKNOWN;
+    }
+
+    private Slice slice(long id) {
+        Slice slice = slices[(int) Math.floorMod(id, (long) slices.length)];
+        if (slice.id != id) {
+            synchronized (slice) {
+                if (slice.id != id) {
+                    slice.filter.clear();
+                    slice.id = id;
+                }
+            }
+        }
+        return slice;
+    }
+
+    private static long hash(byte[] key, long seed) {
+        long h = seed;
+        for (byte b : key) {
+            h ^= b;
+            h *= 0x100000001B3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xFF51AFD7ED558CCDL;
+        h ^= h >>> 33;
+        h *= 0xC4CEB9FE1A85EC53L;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    public enum Decision {
+        SEEN, NOT_SEEN, UNKNOWN
+    }
+
+    private static class Slice {
+        private final BloomFilter filter;
+        private volatile long id = Long.MIN_VALUE;
+
+        Slice(BloomFilter filter) {
+            this.filter = filter;
+        }
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum.events.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class RecentViewFilterTest {
+    private static final long SLICE = TimeUnit.SECONDS.toMillis(10);
+    private static final String URI = "/events/1";
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final AtomicLong now = new AtomicLong(1_000_000_000_000L);
+    // one minute window in six slices of ten seconds
+    private final RecentViewFilter filter = new RecentViewFilter(registry, true, 1, 6, 10_000, 0.001, now::get);
+
+    @Test
+    void leavesDecisionsToTheServerUntilTheRingCoversAWindow() {
+        assertThat(filter.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.UNKNOWN);
+        assertThat(filter.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.SEEN);
+
+        now.addAndGet(6 * SLICE);
+        assertThat(filter.markViewed("10.0.0.2", URI)).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+        assertThat(filter.markViewed("10.0.0.2", "/events/2")).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+    }
+
+    @Test
+    void seesViewsWithinTheWindow() {
+        now.addAndGet(6 * SLICE);
+        assertThat(filter.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+
+        now.addAndGet(5 * SLICE);
+        assertThat(filter.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.SEEN);
+    }
+
+    @Test
+    void rotatesViewsOutOfTheWindow() {
+        now.addAndGet(6 * SLICE);
+        filter.markViewed("10.0.0.1", URI);
+
+        // the slice of the view now crosses the window start, the view may or may not be in the window
+        now.addAndGet(6 * SLICE);
+        assertThat(filter.markViewed("10.0.0.1", "/events/2")).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+        assertThat(filter.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.UNKNOWN);
+
+        // the filter of the old slice is reused and cleared for the current one
+        now.addAndGet(7 * SLICE);
+        assertThat(filter.markViewed("10.0.0.9", URI)).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+        now.addAndGet(7 * SLICE);
+        assertThat(filter.markViewed("10.0.0.1", "/events/3")).isEqualTo(RecentViewFilter.Decision.NOT_SEEN);
+    }
+
+    @Test
+    void countsDecisions() {
+        filter.markViewed("10.0.0.1", URI);
+        filter.markViewed("10.0.0.1", URI);
+        now.addAndGet(6 * SLICE);
+        filter.markViewed("10.0.0.2", URI);
+
+        assertThat(registry.counter("views.filter.decisions", "decision", "unknown").count()).isEqualTo(1);
+        assertThat(registry.counter("views.filter.decisions", "decision", "seen").count()).isEqualTo(1);
+        assertThat(registry.counter("views.filter.decisions", "decision", "not_seen").count()).isEqualTo(1);
+    }
+
+    @Test
+    void decidesNothingWhenDisabled() {
+        RecentViewFilter disabled = new RecentViewFilter(registry, false, 1, 6, 10_000, 0.001, now::get);
+
+        disabled.markViewed("10.0.0.1", URI);
+        assertThat(disabled.markViewed("10.0.0.1", URI)).isEqualTo(RecentViewFilter.Decision.UNKNOWN);
+    }
+}
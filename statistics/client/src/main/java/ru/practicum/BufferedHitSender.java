@@ -0,0 +1,203 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ArrayBlockingQueue;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Consumer;
+
+/**
+ * Bounded in-memory queue of hits drained by a single background thread.
+ * A batch is shipped once it reaches {@code batchSize} hits or once its oldest hit
+ * has waited for {@code flushInterval}, whichever comes first, or once {@link #flush} asks for it.
+ */
+@Slf4j
+public class BufferedHitSender implements MeterBinder, AutoCloseable {
+    private final BlockingQueue<RequestDTO> queue;
+    private final int batchSize;
+    private final long flushIntervalNanos;
+    private final long offerTimeoutNanos;
+    private final Consumer<List<RequestDTO>> sink;
+    private final Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong accepted = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong sent = new AtomicLong();
+    private final AtomicLong failed = new AtomicLong();
+
+    public BufferedHitSender(int capacity, int batchSize, Duration flushInterval, Duration offerTimeout,
+                             Consumer<List<RequestDTO>> sink) {
+        if (capacity <= 0 || batchSize <= 0) {
+            throw new IllegalArgumentException("Queue capacity and batch size must be positive.");
+        }
+        this.queue = new ArrayBlockingQueue<>(capacity);
+        this.batchSize = batchSize;
+        this.flushIntervalNanos = flushInterval.toNanos();
+        this.offerTimeoutNanos = offerTimeout.toNanos();
+        this.sink = sink;
+        this.worker = new Thread(this::run, "stats-hit-sender");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Enqueues a hit without waiting on the network. When the queue is full the caller
+     * is held for at most {@code offerTimeout}, after that the hit is dropped and counted.
+     */
+    public boolean submit(RequestDTO hit) {
+        boolean offered;
+        try {
+            offered = offerTimeoutNanos > 0
+                    ? queue.offer(hit, offerTimeoutNanos, TimeUnit.NANOSECONDS)
+                    : queue.offer(hit);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            offered = false;
+        }
+
+        if (offered) {
+            accepted.incrementAndGet();
+        } else {
+            dropped.incrementAndGet();
+        }
+        return offered;
+    }
+
+    /**
+     * Ships the hits submitted before the call without waiting for the batch to fill up, and waits at most
+     * {@code timeout} until they have been handed to the sink. Returns {@code false} when that took longer.
+     */
+    public boolean flush(Duration timeout) {
+        long deadline = System.nanoTime() + timeout.toNanos();
+        FlushMarker marker = new FlushMarker();
+        try {
+            // the marker queues up behind the earlier hits, the worker ships them when it takes the marker
+            if (!queue.offer(marker, timeout.toNanos(), TimeUnit.NANOSECONDS)) return false;
+            marker.shipped.get(Math.max(0, deadline - System.nanoTime()), TimeUnit.NANOSECONDS);
+            return true;
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            return false;
+        } catch (ExecutionException | TimeoutException e) {
+            return false;
+        }
+    }
+
+    public int getQueueSize() {
+        return queue.size();
+    }
+
+    public long getAccepted() {
+        return accepted.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getSent() {
+        return sent.get();
+    }
+
+    public long getFailed() {
+        return failed.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.queue.size", queue, BlockingQueue::size).register(registry);
+        FunctionCounter.builder("stats.client.hits.accepted", accepted, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.hits.dropped", dropped, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.hits.sent", sent, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.hits.failed", failed, AtomicLong::get).register(registry);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        worker.interrupt();
+        try {
+            worker.join(TimeUnit.NANOSECONDS.toMillis(flushIntervalNanos) + 1000);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+    private void run() {
+        List<RequestDTO> batch = new ArrayList<>(batchSize);
+        long batchStarted = 0;
+        boolean flushRequested = false;
+
+        while (running) {
+            try {
+                long waitNanos = batch.isEmpty()
+                        ? flushIntervalNanos
+                        : Math.max(0, batchStarted + flushIntervalNanos - System.nanoTime());
+                RequestDTO hit = queue.poll(waitNanos, TimeUnit.NANOSECONDS);
+                if (hit != null) {
+                    if (batch.isEmpty()) {
+                        batchStarted = System.nanoTime();
+                    }
+                    int from = batch.size();
+                    batch.add(hit);
+                    queue.drainTo(batch, batchSize - batch.size());
+                    for (int i = from; i < batch.size() && !flushRequested; i++) {
+                        flushRequested = batch.get(i) instanceof FlushMarker;
+                    }
+                }
+            } catch (InterruptedException e) {
+                break;
+            }
+
+            if (flushRequested || batch.size() >= batchSize
+                    || (!batch.isEmpty() && System.nanoTime() - batchStarted >= flushIntervalNanos)) {
+                ship(batch);
+                flushRequested = false;
+            }
+        }
+
+        queue.drainTo(batch);
+        while (!batch.isEmpty()) {
+            List<RequestDTO> tail = new ArrayList<>(batch.subList(0, Math.min(batchSize, batch.size())));
+            batch.subList(0, tail.size()).clear();
+            ship(tail);
+        }
+    }
+
+    private void ship(List<RequestDTO> batch) {
+        List<FlushMarker> markers = new ArrayList<>();
+        batch.removeIf(hit -> hit instanceof FlushMarker && markers.add((FlushMarker) hit));
+        try {
+            if (!batch.isEmpty()) {
+                sink.accept(batch);
+                sent.addAndGet(batch.size());
+            }
+        } catch (RuntimeException e) {
+            failed.addAndGet(batch.size());
+            log.warn("Failed to ship {} hits to the statistics server: {}", batch.size(), e.getMessage());
+        } finally {
+            batch.clear();
+            markers.forEach(marker -> marker.shipped.complete(null));
+        }
+    }
+
+    /**
+     * Placeholder queued by {@link #flush}, never shipped.
+     */
+    private static class FlushMarker extends RequestDTO {
+        private final CompletableFuture<Void> shipped = new CompletableFuture<>();
+    }
+}
@@ -0,0 +1,113 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import reactor.core.publisher.Mono;
+
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.function.Predicate;
+
+/**
+ * Consecutive-failure circuit breaker for calls to the statistics server.
+ * <p>
+ * After {@code failureThreshold} failures in a row calls are rejected without touching the network
+ * for {@code openDuration}; then a single trial call decides whether the circuit closes again.
+ */
+public class CircuitBreaker implements MeterBinder {
+    private final int failureThreshold;
+    private final long openNanos;
+    private final AtomicLong rejected = new AtomicLong();
+
+    private State state = State.CLOSED;
+    private int failures;
+    private long openedAt;
+    private boolean trialInFlight;
+
+    public CircuitBreaker(int failureThreshold, Duration openDuration) {
+        if (failureThreshold <= 0) {
+            throw new IllegalArgumentException("Failure threshold must be positive.");
+        }
+        this.failureThreshold = failureThreshold;
+        this.openNanos = openDuration.toNanos();
+    }
+
+    /**
+     * Subscribes to {@code call} only while the circuit lets calls through; errors matching
+     * {@code isFailure} count towards opening it, other errors count as successful calls.
+     */
+    public <T> Mono<T> protect(Mono<T> call, Predicate<Throwable> isFailure) {
+        return Mono.defer(() -> {
+            if (!tryAcquire()) {
+                rejected.incrementAndGet();
+                return Mono.error(new CircuitBreakerOpenException());
+            }
+            return call
+                    .doOnSuccess(value -> onSuccess())
+                    .doOnError(e -> {
+                        if (isFailure.test(e)) {
+                            onFailure();
+                        } else {
+                            onSuccess();
+                        }
+                    })
+                    .doOnCancel(this::onCancel);
+        });
+    }
+
+    public synchronized State getState() {
+        return state;
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.circuit.open", this, breaker -> breaker.getState() == State.CLOSED ? 0 : 1)
+                .register(registry);
+        FunctionCounter.builder("stats.client.circuit.rejected", rejected, AtomicLong::get).register(registry);
+    }
+
+    private synchronized boolean tryAcquire() {
+        switch (state) {
+            case CLOSED:
+                return true;
+            case OPEN:
+                if (System.nanoTime() - openedAt < openNanos) return false;
+                state = State.HALF_OPEN;
+                trialInFlight = true;
+                return true;
+            default:
+                if (trialInFlight) return false;
+                trialInFlight = true;
+                return true;
+        }
+    }
+
+    private synchronized void onSuccess() {
+        state = State.CLOSED;
+        failures = 0;
+        trialInFlight = false;
+    }
+
+    private synchronized void onFailure() {
+        trialInFlight = false;
+        if (state == State.HALF_OPEN || ++failures >= failureThreshold) {
+            state = State.OPEN;
+            openedAt = System.nanoTime();
+            failures = 0;
+        }
+    }
+
+    private synchronized void onCancel() {
+        trialInFlight = false;
+    }
+
+    public enum State {
+        CLOSED, OPEN, HALF_OPEN
+    }
+}
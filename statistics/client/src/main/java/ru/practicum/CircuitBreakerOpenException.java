@@ -0,0 +1,7 @@
+package ru.practicum;
+
+public class CircuitBreakerOpenException extends RuntimeException {
+    public CircuitBreakerOpenException() {
+        super("Statistics server circuit breaker is open.");
+    }
+}
@@ -0,0 +1,47 @@
+package ru.practicum;
+
+import ru.practicum.sketch.HyperLogLog;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.TreeMap;
+
+/**
+ * Consistent hash ring. Every node owns {@code virtualNodes} points of the 64-bit hash space and a key
+ * belongs to the node of the first point at or after the hash of the key, so adding or removing a node
+ * only moves the keys of the ranges next to its points.
+ */
+public class HashRing<N> {
+    private final long[] points;
+    private final List<N> owners;
+
+    /**
+     * @param nodes nodes by a stable name, the name and not the position decides which keys a node owns
+     */
+    public HashRing(Map<String, N> nodes, int virtualNodes) {
+        if (nodes.isEmpty()) throw new IllegalArgumentException("A hash ring needs at least one node");
+        if (virtualNodes <= 0) throw new IllegalArgumentException("virtualNodes must be positive");
+
+        TreeMap<Long, N> ring = new TreeMap<>();
+        new TreeMap<>(nodes).forEach((name, node) -> {
+            for (int i = 0; i < virtualNodes; i++) {
+                ring.putIfAbsent(HyperLogLog.hash(name + "#" + i), node);
+            }
+        });
+        this.points = new long[ring.size()];
+        this.owners = new ArrayList<>(ring.size());
+        int i = 0;
+        for (Map.Entry<Long, N> point : ring.entrySet()) {
+            points[i++] = point.getKey();
+            owners.add(point.getValue());
+        }
+    }
+
+    public N nodeFor(String key) {
+        int index = Arrays.binarySearch(points, HyperLogLog.hash(key));
+        if (index < 0) index = -index - 1;
+        return owners.get(index == points.length ? 0 : index);
+    }
+}
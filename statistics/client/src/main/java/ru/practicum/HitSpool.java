@@ -0,0 +1,237 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.journal.HitJournal;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.LockSupport;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+
+/**
+ * Local spool of hits the statistics server could not accept, kept in a {@link HitJournal}.
+ * <p>
+ * A background thread replays the spool in batches every {@code replayInterval} and deletes segments once
+ * all of their hits are delivered; the read position is checkpointed to a file, so a restart resumes where
+ * delivery stopped. Disk usage never exceeds {@code maxBytes}: hits spilled while the spool is full are dropped.
+ * A batch the server rejects as invalid is split in halves until the rejected hits are isolated; those are
+ * skipped and counted, so one bad hit never blocks the hits behind it.
+ */
+@Slf4j
+public class HitSpool implements MeterBinder, AutoCloseable {
+    private static final String CHECKPOINT = "checkpoint";
+
+    private final HitJournal journal;
+    private final Path checkpointPath;
+    private final int maxSegments;
+    private final int batchSize;
+    private final long replayIntervalNanos;
+    private HitJournal.Position readPosition;
+    private Consumer<List<RequestDTO>> sink;
+    private Predicate<RuntimeException> isRejection;
+    private Thread worker;
+    private volatile boolean running = true;
+
+    private final AtomicLong depth = new AtomicLong();
+    private final AtomicLong spilled = new AtomicLong();
+    private final AtomicLong replayed = new AtomicLong();
+    private final AtomicLong dropped = new AtomicLong();
+    private final AtomicLong rejected = new AtomicLong();
+
+    public HitSpool(Path dir, int segmentBytes, long maxBytes, int batchSize, Duration replayInterval) throws IOException {
+        if (batchSize <= 0) {
+            throw new IllegalArgumentException("Batch size must be positive.");
+        }
+        this.journal = new HitJournal(dir, segmentBytes, false);
+        this.checkpointPath = dir.resolve(CHECKPOINT);
+        this.maxSegments = (int) Math.max(2, maxBytes / segmentBytes);
+        this.batchSize = batchSize;
+        this.replayIntervalNanos = replayInterval.toNanos();
+
+        HitJournal.Position checkpoint = readCheckpoint();
+        journal.open(checkpoint, (hit, position) -> depth.incrementAndGet());
+        readPosition = checkpoint != null ? checkpoint : new HitJournal.Position(0, 0);
+        if (depth.get() > 0) {
+            log.info("Statistics spool holds {} undelivered hits", depth.get());
+        }
+    }
+
+    /**
+     * Starts replaying spooled hits to {@code sink}, which must throw when a batch is not delivered.
+     * Exceptions matching {@code isRejection} mean the server will never accept the batch as it is.
+     */
+    public synchronized void start(Consumer<List<RequestDTO>> sink, Predicate<RuntimeException> isRejection) {
+        if (worker != null) {
+            throw new IllegalStateException("Spool is already started.");
+        }
+        this.sink = sink;
+        this.isRejection = isRejection;
+        this.worker = new Thread(this::run, "stats-hit-spool");
+        this.worker.setDaemon(true);
+        this.worker.start();
+    }
+
+    /**
+     * Appends the hits to the spool.
+     *
+     * @return {@code false} if the hits were dropped because the spool is full or not writable
+     */
+    public boolean spill(List<RequestDTO> hits) {
+        if (journal.getSegmentCount() >= maxSegments) {
+            dropped.addAndGet(hits.size());
+            return false;
+        }
+        try {
+            journal.append(hits);
+        } catch (RuntimeException e) {
+            dropped.addAndGet(hits.size());
+            log.warn("Failed to spool {} hits: {}", hits.size(), e.getMessage());
+            return false;
+        }
+        spilled.addAndGet(hits.size());
+        depth.addAndGet(hits.size());
+        return true;
+    }
+
+    public long getDepth() {
+        return depth.get();
+    }
+
+    public long getSpilled() {
+        return spilled.get();
+    }
+
+    public long getReplayed() {
+        return replayed.get();
+    }
+
+    public long getDropped() {
+        return dropped.get();
+    }
+
+    public long getRejected() {
+        return rejected.get();
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        Gauge.builder("stats.client.spool.depth", depth, AtomicLong::get).register(registry);
+        Gauge.builder("stats.client.spool.bytes", journal, j -> (double) j.getSegmentCount() * j.getSegmentBytes())
+                .register(registry);
+        FunctionCounter.builder("stats.client.spool.spilled", spilled, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.spool.replayed", replayed, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.spool.dropped", dropped, AtomicLong::get).register(registry);
+        FunctionCounter.builder("stats.client.spool.rejected", rejected, AtomicLong::get).register(registry);
+    }
+
+    @Override
+    public void close() {
+        running = false;
+        Thread thread;
+        synchronized (this) {
+            thread = worker;
+        }
+        if (thread != null) {
+            thread.interrupt();
+            try {
+                thread.join(TimeUnit.NANOSECONDS.toMillis(replayIntervalNanos) + 1000);
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+        }
+        journal.close();
+    }
+
+    private void run() {
+        while (running) {
+            LockSupport.parkNanos(replayIntervalNanos);
+            while (running && depth.get() > 0 && replayBatch()) {
+                // keep replaying while the server accepts hits
+            }
+        }
+    }
+
+    private boolean replayBatch() {
+        List<RequestDTO> batch = new ArrayList<>(batchSize);
+        List<HitJournal.Position> positions = new ArrayList<>(batchSize);
+        try {
+            journal.read(readPosition, batchSize, (hit, position) -> {
+                batch.add(hit);
+                positions.add(position);
+            });
+        } catch (IOException e) {
+            log.warn("Failed to read the statistics spool: {}", e.getMessage());
+            return false;
+        }
+        if (batch.isEmpty()) return false;
+
+        int handled = deliver(batch, 0, batch.size());
+        if (handled == 0) return false;
+
+        readPosition = positions.get(handled - 1);
+        depth.addAndGet(-handled);
+        try {
+            writeCheckpoint(readPosition);
+            journal.deleteSegmentsBefore(readPosition.getSegment());
+        } catch (IOException e) {
+            log.warn("Failed to checkpoint the statistics spool: {}", e.getMessage());
+        }
+        return handled == batch.size();
+    }
+
+    /**
+     * Delivers {@code batch[from, to)} and returns how many hits from {@code from} on are done with,
+     * either delivered or rejected; the first hit of the rest could not be delivered for now.
+     */
+    private int deliver(List<RequestDTO> batch, int from, int to) {
+        try {
+            sink.accept(batch.subList(from, to));
+            replayed.addAndGet(to - from);
+            return to - from;
+        } catch (RuntimeException e) {
+            if (!isRejection.test(e)) {
+                log.debug("Statistics server did not accept spooled hits: {}", e.getMessage());
+                int delivered = e instanceof HitTransportException
+                        ? Math.min(((HitTransportException) e).getDelivered(), to - from)
+                        : 0;
+                replayed.addAndGet(delivered);
+                return delivered;
+            }
+            if (to - from == 1) {
+                rejected.incrementAndGet();
+                log.warn("Statistics server rejected a spooled hit, skipping it: {} ({})", batch.get(from), e.getMessage());
+                return 1;
+            }
+        }
+        int middle = (from + to) >>> 1;
+        int handled = deliver(batch, from, middle);
+        return handled < middle - from ? handled : handled + deliver(batch, middle, to);
+    }
+
+    private HitJournal.Position readCheckpoint() throws IOException {
+        if (!Files.exists(checkpointPath)) return null;
+        ByteBuffer buffer = ByteBuffer.wrap(Files.readAllBytes(checkpointPath));
+        return new HitJournal.Position(buffer.getLong(), buffer.getInt());
+    }
+
+    private void writeCheckpoint(HitJournal.Position position) throws IOException {
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES);
+        buffer.putLong(position.getSegment()).putInt(position.getOffset());
+        Path tmp = checkpointPath.resolveSibling(CHECKPOINT + ".tmp");
+        Files.write(tmp, buffer.array());
+        Files.move(tmp, checkpointPath, StandardCopyOption.REPLACE_EXISTING, StandardCopyOption.ATOMIC_MOVE);
+    }
+}
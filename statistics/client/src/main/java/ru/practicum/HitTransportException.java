@@ -0,0 +1,25 @@
+package ru.practicum;
+
+public class HitTransportException extends RuntimeException {
+    private final int delivered;
+
+    public HitTransportException(String message) {
+        this(message, null, 0);
+    }
+
+    public HitTransportException(String message, Throwable cause) {
+        this(message, cause, 0);
+    }
+
+    /**
+     * @param delivered number of hits at the start of the failed batch the server acknowledged nevertheless
+     */
+    public HitTransportException(String message, Throwable cause, int delivered) {
+        super(message, cause);
+        this.delivered = delivered;
+    }
+
+    public int getDelivered() {
+        return delivered;
+    }
+}
@@ -0,0 +1,320 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.binder.MeterBinder;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.reactive.function.client.WebClient;
+import org.springframework.web.reactive.function.client.WebClientResponseException;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.util.UriBuilder;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+
+import java.net.URI;
+import java.time.Duration;
+import java.util.Collections;
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * {@link StatisticsClient} talking to a remote statistics server over HTTP.
+ * <p>
+ * Every call is bounded by {@code callTimeout} and goes through a {@link CircuitBreaker}. Queries never
+ * fail: errors of the server or the network come back as a {@code 503 Service Unavailable} response,
+ * client errors keep their status. The {@code *Async} methods return the same results without blocking.
+ * With a {@link HitSpool}, hits the server cannot take right now (network errors, {@code 5xx}, an open circuit)
+ * are spilled to disk and delivered later; hits it rejects with a {@code 4xx} are dropped and logged.
+ * With a {@link TcpHitTransport}, hits are sent to the binary TCP listener instead of {@code /hit}.
+ */
+@Slf4j
+public class HttpStatisticsClient implements StatisticsClient, MeterBinder {
+    private static final Duration DEFAULT_CALL_TIMEOUT = Duration.ofSeconds(5);
+
+    private final WebClient webClient;
+    private final Duration callTimeout;
+    private final CircuitBreaker circuitBreaker;
+    private final BufferedHitSender hitSender;
+    private final HitSpool spool;
+    private final TcpHitTransport tcpTransport;
+
+    public HttpStatisticsClient(String serverUrl) {
+        this(WebClient.builder().baseUrl(serverUrl).build(), DEFAULT_CALL_TIMEOUT,
+                new CircuitBreaker(5, Duration.ofSeconds(10)), 0, 0, null);
+    }
+
+    /**
+     * Creates a client that ships hits asynchronously: {@link #addRequest} only enqueues the hit
+     * and a background sender posts them in batches.
+     */
+    public HttpStatisticsClient(String serverUrl, int bufferCapacity, int batchSize, Duration flushInterval) {
+        this(WebClient.builder().baseUrl(serverUrl).build(), DEFAULT_CALL_TIMEOUT,
+                new CircuitBreaker(5, Duration.ofSeconds(10)), bufferCapacity, batchSize, flushInterval);
+    }
+
+    /**
+     * Creates a client on top of a configured {@link WebClient}; hits are buffered when {@code bufferCapacity}
+     * is positive and sent one by one otherwise.
+     */
+    public HttpStatisticsClient(WebClient webClient, Duration callTimeout, CircuitBreaker circuitBreaker,
+                                int bufferCapacity, int batchSize, Duration flushInterval) {
+        this(webClient, callTimeout, circuitBreaker, bufferCapacity, batchSize, flushInterval, null, null);
+    }
+
+    /**
+     * Same as above, spilling undelivered hits to {@code spool} and sending hits over {@code tcpTransport}
+     * when they are not {@code null}.
+     */
+    public HttpStatisticsClient(WebClient webClient, Duration callTimeout, CircuitBreaker circuitBreaker,
+                                int bufferCapacity, int batchSize, Duration flushInterval,
+                                HitSpool spool, TcpHitTransport tcpTransport) {
+        this.webClient = webClient;
+        this.callTimeout = callTimeout;
+        this.circuitBreaker = circuitBreaker;
+        this.spool = spool;
+        this.tcpTransport = tcpTransport;
+        this.hitSender = bufferCapacity > 0
+                ? new BufferedHitSender(bufferCapacity, batchSize, flushInterval, Duration.ZERO, this::deliverHits)
+                : null;
+        if (spool != null) {
+            spool.start(this::sendHits, HttpStatisticsClient::isClientError);
+        }
+    }
+
+    @Override
+    public void addRequest(RequestDTO requestDto) {
+        if (hitSender != null) {
+            hitSender.submit(requestDto);
+            return;
+        }
+        try {
+            sendHit(requestDto).block();
+        } catch (RuntimeException e) {
+            if (isClientError(e) || !spill(Collections.singletonList(requestDto))) {
+                log.warn("Failed to send a hit to the statistics server: {}", e.getMessage());
+            }
+        }
+    }
+
+    @Override
+    public Mono<Void> addRequestAsync(RequestDTO requestDto) {
+        if (hitSender != null) {
+            return Mono.fromRunnable(() -> hitSender.submit(requestDto));
+        }
+        if (spool != null) {
+            return sendHit(requestDto).onErrorResume(e -> !isClientError(e) && spill(Collections.singletonList(requestDto))
+                    ? Mono.empty()
+                    : Mono.error(e));
+        }
+        return sendHit(requestDto);
+    }
+
+    /**
+     * Sends the hits as one batch, bypassing the buffer, and returns once the server or the spool has them.
+     *
+     * @throws ResponseStatusException with the status of a rejected batch, 503 when the server is unavailable
+     */
+    public void addRequests(List<RequestDTO> hits) {
+        if (hits.isEmpty()) return;
+        try {
+            deliverHits(hits);
+        } catch (RuntimeException e) {
+            if (isClientError(e)) {
+                throw new ResponseStatusException(((WebClientResponseException) e).getStatusCode(), null, e);
+            }
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Statistics server is unavailable.", e);
+        }
+    }
+
+    @Override
+    public boolean flush(Duration timeout) {
+        return hitSender == null || hitSender.flush(timeout);
+    }
+
+    public BufferedHitSender getHitSender() {
+        return hitSender;
+    }
+
+    public CircuitBreaker getCircuitBreaker() {
+        return circuitBreaker;
+    }
+
+    public HitSpool getSpool() {
+        return spool;
+    }
+
+    @Override
+    public void bindTo(MeterRegistry registry) {
+        circuitBreaker.bindTo(registry);
+        if (hitSender != null) {
+            hitSender.bindTo(registry);
+        }
+        if (spool != null) {
+            spool.bindTo(registry);
+        }
+    }
+
+    @Override
+    public void close() {
+        if (hitSender != null) {
+            hitSender.close();
+        }
+        if (spool != null) {
+            spool.close();
+        }
+        if (tcpTransport != null) {
+            tcpTransport.close();
+        }
+    }
+
+    private void deliverHits(List<RequestDTO> hits) {
+        try {
+            sendHits(hits);
+        } catch (RuntimeException e) {
+            if (isClientError(e) || !spill(undelivered(hits, e))) throw e;
+        }
+    }
+
+    /**
+     * Hits of a failed batch the server has not acknowledged; over TCP a batch can fail halfway.
+     */
+    private static List<RequestDTO> undelivered(List<RequestDTO> hits, RuntimeException e) {
+        int delivered = e instanceof HitTransportException ? ((HitTransportException) e).getDelivered() : 0;
+        return hits.subList(Math.min(delivered, hits.size()), hits.size());
+    }
+
+    private boolean spill(List<RequestDTO> hits) {
+        return spool != null && spool.spill(hits);
+    }
+
+    private void sendHits(List<RequestDTO> hits) {
+        if (tcpTransport != null) {
+            call(Mono.<Void>fromRunnable(() -> tcpTransport.send(hits))).block();
+            return;
+        }
+        call(webClient.post().uri("/hit/batch").bodyValue(hits).retrieve().bodyToMono(Void.class)).block();
+    }
+
+    private Mono<Void> sendHit(RequestDTO requestDto) {
+        if (tcpTransport != null) {
+            return call(Mono.<Void>fromRunnable(() -> tcpTransport.send(Collections.singletonList(requestDto)))
+                    .subscribeOn(Schedulers.boundedElastic()));
+        }
+        return call(webClient.post().uri("/hit").bodyValue(requestDto).retrieve().bodyToMono(Void.class));
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStats(String start,
+                                                        String end,
+                                                        List<String> uris,
+                                                        Boolean unique) {
+
+        return getStatsAsync(start, end, uris, unique).block();
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsAsync(String start,
+                                                                  String end,
+                                                                  List<String> uris,
+                                                                  Boolean unique) {
+
+        return getList(uriBuilder -> {
+            uriBuilder.path("/stats")
+                    .queryParam("start", start)
+                    .queryParam("end", end);
+            if (uris != null)
+                uriBuilder.queryParam("uris", String.join(",", uris));
+            if (unique != null)
+                uriBuilder.queryParam("unique", unique);
+            return uriBuilder.build();
+        });
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStatsByIp(String start,
+                                                            String end,
+                                                            List<String> uris,
+                                                            Boolean unique,
+                                                            String ip) {
+
+        return getStatsByIpAsync(start, end, uris, unique, ip).block();
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsByIpAsync(String start,
+                                                                      String end,
+                                                                      List<String> uris,
+                                                                      Boolean unique,
+                                                                      String ip) {
+
+        return getList(uriBuilder -> {
+            uriBuilder.path("/statsByIp")
+                    .queryParam("start", start)
+                    .queryParam("end", end)
+                    .queryParam("ip", ip);
+            if (uris != null)
+                uriBuilder.queryParam("uris", String.join(",", uris));
+            if (unique != null)
+                uriBuilder.queryParam("unique", unique);
+            return uriBuilder.build();
+        });
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getTrending(Long minutes, Integer limit, String uriPrefix) {
+        return getTrendingAsync(minutes, limit, uriPrefix).block();
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getTrendingAsync(Long minutes, Integer limit, String uriPrefix) {
+        return getList(uriBuilder -> {
+            uriBuilder.path("/stats/trending");
+            if (minutes != null)
+                uriBuilder.queryParam("minutes", minutes);
+            if (limit != null)
+                uriBuilder.queryParam("limit", limit);
+            if (uriPrefix != null)
+                uriBuilder.queryParam("uriPrefix", uriPrefix);
+            return uriBuilder.build();
+        });
+    }
+
+    /**
+     * Visitor sketches per (app, uri) in {@code [start, end]}, used to merge unique counts of several servers.
+     */
+    public Mono<ResponseEntity<List<UniqueSketchDTO>>> getSketchesAsync(String start, String end, List<String> uris) {
+        return getList(uriBuilder -> {
+            uriBuilder.path("/stats/sketches")
+                    .queryParam("start", start)
+                    .queryParam("end", end);
+            if (uris != null)
+                uriBuilder.queryParam("uris", String.join(",", uris));
+            return uriBuilder.build();
+        }, UniqueSketchDTO.class);
+    }
+
+    private Mono<ResponseEntity<List<RequestOutDTO>>> getList(Function<UriBuilder, URI> uri) {
+        return getList(uri, RequestOutDTO.class);
+    }
+
+    private <T> Mono<ResponseEntity<List<T>>> getList(Function<UriBuilder, URI> uri, Class<T> type) {
+        return call(webClient.get().uri(uri).retrieve().toEntityList(type))
+                .onErrorResume(e -> {
+                    if (isClientError(e)) {
+                        return Mono.just(ResponseEntity.status(((WebClientResponseException) e).getRawStatusCode()).build());
+                    }
+                    log.warn("Statistics server is unavailable: {}", e.getMessage());
+                    return Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build());
+                });
+    }
+
+    private <T> Mono<T> call(Mono<T> request) {
+        return circuitBreaker.protect(request.timeout(callTimeout), e -> !isClientError(e));
+    }
+
+    private static boolean isClientError(Throwable e) {
+        return e instanceof WebClientResponseException
+                && ((WebClientResponseException) e).getStatusCode().is4xxClientError();
+    }
+}
@@ -0,0 +1,230 @@
+package ru.practicum;
+
+import org.springframework.http.ResponseEntity;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.function.BinaryOperator;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+/**
+ * {@link StatisticsClient} of statistics sharded by URI over several servers.
+ * <p>
+ * A hit goes to the server owning its URI on a {@link HashRing}. Queries are sent to every server, since
+ * hits recorded before a server joined or left stay where they were written, and the partial results are
+ * merged per (app, uri): hits add up, unique visitors of an (app, uri) reported by several servers are
+ * counted by merging their {@link HyperLogLog} sketches. When a server does not answer the query fails
+ * with its status, a partial result would silently undercount.
+ */
+public class ShardedStatisticsClient implements StatisticsClient {
+    private static final int DEFAULT_TRENDING_LIMIT = 10;
+    private static final int TRENDING_OVERFETCH = 4;
+    // stats.trending.max-limit of the servers
+    private static final int TRENDING_MAX_LIMIT = 1000;
+
+    private final Map<String, HttpStatisticsClient> shards;
+    private final HashRing<HttpStatisticsClient> ring;
+
+    /**
+     * @param shards clients of the servers by a stable name, usually their URL
+     */
+    public ShardedStatisticsClient(Map<String, HttpStatisticsClient> shards, int virtualNodes) {
+        this.shards = shards;
+        this.ring = new HashRing<>(shards, virtualNodes);
+    }
+
+    public HttpStatisticsClient shardFor(String uri) {
+        return ring.nodeFor(uri);
+    }
+
+    @Override
+    public void addRequest(RequestDTO requestDto) {
+        shardFor(requestDto.getUri()).addRequest(requestDto);
+    }
+
+    @Override
+    public Mono<Void> addRequestAsync(RequestDTO requestDto) {
+        return shardFor(requestDto.getUri()).addRequestAsync(requestDto);
+    }
+
+    /**
+     * Splits the hits by the server owning their URI and sends every part as one batch, all servers at once.
+     * Returns when every server or its spool has its part; when one fails its error is thrown, while the
+     * parts of the other servers may already be recorded.
+     *
+     * @see HttpStatisticsClient#addRequests(List)
+     */
+    public void addRequests(List<RequestDTO> hits) {
+        Map<HttpStatisticsClient, List<RequestDTO>> batches = new LinkedHashMap<>();
+        for (RequestDTO hit : hits) {
+            batches.computeIfAbsent(shardFor(hit.getUri()), shard -> new ArrayList<>()).add(hit);
+        }
+        if (batches.size() == 1) {
+            batches.forEach(HttpStatisticsClient::addRequests);
+            return;
+        }
+        Flux.fromIterable(batches.entrySet())
+                .flatMap(batch -> Mono.fromRunnable(() -> batch.getKey().addRequests(batch.getValue()))
+                        .subscribeOn(Schedulers.boundedElastic()))
+                .then()
+                .block();
+    }
+
+    @Override
+    public boolean flush(Duration timeout) {
+        boolean flushed = true;
+        for (HttpStatisticsClient shard : shards.values()) {
+            flushed &= shard.flush(timeout);
+        }
+        return flushed;
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStats(String start, String end, List<String> uris, Boolean unique) {
+        return getStatsAsync(start, end, uris, unique).block();
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsAsync(String start, String end, List<String> uris,
+                                                                   Boolean unique) {
+        return gather(shard -> shard.getStatsAsync(start, end, uris, unique))
+                .flatMap(response -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) return Mono.just(failed(response));
+                    if (!Boolean.TRUE.equals(unique)) return Mono.just(ResponseEntity.ok(merge(response.getBody(), Long::sum)));
+                    return mergeUnique(start, end, response.getBody());
+                });
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStatsByIp(String start, String end, List<String> uris,
+                                                            Boolean unique, String ip) {
+        return getStatsByIpAsync(start, end, uris, unique, ip).block();
+    }
+
+    /**
+     * Unique visits of a single IP are 0 or 1 on every server, so they merge by taking the maximum.
+     */
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsByIpAsync(String start, String end, List<String> uris,
+                                                                       Boolean unique, String ip) {
+        BinaryOperator<Long> combine = Boolean.TRUE.equals(unique) ? Math::max : Long::sum;
+        return gather(shard -> shard.getStatsByIpAsync(start, end, uris, unique, ip))
+                .map(response -> response.getStatusCode().is2xxSuccessful()
+                        ? ResponseEntity.ok(merge(response.getBody(), combine))
+                        : failed(response));
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getTrending(Long minutes, Integer limit, String uriPrefix) {
+        return getTrendingAsync(minutes, limit, uriPrefix).block();
+    }
+
+    /**
+     * A URI is counted by the server owning it, but its hits are split between servers for a while after a
+     * server joins or leaves. Every server is therefore asked for {@value #TRENDING_OVERFETCH} times
+     * {@code limit} rows, so that the parts of a split URI ranked lower on one server are still summed.
+     * A split URI whose parts all rank below that on their servers is still undercounted or missed.
+     */
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getTrendingAsync(Long minutes, Integer limit, String uriPrefix) {
+        int top = limit != null ? limit : DEFAULT_TRENDING_LIMIT;
+        int perShard = shards.size() > 1 ? Math.max(top, Math.min(top * TRENDING_OVERFETCH, TRENDING_MAX_LIMIT)) : top;
+        return gather(shard -> shard.getTrendingAsync(minutes, perShard, uriPrefix))
+                .map(response -> response.getStatusCode().is2xxSuccessful()
+                        ? ResponseEntity.ok(merge(response.getBody(), Long::sum).stream().limit(top).collect(Collectors.toList()))
+                        : failed(response));
+    }
+
+    @Override
+    public void close() {
+        shards.values().forEach(HttpStatisticsClient::close);
+    }
+
+    private Mono<ResponseEntity<List<RequestOutDTO>>> mergeUnique(String start, String end,
+                                                                  List<List<RequestOutDTO>> parts) {
+        Map<List<String>, RequestOutDTO> rows = new HashMap<>();
+        Set<List<String>> split = new HashSet<>();
+        for (List<RequestOutDTO> part : parts) {
+            for (RequestOutDTO row : part) {
+                List<String> key = Arrays.asList(row.getApp(), row.getUri());
+                if (rows.containsKey(key)) split.add(key);
+                rows.merge(key, row, (left, right) -> left.getHits() >= right.getHits() ? left : right);
+            }
+        }
+        if (split.isEmpty()) return Mono.just(ResponseEntity.ok(sorted(rows.values())));
+
+        List<String> splitUris = split.stream().map(key -> key.get(1)).distinct().collect(Collectors.toList());
+        return gather(shard -> shard.getSketchesAsync(start, end, splitUris))
+                .map(response -> {
+                    if (!response.getStatusCode().is2xxSuccessful()) return failed(response);
+
+                    Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+                    for (List<UniqueSketchDTO> part : response.getBody()) {
+                        for (UniqueSketchDTO dto : part) {
+                            List<String> key = Arrays.asList(dto.getApp(), dto.getUri());
+                            if (!split.contains(key)) continue;
+                            sketches.merge(key, HyperLogLog.fromBytes(dto.getSketch()), (left, right) -> {
+                                left.merge(right);
+                                return left;
+                            });
+                        }
+                    }
+                    // the union is never smaller than the exact count of one server
+                    sketches.forEach((key, sketch) -> rows.computeIfPresent(key, (k, row) ->
+                            new RequestOutDTO(row.getApp(), row.getUri(), Math.max(row.getHits(), sketch.estimate()))));
+                    return ResponseEntity.ok(sorted(rows.values()));
+                });
+    }
+
+    private <T> Mono<ResponseEntity<List<List<T>>>> gather(
+            Function<HttpStatisticsClient, Mono<ResponseEntity<List<T>>>> query) {
+        return Flux.fromIterable(shards.values())
+                .flatMap(query)
+                .collectList()
+                .map(responses -> {
+                    List<List<T>> parts = new ArrayList<>(responses.size());
+                    for (ResponseEntity<List<T>> response : responses) {
+                        if (!response.getStatusCode().is2xxSuccessful()) return failed(response);
+                        parts.add(response.getBody() != null ? response.getBody() : Collections.emptyList());
+                    }
+                    return ResponseEntity.ok(parts);
+                });
+    }
+
+    private static List<RequestOutDTO> merge(List<List<RequestOutDTO>> parts, BinaryOperator<Long> combine) {
+        Map<List<String>, Long> hits = new HashMap<>();
+        for (List<RequestOutDTO> part : parts) {
+            for (RequestOutDTO row : part) {
+                hits.merge(Arrays.asList(row.getApp(), row.getUri()), row.getHits(), combine);
+            }
+        }
+        return sorted(hits.entrySet().stream()
+                .map(entry -> new RequestOutDTO(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .collect(Collectors.toList()));
+    }
+
+    private static List<RequestOutDTO> sorted(Collection<RequestOutDTO> rows) {
+        return rows.stream()
+                .sorted(Comparator.comparing(RequestOutDTO::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static <T> ResponseEntity<T> failed(ResponseEntity<?> response) {
+        return ResponseEntity.status(response.getStatusCode()).build();
+    }
+}
@@ -1,68 +1,46 @@
 package ru.practicum;
 
-import org.springframework.beans.factory.annotation.Value;
-import org.springframework.core.ParameterizedTypeReference;
 import org.springframework.http.ResponseEntity;
-import org.springframework.web.reactive.function.client.WebClient;
+import reactor.core.publisher.Mono;
 
+import java.time.Duration;
 import java.util.List;
 
-public class StatisticsClient {
-    private final String serverUrl;
-    private final WebClient webClient;
+/**
+ * Client of the statistics service.
+ * <p>
+ * Queries never fail: when the statistics are unavailable they come back as a {@code 503 Service Unavailable}
+ * response, client errors keep their status. The {@code *Async} methods return the same results without blocking.
+ * {@link HttpStatisticsClient} talks to a remote server; with {@code stats.client.mode=embedded} the statistics
+ * run inside the calling service.
+ */
+public interface StatisticsClient extends AutoCloseable {
 
+    void addRequest(RequestDTO requestDto);
 
-    public StatisticsClient(@Value("${stats.server.url}") String serverUrl) {
-        this.serverUrl = serverUrl;
-        this.webClient = WebClient.builder().baseUrl(serverUrl).build();
-    }
+    Mono<Void> addRequestAsync(RequestDTO requestDto);
 
-    public void addRequest(RequestDTO requestDto) {
-        webClient.post().uri("/hit").bodyValue(requestDto).retrieve().bodyToMono(Object.class).block();
-    }
+    /**
+     * Waits at most {@code timeout} until the hits added before are sent, so that the following queries
+     * count them; returns {@code false} when they could not be sent in time.
+     */
+    boolean flush(Duration timeout);
 
-    public ResponseEntity<List<RequestOutDTO>> getStats(String start,
-                                                        String end,
-                                                        List<String> uris,
-                                                        Boolean unique) {
+    ResponseEntity<List<RequestOutDTO>> getStats(String start, String end, List<String> uris, Boolean unique);
 
-        return webClient.get()
-                .uri(uriBuilder -> {
-                    uriBuilder.path("/stats")
-                            .queryParam("start", start)
-                            .queryParam("end", end);
-                    if (uris != null)
-                        uriBuilder.queryParam("uris", String.join(",", uris));
-                    if (unique != null)
-                        uriBuilder.queryParam("unique", unique);
-                    return uriBuilder.build();
-                })
-                .retrieve()
-                .bodyToMono(new ParameterizedTypeReference<ResponseEntity<List<RequestOutDTO>>>() {})
-                .block();
-    }
+    Mono<ResponseEntity<List<RequestOutDTO>>> getStatsAsync(String start, String end, List<String> uris,
+                                                            Boolean unique);
 
-    public ResponseEntity<List<RequestOutDTO>> getStatsByIp(String start,
-                                                            String end,
-                                                            List<String> uris,
-                                                            Boolean unique,
-                                                            String ip) {
+    ResponseEntity<List<RequestOutDTO>> getStatsByIp(String start, String end, List<String> uris, Boolean unique,
+                                                     String ip);
 
-        ResponseEntity<List<RequestOutDTO>> listResponseEntity = webClient.get()
-                .uri(uriBuilder -> {
-                    uriBuilder.path("/statsByIp")
-                            .queryParam("start", start)
-                            .queryParam("end", end)
-                            .queryParam("ip", ip);
-                    if (uris != null)
-                        uriBuilder.queryParam("uris", String.join(",", uris));
-                    if (unique != null)
-                        uriBuilder.queryParam("unique", unique);
-                    return uriBuilder.build();
-                })
-                .retrieve()
-                .toEntityList(RequestOutDTO.class)
-                .block();
-        return listResponseEntity;
-    }
+    Mono<ResponseEntity<List<RequestOutDTO>>> getStatsByIpAsync(String start, String end, List<String> uris,
+                                                                Boolean unique, String ip);
+
+    ResponseEntity<List<RequestOutDTO>> getTrending(Long minutes, Integer limit, String uriPrefix);
+
+    Mono<ResponseEntity<List<RequestOutDTO>>> getTrendingAsync(Long minutes, Integer limit, String uriPrefix);
+
+    @Override
+    void close();
 }
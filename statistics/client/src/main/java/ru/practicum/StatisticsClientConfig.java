@@ -0,0 +1,139 @@
+package ru.practicum;
+
+import io.netty.channel.ChannelOption;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnExpression;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.http.client.reactive.ReactorClientHttpConnector;
+import org.springframework.web.reactive.function.client.WebClient;
+import reactor.netty.http.client.HttpClient;
+import reactor.netty.resources.ConnectionProvider;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * {@link StatisticsClient} bean for services that report to the statistics server at {@code stats.server.url},
+ * or with {@code stats.client.mode=sharded} to the servers listed in {@code stats.cluster.shards}.
+ * All calls share one bounded connection pool. With {@code stats.client.spool.enabled} hits are spooled
+ * to {@code stats.client.spool.dir} while a server is unavailable; {@code stats.client.transport=tcp} sends
+ * hits to the binary TCP listener of a single server.
+ */
+@Configuration
+@ConditionalOnExpression("'${stats.client.mode:http}' == 'http' or '${stats.client.mode:http}' == 'sharded'")
+public class StatisticsClientConfig {
+
+    @Value("${stats.client.connect-timeout-ms:1000}")
+    private int connectTimeoutMs;
+
+    @Value("${stats.client.call-timeout-ms:2000}")
+    private long callTimeoutMs;
+
+    @Value("${stats.client.circuit.failure-threshold:5}")
+    private int failureThreshold;
+
+    @Value("${stats.client.circuit.open-ms:10000}")
+    private long openMs;
+
+    @Value("${stats.client.buffer.capacity:10000}")
+    private int bufferCapacity;
+
+    @Value("${stats.client.buffer.batch-size:200}")
+    private int batchSize;
+
+    @Value("${stats.client.buffer.flush-interval-ms:500}")
+    private long flushIntervalMs;
+
+    @Value("${stats.client.spool.enabled:false}")
+    private boolean spoolEnabled;
+
+    @Value("${stats.client.spool.dir:stats-spool}")
+    private String spoolDir;
+
+    @Value("${stats.client.spool.segment-bytes:16777216}")
+    private int spoolSegmentBytes;
+
+    @Value("${stats.client.spool.max-bytes:268435456}")
+    private long spoolMaxBytes;
+
+    @Value("${stats.client.spool.replay-batch-size:500}")
+    private int spoolBatchSize;
+
+    @Value("${stats.client.spool.replay-interval-ms:1000}")
+    private long spoolReplayIntervalMs;
+
+    @Bean(destroyMethod = "dispose")
+    public ConnectionProvider statisticsConnectionProvider(
+            @Value("${stats.client.pool.max-connections:50}") int maxConnections,
+            @Value("${stats.client.pool.pending-acquire-max-count:500}") int pendingAcquireMaxCount,
+            @Value("${stats.client.pool.pending-acquire-timeout-ms:500}") long pendingAcquireTimeoutMs,
+            @Value("${stats.client.pool.max-idle-time-ms:30000}") long maxIdleTimeMs) {
+
+        return ConnectionProvider.builder("stats-client")
+                .maxConnections(maxConnections)
+                .pendingAcquireMaxCount(pendingAcquireMaxCount)
+                .pendingAcquireTimeout(Duration.ofMillis(pendingAcquireTimeoutMs))
+                .maxIdleTime(Duration.ofMillis(maxIdleTimeMs))
+                .evictInBackground(Duration.ofMillis(maxIdleTimeMs))
+                .build();
+    }
+
+    @Bean
+    @ConditionalOnProperty(name = "stats.client.mode", havingValue = "http", matchIfMissing = true)
+    public HttpStatisticsClient statisticsClient(
+            ConnectionProvider statisticsConnectionProvider,
+            @Value("${stats.server.url}") String serverUrl,
+            @Value("${stats.client.transport:http}") String transport,
+            @Value("${stats.client.tcp.host:localhost}") String tcpHost,
+            @Value("${stats.client.tcp.port:9091}") int tcpPort) throws IOException {
+
+        TcpHitTransport tcpTransport = "tcp".equalsIgnoreCase(transport)
+                ? new TcpHitTransport(tcpHost, tcpPort, Duration.ofMillis(connectTimeoutMs), Duration.ofMillis(callTimeoutMs))
+                : null;
+        return httpClient(statisticsConnectionProvider, serverUrl, Path.of(spoolDir), tcpTransport);
+    }
+
+    /**
+     * One client per shard, each spooling to a directory of its own under {@code stats.client.spool.dir}.
+     */
+    @Bean
+    @ConditionalOnProperty(name = "stats.client.mode", havingValue = "sharded")
+    public ShardedStatisticsClient shardedStatisticsClient(
+            ConnectionProvider statisticsConnectionProvider,
+            @Value("${stats.cluster.shards}") List<String> shardUrls,
+            @Value("${stats.cluster.virtual-nodes:160}") int virtualNodes) throws IOException {
+
+        Map<String, HttpStatisticsClient> shards = new LinkedHashMap<>();
+        for (String shardUrl : shardUrls) {
+            Path shardSpoolDir = Path.of(spoolDir, shardUrl.replaceAll("[^A-Za-z0-9.-]+", "_"));
+            shards.put(shardUrl, httpClient(statisticsConnectionProvider, shardUrl, shardSpoolDir, null));
+        }
+        return new ShardedStatisticsClient(shards, virtualNodes);
+    }
+
+    private HttpStatisticsClient httpClient(ConnectionProvider connectionProvider, String serverUrl, Path spoolPath,
+                                            TcpHitTransport tcpTransport) throws IOException {
+        HttpClient httpClient = HttpClient.create(connectionProvider)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, connectTimeoutMs)
+                .responseTimeout(Duration.ofMillis(callTimeoutMs));
+        WebClient webClient = WebClient.builder()
+                .baseUrl(serverUrl)
+                .clientConnector(new ReactorClientHttpConnector(httpClient))
+                .build();
+
+        HitSpool spool = spoolEnabled
+                ? new HitSpool(spoolPath, spoolSegmentBytes, spoolMaxBytes, spoolBatchSize,
+                        Duration.ofMillis(spoolReplayIntervalMs))
+                : null;
+
+        return new HttpStatisticsClient(webClient, Duration.ofMillis(callTimeoutMs),
+                new CircuitBreaker(failureThreshold, Duration.ofMillis(openMs)),
+                bufferCapacity, batchSize, Duration.ofMillis(flushIntervalMs), spool, tcpTransport);
+    }
+}
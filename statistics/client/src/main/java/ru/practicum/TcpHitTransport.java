@@ -0,0 +1,132 @@
+package ru.practicum;
+
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.FixedLengthFrameDecoder;
+import reactor.core.publisher.Mono;
+import reactor.netty.Connection;
+import reactor.netty.tcp.TcpClient;
+import ru.practicum.journal.HitCodec;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Sends hits to the TCP listener of the statistics server over one persistent connection.
+ * <p>
+ * A batch is written as a single burst of length-prefixed {@link HitCodec} frames and the call returns once
+ * the server has acknowledged all of them. A failed or unacknowledged batch closes the connection, the next
+ * call opens a new one; the {@link HitTransportException} tells how many hits of the batch were acknowledged
+ * before, so that only the rest is sent again.
+ */
+public class TcpHitTransport implements AutoCloseable {
+    private final TcpClient tcpClient;
+    private final Duration connectTimeout;
+    private final Duration ackTimeout;
+    private Link link;
+
+    public TcpHitTransport(String host, int port, Duration connectTimeout, Duration ackTimeout) {
+        this.tcpClient = TcpClient.create()
+                .host(host)
+                .port(port)
+                .option(ChannelOption.CONNECT_TIMEOUT_MILLIS, (int) connectTimeout.toMillis())
+                .option(ChannelOption.TCP_NODELAY, true)
+                .doOnConnected(connection -> connection.addHandlerLast(new FixedLengthFrameDecoder(Long.BYTES)));
+        this.connectTimeout = connectTimeout;
+        this.ackTimeout = ackTimeout;
+    }
+
+    public synchronized void send(List<RequestDTO> hits) {
+        Link current = connect();
+        ByteBuf frames = current.connection.outbound().alloc().buffer();
+        for (RequestDTO hit : hits) {
+            byte[] payload = HitCodec.encode(hit);
+            frames.writeInt(payload.length).writeBytes(payload);
+        }
+
+        long before = current.sent;
+        try {
+            current.connection.outbound().send(Mono.just(frames)).then().block(ackTimeout);
+            current.sent += hits.size();
+            if (!current.awaitAck(current.sent, ackTimeout.toNanos())) {
+                throw new HitTransportException("Statistics server did not acknowledge " + hits.size() + " hits.");
+            }
+        } catch (RuntimeException e) {
+            disconnect();
+            int delivered = (int) Math.max(0, Math.min(hits.size(), current.getAcknowledged() - before));
+            throw new HitTransportException("Failed to send hits over TCP.", e, delivered);
+        }
+    }
+
+    @Override
+    public synchronized void close() {
+        disconnect();
+    }
+
+    private Link connect() {
+        if (link != null && !link.isClosed()) {
+            return link;
+        }
+        disconnect();
+        try {
+            link = new Link(tcpClient.connectNow(connectTimeout));
+        } catch (RuntimeException e) {
+            throw new HitTransportException("Failed to connect to the statistics server.", e);
+        }
+        return link;
+    }
+
+    private void disconnect() {
+        if (link != null) {
+            link.connection.dispose();
+            link = null;
+        }
+    }
+
+    private static class Link {
+        private final Connection connection;
+        private long sent;
+        private long acknowledged;
+        private boolean closed;
+
+        Link(Connection connection) {
+            this.connection = connection;
+            connection.inbound().receive()
+                    .map(ByteBuf::readLong)
+                    .subscribe(this::onAck, e -> onClosed(), this::onClosed);
+        }
+
+        synchronized boolean awaitAck(long target, long timeoutNanos) {
+            long deadline = System.nanoTime() + timeoutNanos;
+            try {
+                while (acknowledged < target && !closed) {
+                    long left = deadline - System.nanoTime();
+                    if (left <= 0) return false;
+                    wait(left / 1_000_000, (int) (left % 1_000_000));
+                }
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+                return false;
+            }
+            return acknowledged >= target;
+        }
+
+        synchronized long getAcknowledged() {
+            return acknowledged;
+        }
+
+        synchronized boolean isClosed() {
+            return closed || connection.isDisposed();
+        }
+
+        private synchronized void onAck(long count) {
+            acknowledged = count;
+            notifyAll();
+        }
+
+        private synchronized void onClosed() {
+            closed = true;
+            notifyAll();
+        }
+    }
+}
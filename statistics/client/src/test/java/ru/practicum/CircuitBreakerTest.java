@@ -0,0 +1,142 @@
+package ru.practicum;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import reactor.core.publisher.Mono;
+import reactor.core.publisher.Sinks;
+
+import java.io.IOException;
+import java.time.Duration;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class CircuitBreakerTest {
+    private final AtomicInteger calls = new AtomicInteger();
+
+    @Test
+    void opensAfterConsecutiveFailuresAndRejectsWithoutCalling() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+
+        for (int i = 0; i < 3; i++) {
+            assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+            fail(breaker);
+        }
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+        assertThatThrownBy(() -> breaker.protect(call(Mono.just("ok")), e -> true).block())
+                .isInstanceOf(CircuitBreakerOpenException.class);
+        assertThat(calls).hasValue(3);
+        assertThat(breaker.getRejected()).isEqualTo(1);
+    }
+
+    @Test
+    void successResetsTheFailureCount() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ofMinutes(1));
+
+        fail(breaker);
+        fail(breaker);
+        breaker.protect(call(Mono.just("ok")), e -> true).block();
+        fail(breaker);
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void errorsThatAreNotFailuresCountAsSuccess() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+
+        assertThatThrownBy(() -> breaker.protect(call(Mono.error(new IllegalArgumentException())),
+                e -> e instanceof IOException).block()).isInstanceOf(IllegalArgumentException.class);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void staysOpenForTheOpenDuration() throws InterruptedException {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMillis(200));
+        fail(breaker);
+
+        assertThatThrownBy(() -> breaker.protect(call(Mono.just("ok")), e -> true).block())
+                .isInstanceOf(CircuitBreakerOpenException.class);
+
+        Thread.sleep(300);
+        assertThat(breaker.protect(call(Mono.just("ok")), e -> true).block()).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void letsOneTrialThroughWhenHalfOpen() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        fail(breaker);
+
+        Sinks.One<String> trial = Sinks.one();
+        breaker.protect(call(trial.asMono()), e -> true).subscribe();
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.HALF_OPEN);
+
+        assertThatThrownBy(() -> breaker.protect(call(Mono.just("ok")), e -> true).block())
+                .isInstanceOf(CircuitBreakerOpenException.class);
+
+        trial.tryEmitValue("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+        assertThat(breaker.protect(call(Mono.just("ok")), e -> true).block()).isEqualTo("ok");
+    }
+
+    @Test
+    void failedTrialOpensTheCircuitAgain() {
+        CircuitBreaker breaker = new CircuitBreaker(3, Duration.ZERO);
+        for (int i = 0; i < 3; i++) {
+            fail(breaker);
+        }
+
+        // a single failure in the half open state is enough
+        fail(breaker);
+
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.OPEN);
+    }
+
+    @Test
+    void cancelledTrialLetsTheNextOneThrough() {
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ZERO);
+        fail(breaker);
+
+        breaker.protect(call(Mono.never()), e -> true).subscribe().dispose();
+
+        assertThat(breaker.protect(call(Mono.just("ok")), e -> true).block()).isEqualTo("ok");
+        assertThat(breaker.getState()).isEqualTo(CircuitBreaker.State.CLOSED);
+    }
+
+    @Test
+    void reportsStateAndRejections() {
+        SimpleMeterRegistry registry = new SimpleMeterRegistry();
+        CircuitBreaker breaker = new CircuitBreaker(1, Duration.ofMinutes(1));
+        breaker.bindTo(registry);
+
+        fail(breaker);
+        breaker.protect(call(Mono.just("ok")), e -> true).onErrorResume(e -> Mono.empty()).block();
+
+        assertThat(registry.get("stats.client.circuit.open").gauge().value()).isEqualTo(1);
+        assertThat(registry.get("stats.client.circuit.rejected").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void rejectsNonPositiveThreshold() {
+        assertThatThrownBy(() -> new CircuitBreaker(0, Duration.ofSeconds(1)))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private void fail(CircuitBreaker breaker) {
+        breaker.protect(call(Mono.error(new IOException("connection refused"))), e -> true)
+                .onErrorResume(e -> Mono.empty())
+                .block();
+    }
+
+    private <T> Mono<T> call(Mono<T> result) {
+        return Mono.defer(() -> {
+            calls.incrementAndGet();
+            return result;
+        });
+    }
+}
@@ -0,0 +1,75 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.Map;
+import java.util.TreeMap;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HashRingTest {
+    private static final int KEYS = 100_000;
+    private static final int VIRTUAL_NODES = 128;
+
+    @Test
+    void placementDependsOnNamesNotOrder() {
+        Map<String, String> nodes = new LinkedHashMap<>();
+        nodes.put("http://stats-b:9090", "b");
+        nodes.put("http://stats-a:9090", "a");
+        HashRing<String> ring = new HashRing<>(nodes, VIRTUAL_NODES);
+        HashRing<String> reordered = new HashRing<>(new TreeMap<>(nodes), VIRTUAL_NODES);
+
+        IntStream.range(0, 1_000).mapToObj(HashRingTest::key)
+                .forEach(key -> assertThat(reordered.nodeFor(key)).isEqualTo(ring.nodeFor(key)));
+    }
+
+    @Test
+    void spreadsKeysEvenly() {
+        HashRing<String> ring = new HashRing<>(nodes(4), VIRTUAL_NODES);
+
+        Map<String, Integer> counts = new HashMap<>();
+        IntStream.range(0, KEYS).forEach(i -> counts.merge(ring.nodeFor(key(i)), 1, Integer::sum));
+
+        assertThat(counts).hasSize(4);
+        assertThat(counts.values()).allSatisfy(count -> assertThat(count).isBetween(KEYS / 4 * 7 / 10, KEYS / 4 * 13 / 10));
+    }
+
+    @Test
+    void addingNodeOnlyMovesKeysToIt() {
+        HashRing<String> before = new HashRing<>(nodes(4), VIRTUAL_NODES);
+        HashRing<String> after = new HashRing<>(nodes(5), VIRTUAL_NODES);
+
+        int moved = 0;
+        for (int i = 0; i < KEYS; i++) {
+            String from = before.nodeFor(key(i));
+            String to = after.nodeFor(key(i));
+            if (!from.equals(to)) {
+                assertThat(to).isEqualTo("node-4");
+                moved++;
+            }
+        }
+
+        assertThat(moved).isBetween(KEYS / 5 * 7 / 10, KEYS / 5 * 13 / 10);
+    }
+
+    @Test
+    void rejectsInvalidConfiguration() {
+        assertThatThrownBy(() -> new HashRing<>(new HashMap<String, String>(), VIRTUAL_NODES))
+                .isInstanceOf(IllegalArgumentException.class);
+        assertThatThrownBy(() -> new HashRing<>(nodes(2), 0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static Map<String, String> nodes(int count) {
+        Map<String, String> nodes = new HashMap<>();
+        IntStream.range(0, count).forEach(i -> nodes.put("http://stats-" + i + ":9090", "node-" + i));
+        return nodes;
+    }
+
+    private static String key(int i) {
+        return "/events/" + i;
+    }
+}
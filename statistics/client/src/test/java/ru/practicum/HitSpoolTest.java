@@ -0,0 +1,157 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.concurrent.atomic.AtomicInteger;
+import java.util.function.BooleanSupplier;
+import java.util.function.Consumer;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitSpoolTest {
+    private static final int SEGMENT_BYTES = 4096;
+    private static final Duration REPLAY_INTERVAL = Duration.ofMillis(5);
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysSpilledHitsToTheSink() throws IOException {
+        List<RequestDTO> delivered = new CopyOnWriteArrayList<>();
+        try (HitSpool spool = spool(10)) {
+            assertThat(spool.spill(hits(0, 25))).isTrue();
+            assertThat(spool.getDepth()).isEqualTo(25);
+
+            spool.start(delivered::addAll, e -> false);
+            await(() -> spool.getDepth() == 0);
+
+            assertThat(delivered).isEqualTo(hits(0, 25));
+            assertThat(spool.getSpilled()).isEqualTo(25);
+            assertThat(spool.getReplayed()).isEqualTo(25);
+        }
+    }
+
+    @Test
+    void resumesFromTheCheckpointAfterReopening() throws IOException {
+        List<RequestDTO> delivered = new CopyOnWriteArrayList<>();
+        try (HitSpool spool = spool(10)) {
+            spool.spill(hits(0, 20));
+            spool.start(delivered::addAll, e -> false);
+            await(() -> spool.getDepth() == 0);
+            spool.spill(hits(20, 30));
+        }
+
+        try (HitSpool reopened = spool(10)) {
+            assertThat(reopened.getDepth()).isBetween(0L, 10L);
+            reopened.start(delivered::addAll, e -> false);
+            await(() -> reopened.getDepth() == 0);
+        }
+
+        assertThat(delivered).isEqualTo(hits(0, 30));
+    }
+
+    @Test
+    void keepsHitsWhileTheServerIsUnavailable() throws IOException {
+        AtomicBoolean available = new AtomicBoolean();
+        AtomicInteger attempts = new AtomicInteger();
+        List<RequestDTO> delivered = new CopyOnWriteArrayList<>();
+        try (HitSpool spool = spool(10)) {
+            spool.spill(hits(0, 10));
+            spool.start(batch -> {
+                attempts.incrementAndGet();
+                if (!available.get()) throw new HitTransportException("unavailable");
+                delivered.addAll(batch);
+            }, e -> false);
+            await(() -> attempts.get() >= 3);
+            assertThat(spool.getDepth()).isEqualTo(10);
+
+            available.set(true);
+            await(() -> spool.getDepth() == 0);
+        }
+
+        assertThat(delivered).isEqualTo(hits(0, 10));
+    }
+
+    @Test
+    void continuesAfterPartialDelivery() throws IOException {
+        AtomicBoolean failed = new AtomicBoolean();
+        List<RequestDTO> delivered = new CopyOnWriteArrayList<>();
+        try (HitSpool spool = spool(10)) {
+            spool.spill(hits(0, 10));
+            spool.start(batch -> {
+                if (failed.compareAndSet(false, true)) {
+                    delivered.addAll(batch.subList(0, 4));
+                    throw new HitTransportException("connection reset", null, 4);
+                }
+                delivered.addAll(batch);
+            }, e -> false);
+            await(() -> spool.getDepth() == 0);
+        }
+
+        assertThat(delivered).isEqualTo(hits(0, 10));
+    }
+
+    @Test
+    void skipsRejectedHitsByBisectingTheBatch() throws IOException {
+        List<RequestDTO> bad = List.of(hits(0, 16).get(5), hits(0, 16).get(11));
+        List<RequestDTO> delivered = new CopyOnWriteArrayList<>();
+        Consumer<List<RequestDTO>> sink = batch -> {
+            if (batch.stream().anyMatch(bad::contains)) throw new IllegalArgumentException("invalid hit");
+            delivered.addAll(batch);
+        };
+        try (HitSpool spool = spool(16)) {
+            spool.spill(hits(0, 16));
+            spool.start(sink, IllegalArgumentException.class::isInstance);
+            await(() -> spool.getDepth() == 0);
+
+            assertThat(spool.getRejected()).isEqualTo(2);
+            assertThat(spool.getReplayed()).isEqualTo(14);
+        }
+
+        assertThat(delivered).isEqualTo(hits(0, 16).stream().filter(hit -> !bad.contains(hit)).collect(Collectors.toList()));
+    }
+
+    @Test
+    void dropsHitsWhenFull() throws IOException {
+        try (HitSpool spool = new HitSpool(dir, SEGMENT_BYTES, 2 * SEGMENT_BYTES, 10, REPLAY_INTERVAL)) {
+            int accepted = 0;
+            for (int i = 0; i < 1000 && spool.spill(hits(i, i + 1)); i++) {
+                accepted++;
+            }
+
+            assertThat(accepted).isLessThan(1000);
+            assertThat(spool.spill(hits(0, 3))).isFalse();
+            assertThat(spool.getDropped()).isEqualTo(4);
+            assertThat(spool.getDepth()).isEqualTo(accepted);
+        }
+    }
+
+    private HitSpool spool(int batchSize) throws IOException {
+        return new HitSpool(dir, SEGMENT_BYTES, 16L * SEGMENT_BYTES, batchSize, REPLAY_INTERVAL);
+    }
+
+    private static void await(BooleanSupplier condition) {
+        long deadline = System.nanoTime() + Duration.ofSeconds(10).toNanos();
+        while (!condition.getAsBoolean()) {
+            assertThat(System.nanoTime()).as("condition not met in time").isLessThan(deadline);
+            Thread.onSpinWait();
+        }
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new RequestDTO(null, "ewm-main-service", "/events/" + i, "10.0.0." + (i % 250),
+                        LocalDateTime.of(2026, 1, 1, 12, 0).plusSeconds(i)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,172 @@
+package ru.practicum;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.util.Arrays;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class ShardedStatisticsClientTest {
+    private static final String APP = "ewm-main-service";
+    private static final String START = "2026-01-01 00:00:00";
+    private static final String END = "2026-01-02 00:00:00";
+
+    private final HttpStatisticsClient first = mock(HttpStatisticsClient.class);
+    private final HttpStatisticsClient second = mock(HttpStatisticsClient.class);
+    private final ShardedStatisticsClient client = new ShardedStatisticsClient(shards(), 64);
+
+    @Test
+    void sumsHitsOfEveryShard() {
+        stats(first, false, row("/events/1", 5), row("/events/2", 1));
+        stats(second, false, row("/events/1", 2), row("/events/3", 4));
+
+        assertThat(rows(client.getStats(START, END, null, false))).containsExactly("/events/1=7", "/events/3=4", "/events/2=1");
+    }
+
+    @Test
+    void mergesUniqueVisitorsOfSplitUrisBySketches() {
+        // 600 visitors on the first shard and 600 on the second, 200 of them on both
+        stats(first, true, row("/events/1", 600), row("/events/2", 3));
+        stats(second, true, row("/events/1", 600));
+        when(first.getSketchesAsync(eq(START), eq(END), anyList()))
+                .thenReturn(Mono.just(ResponseEntity.ok(List.of(sketch("/events/1", 0, 600)))));
+        when(second.getSketchesAsync(eq(START), eq(END), anyList()))
+                .thenReturn(Mono.just(ResponseEntity.ok(List.of(sketch("/events/1", 400, 1_000)))));
+
+        List<RequestOutDTO> stats = client.getStats(START, END, null, true).getBody();
+
+        assertThat(stats).extracting(RequestOutDTO::getUri).containsExactly("/events/1", "/events/2");
+        assertThat((double) stats.get(0).getHits()).isCloseTo(1_000, within(1_000 * 0.05));
+        assertThat(stats.get(1).getHits()).isEqualTo(3);
+        verify(first).getSketchesAsync(START, END, List.of("/events/1"));
+    }
+
+    @Test
+    void skipsSketchesWhenNoUriIsSplit() {
+        stats(first, true, row("/events/1", 10));
+        stats(second, true, row("/events/2", 20));
+
+        assertThat(rows(client.getStats(START, END, null, true))).containsExactly("/events/2=20", "/events/1=10");
+        verify(first, never()).getSketchesAsync(any(), any(), any());
+        verify(second, never()).getSketchesAsync(any(), any(), any());
+    }
+
+    @Test
+    void takesMaximumOfUniqueVisitsOfOneIp() {
+        when(first.getStatsByIpAsync(START, END, null, true, "10.0.0.1"))
+                .thenReturn(Mono.just(ResponseEntity.ok(List.of(row("/events/1", 1)))));
+        when(second.getStatsByIpAsync(START, END, null, true, "10.0.0.1"))
+                .thenReturn(Mono.just(ResponseEntity.ok(List.of(row("/events/1", 1)))));
+
+        assertThat(rows(client.getStatsByIp(START, END, null, true, "10.0.0.1"))).containsExactly("/events/1=1");
+    }
+
+    @Test
+    void failsWhenAShardDoesNotAnswer() {
+        stats(first, false, row("/events/1", 5));
+        when(second.getStatsAsync(START, END, null, false))
+                .thenReturn(Mono.just(ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build()));
+
+        ResponseEntity<List<RequestOutDTO>> response = client.getStats(START, END, null, false);
+
+        assertThat(response.getStatusCode()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+        assertThat(response.getBody()).isNull();
+    }
+
+    @Test
+    void sendsHitsToTheShardOwningTheUri() {
+        RequestDTO hit = new RequestDTO(null, APP, "/events/1", "10.0.0.1", null);
+        HttpStatisticsClient owner = client.shardFor("/events/1");
+
+        client.addRequest(hit);
+
+        verify(owner).addRequest(hit);
+        verify(owner == first ? second : first, never()).addRequest(any());
+    }
+
+    @Test
+    void sendsEveryShardItsPartOfABatch() {
+        List<RequestDTO> hits = IntStream.range(0, 20)
+                .mapToObj(i -> new RequestDTO(null, APP, "/events/" + i, "10.0.0.1", null))
+                .collect(Collectors.toList());
+
+        client.addRequests(hits);
+
+        for (HttpStatisticsClient shard : List.of(first, second)) {
+            List<RequestDTO> part = hits.stream()
+                    .filter(hit -> client.shardFor(hit.getUri()) == shard)
+                    .collect(Collectors.toList());
+            assertThat(part).isNotEmpty();
+            verify(shard).addRequests(part);
+        }
+        verify(first, never()).addRequest(any());
+        verify(second, never()).addRequest(any());
+    }
+
+    @Test
+    void failsTheBatchWhenAShardRejectsItsPart() {
+        List<RequestDTO> hits = List.of(new RequestDTO(null, APP, "/events/1", "10.0.0.1", null));
+        ResponseStatusException unavailable = new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE);
+        doThrow(unavailable).when(client.shardFor("/events/1")).addRequests(hits);
+
+        assertThatThrownBy(() -> client.addRequests(hits)).isSameAs(unavailable);
+    }
+
+    @Test
+    void asksEveryShardForMoreTrendingRowsThanTheLimit() {
+        // the hits of /events/1 are split, neither part is in the top 2 of its shard
+        when(first.getTrendingAsync(15L, 8, null)).thenReturn(Mono.just(ResponseEntity.ok(
+                List.of(row("/events/2", 10), row("/events/3", 9), row("/events/1", 6)))));
+        when(second.getTrendingAsync(15L, 8, null)).thenReturn(Mono.just(ResponseEntity.ok(
+                List.of(row("/events/4", 8), row("/events/5", 7), row("/events/1", 6)))));
+
+        assertThat(rows(client.getTrending(15L, 2, null))).containsExactly("/events/1=12", "/events/2=10");
+    }
+
+    private Map<String, HttpStatisticsClient> shards() {
+        Map<String, HttpStatisticsClient> shards = new LinkedHashMap<>();
+        shards.put("http://stats-1:9090", first);
+        shards.put("http://stats-2:9090", second);
+        return shards;
+    }
+
+    private static void stats(HttpStatisticsClient shard, boolean unique, RequestOutDTO... rows) {
+        when(shard.getStatsAsync(START, END, null, unique)).thenReturn(Mono.just(ResponseEntity.ok(Arrays.asList(rows))));
+    }
+
+    private static RequestOutDTO row(String uri, long hits) {
+        return new RequestOutDTO(APP, uri, hits);
+    }
+
+    private static UniqueSketchDTO sketch(String uri, int from, int to) {
+        HyperLogLog sketch = new HyperLogLog(14);
+        for (int i = from; i < to; i++) {
+            sketch.add("10.0." + (i >> 8) + "." + (i & 0xff));
+        }
+        return new UniqueSketchDTO(APP, uri, sketch.toBytes());
+    }
+
+    private static List<String> rows(ResponseEntity<List<RequestOutDTO>> response) {
+        return response.getBody().stream().map(row -> row.getUri() + "=" + row.getHits()).collect(Collectors.toList());
+    }
+}
@@ -6,6 +6,7 @@ import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
 import org.hibernate.validator.constraints.Length;
+import ru.practicum.validation.IpAddress;
 
 import javax.validation.constraints.NotBlank;
 import javax.validation.constraints.NotNull;
@@ -15,18 +16,20 @@ import java.time.LocalDateTime;
 @NoArgsConstructor
 @AllArgsConstructor
 public class RequestDTO {
-    private Integer id;
+    private Long id;
 
     @NotNull
     @NotBlank
     private String app;
 
     @NotBlank
+    @Length(max = 512)
     private String uri;
 
     @NotNull
     @NotBlank
-    @Length(min = 7, max = 15)
+    @Length(min = 3, max = 45)
+    @IpAddress
     private String ip;
 
     @NotNull
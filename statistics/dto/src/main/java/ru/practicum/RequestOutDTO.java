@@ -1,5 +1,6 @@
 package ru.practicum;
 
+import com.fasterxml.jackson.annotation.JsonInclude;
 import lombok.AllArgsConstructor;
 import lombok.Data;
 import lombok.NoArgsConstructor;
@@ -18,4 +19,14 @@ public class RequestOutDTO {
 
     @NotBlank
     private Long hits;
+
+    /**
+     * Region of the visitors, only set on results grouped by region.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private String region;
+
+    public RequestOutDTO(String app, String uri, Long hits) {
+        this(app, uri, hits, null);
+    }
 }
@@ -0,0 +1,20 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.util.List;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class RequestSeriesDTO {
+    private String app;
+
+    private String uri;
+
+    private Long hits;
+
+    private List<SeriesPointDTO> series;
+}
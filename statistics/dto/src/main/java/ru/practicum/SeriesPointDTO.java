@@ -0,0 +1,25 @@
+package ru.practicum;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import com.fasterxml.jackson.annotation.JsonInclude;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+import java.time.LocalDateTime;
+
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class SeriesPointDTO {
+    @JsonFormat(pattern = "yyyy-MM-dd HH:mm:ss")
+    private LocalDateTime bucket;
+
+    private Long hits;
+
+    /**
+     * Absent for buckets whose visitors are no longer known, e.g. minutes older than the kept raw hits.
+     */
+    @JsonInclude(JsonInclude.Include.NON_NULL)
+    private Long uniqueHits;
+}
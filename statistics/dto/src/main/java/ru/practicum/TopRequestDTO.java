@@ -0,0 +1,21 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Approximate hit count of a heavy hitter: the true count lies in {@code [hits - error, hits]}.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class TopRequestDTO {
+    private String app;
+
+    private String uri;
+
+    private Long hits;
+
+    private Long error;
+}
@@ -0,0 +1,20 @@
+package ru.practicum;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+
+/**
+ * Serialized {@link ru.practicum.sketch.HyperLogLog} of the visitor IPs of an (app, uri), so that unique
+ * counts of several servers can be merged.
+ */
+@Data
+@NoArgsConstructor
+@AllArgsConstructor
+public class UniqueSketchDTO {
+    private String app;
+
+    private String uri;
+
+    private byte[] sketch;
+}
@@ -0,0 +1,59 @@
+package ru.practicum.journal;
+
+import ru.practicum.RequestDTO;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+
+/**
+ * Compact binary form of a hit: epoch second and nanos of the timestamp followed by
+ * app, uri and ip as length-prefixed UTF-8 strings.
+ */
+public final class HitCodec {
+
+    private HitCodec() {
+    }
+
+    public static byte[] encode(RequestDTO hit) {
+        byte[] app = hit.getApp().getBytes(StandardCharsets.UTF_8);
+        byte[] uri = hit.getUri().getBytes(StandardCharsets.UTF_8);
+        byte[] ip = hit.getIp().getBytes(StandardCharsets.UTF_8);
+
+        ByteBuffer buffer = ByteBuffer.allocate(Long.BYTES + Integer.BYTES + 3 * Short.BYTES
+                + app.length + uri.length + ip.length);
+        buffer.putLong(hit.getTimestamp().toEpochSecond(ZoneOffset.UTC));
+        buffer.putInt(hit.getTimestamp().getNano());
+        putString(buffer, app);
+        putString(buffer, uri);
+        putString(buffer, ip);
+        return buffer.array();
+    }
+
+    public static RequestDTO decode(ByteBuffer buffer) {
+        long epochSecond = buffer.getLong();
+        int nano = buffer.getInt();
+
+        RequestDTO hit = new RequestDTO();
+        hit.setTimestamp(LocalDateTime.ofEpochSecond(epochSecond, nano, ZoneOffset.UTC));
+        hit.setApp(getString(buffer));
+        hit.setUri(getString(buffer));
+        hit.setIp(getString(buffer));
+        return hit;
+    }
+
+    private static void putString(ByteBuffer buffer, byte[] value) {
+        if (value.length > 0xFFFF) {
+            throw new IllegalArgumentException("Value is too long to be encoded: " + value.length + " bytes.");
+        }
+        buffer.putShort((short) value.length);
+        buffer.put(value);
+    }
+
+    private static String getString(ByteBuffer buffer) {
+        byte[] value = new byte[Short.toUnsignedInt(buffer.getShort())];
+        buffer.get(value);
+        return new String(value, StandardCharsets.UTF_8);
+    }
+}
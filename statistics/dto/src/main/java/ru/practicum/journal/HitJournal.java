@@ -0,0 +1,234 @@
+package ru.practicum.journal;
+
+import lombok.Getter;
+import lombok.extern.slf4j.Slf4j;
+import ru.practicum.RequestDTO;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.MappedByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.List;
+import java.util.function.BiConsumer;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+import java.util.zip.CRC32;
+
+/**
+ * Append-only journal of hits kept in fixed-size memory-mapped segment files.
+ * <p>
+ * A record is {@code [length][crc32][payload]} with the payload encoded by {@link HitCodec}. The length
+ * is written last and a zero length always follows the newest record, so a record torn by a crash is
+ * never read back. Mapped pages survive a crash of the process; {@code force} additionally flushes every
+ * append to the device.
+ */
+@Slf4j
+public class HitJournal implements Closeable {
+    private static final String SUFFIX = ".seg";
+    private static final int HEADER_BYTES = 2 * Integer.BYTES;
+
+    private final Path dir;
+    private final int segmentBytes;
+    private final boolean force;
+    private long segment;
+    private long oldestSegment;
+    private int writeOffset;
+    private MappedByteBuffer buffer;
+
+    public HitJournal(Path dir, int segmentBytes, boolean force) throws IOException {
+        this.dir = Files.createDirectories(dir);
+        this.segmentBytes = segmentBytes;
+        this.force = force;
+    }
+
+    /**
+     * Replays every record written after {@code from} (from the oldest segment when {@code null}) and
+     * positions the journal for appends after the last valid record. Segments before {@code from} are deleted.
+     */
+    public synchronized void open(Position from, BiConsumer<RequestDTO, Position> consumer) throws IOException {
+        long first = from == null ? 0 : from.getSegment();
+        deleteSegmentsBefore(first);
+
+        List<Long> segments = listSegments();
+        if (segments.isEmpty()) {
+            segment = from == null ? 0 : from.getSegment() + 1;
+            oldestSegment = segment;
+            buffer = map(segment);
+            writeOffset = 0;
+            return;
+        }
+
+        oldestSegment = segments.get(0);
+        for (long id : segments) {
+            MappedByteBuffer mapped = map(id);
+            int offset = from != null && id == from.getSegment() ? from.getOffset() : 0;
+            segment = id;
+            buffer = mapped;
+            writeOffset = replay(mapped, id, offset, Integer.MAX_VALUE, consumer);
+        }
+    }
+
+    /**
+     * Reads up to {@code max} records written after {@code from}, moving on to the following segments
+     * when one ends. Returns the number of records read.
+     */
+    public synchronized int read(Position from, int max, BiConsumer<RequestDTO, Position> consumer) throws IOException {
+        long id = from.getSegment();
+        int offset = from.getOffset();
+        if (id < oldestSegment) {
+            id = oldestSegment;
+            offset = 0;
+        }
+
+        int[] count = {0};
+        while (true) {
+            replay(id == segment ? buffer : map(id), id, offset, max - count[0], (hit, position) -> {
+                count[0]++;
+                consumer.accept(hit, position);
+            });
+            if (count[0] >= max || id >= segment) {
+                return count[0];
+            }
+            id++;
+            offset = 0;
+        }
+    }
+
+    /**
+     * Appends the hits in order and returns the position right after the last one.
+     */
+    public synchronized Position append(List<RequestDTO> hits) {
+        CRC32 crc = new CRC32();
+        for (RequestDTO hit : hits) {
+            byte[] payload = HitCodec.encode(hit);
+            int size = HEADER_BYTES + payload.length;
+            if (size + Integer.BYTES > segmentBytes) {
+                throw new IllegalArgumentException("Hit does not fit into a journal segment: " + size + " bytes.");
+            }
+            if (writeOffset + size + Integer.BYTES > segmentBytes) {
+                rotate();
+            }
+
+            crc.reset();
+            crc.update(payload);
+            ByteBuffer record = buffer.duplicate();
+            record.position(writeOffset + HEADER_BYTES);
+            record.put(payload);
+            buffer.putInt(writeOffset + Integer.BYTES, (int) crc.getValue());
+            buffer.putInt(writeOffset + size, 0);
+            buffer.putInt(writeOffset, payload.length);
+            writeOffset += size;
+        }
+        if (force) {
+            buffer.force();
+        }
+        return new Position(segment, writeOffset);
+    }
+
+    public synchronized void deleteSegmentsBefore(long id) throws IOException {
+        for (long old : listSegments()) {
+            if (old < id) {
+                Files.deleteIfExists(segmentPath(old));
+            }
+        }
+        oldestSegment = Math.max(oldestSegment, Math.min(id, segment));
+    }
+
+    /**
+     * Number of segment files, the one being written included.
+     */
+    public synchronized int getSegmentCount() {
+        return (int) (segment - oldestSegment + 1);
+    }
+
+    public int getSegmentBytes() {
+        return segmentBytes;
+    }
+
+    @Override
+    public synchronized void close() {
+        if (buffer != null) {
+            buffer.force();
+        }
+    }
+
+    private int replay(ByteBuffer mapped, long id, int offset, int max, BiConsumer<RequestDTO, Position> consumer) {
+        CRC32 crc = new CRC32();
+        for (int count = 0; count < max && offset + HEADER_BYTES <= segmentBytes; count++) {
+            int length = mapped.getInt(offset);
+            if (length <= 0) break;
+            if (offset + HEADER_BYTES + length > segmentBytes) {
+                log.warn("Journal segment {} has a broken record at offset {}", id, offset);
+                break;
+            }
+
+            byte[] payload = new byte[length];
+            ByteBuffer record = mapped.duplicate();
+            record.position(offset + HEADER_BYTES);
+            record.get(payload);
+            crc.reset();
+            crc.update(payload);
+            if ((int) crc.getValue() != mapped.getInt(offset + Integer.BYTES)) {
+                log.warn("Journal segment {} has a corrupted record at offset {}", id, offset);
+                break;
+            }
+
+            offset += HEADER_BYTES + length;
+            consumer.accept(HitCodec.decode(ByteBuffer.wrap(payload)), new Position(id, offset));
+        }
+        return offset;
+    }
+
+    private void rotate() {
+        buffer.force();
+        segment++;
+        try {
+            buffer = map(segment);
+        } catch (IOException e) {
+            throw new JournalException("Failed to create journal segment " + segment, e);
+        }
+        writeOffset = 0;
+    }
+
+    private MappedByteBuffer map(long id) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(id),
+                StandardOpenOption.CREATE, StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            return channel.map(FileChannel.MapMode.READ_WRITE, 0, segmentBytes);
+        }
+    }
+
+    private Path segmentPath(long id) {
+        return dir.resolve(String.format("%020d%s", id, SUFFIX));
+    }
+
+    private List<Long> listSegments() throws IOException {
+        try (Stream<Path> files = Files.list(dir)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SUFFIX))
+                    .map(name -> Long.parseLong(name.substring(0, name.length() - SUFFIX.length())))
+                    .sorted()
+                    .collect(Collectors.toList());
+        }
+    }
+
+    @Getter
+    public static class Position implements Comparable<Position> {
+        private final long segment;
+        private final int offset;
+
+        public Position(long segment, int offset) {
+            this.segment = segment;
+            this.offset = offset;
+        }
+
+        @Override
+        public int compareTo(Position other) {
+            int bySegment = Long.compare(segment, other.segment);
+            return bySegment != 0 ? bySegment : Integer.compare(offset, other.offset);
+        }
+    }
+}
@@ -0,0 +1,183 @@
+package ru.practicum.sketch;
+
+import java.nio.ByteBuffer;
+import java.nio.charset.StandardCharsets;
+
+/**
+ * HyperLogLog cardinality sketch over 64-bit hashes. Sketches of different precision can be
+ * merged, the result keeps the lower precision.
+ */
+public class HyperLogLog {
+    public static final int MIN_PRECISION = 4;
+    public static final int MAX_PRECISION = 16;
+
+    private static final byte DENSE = 0;
+    private static final byte SPARSE = 1;
+
+    private int precision;
+    private byte[] registers;
+
+    public HyperLogLog(int precision) {
+        if (precision < MIN_PRECISION || precision > MAX_PRECISION) {
+            throw new IllegalArgumentException("Precision must be between " + MIN_PRECISION + " and " + MAX_PRECISION);
+        }
+        this.precision = precision;
+        this.registers = new byte[1 << precision];
+    }
+
+    /**
+     * Smallest precision whose standard error {@code 1.04 / sqrt(m)} does not exceed the given bound.
+     */
+    public static int precisionFor(double relativeError) {
+        int precision = (int) Math.ceil(2 * Math.log(1.04 / relativeError) / Math.log(2));
+        return Math.max(MIN_PRECISION, Math.min(MAX_PRECISION, precision));
+    }
+
+    public static long hash(String value) {
+        return hash(value.getBytes(StandardCharsets.UTF_8));
+    }
+
+    public static long hash(byte[] bytes) {
+        long hash = 0xcbf29ce484222325L;
+        for (byte b : bytes) {
+            hash ^= b & 0xff;
+            hash *= 0x100000001b3L;
+        }
+        // murmur3 finalizer, FNV alone leaves the high bits poorly mixed for short keys
+        hash ^= hash >>> 33;
+        hash *= 0xff51afd7ed558ccdL;
+        hash ^= hash >>> 33;
+        hash *= 0xc4ceb9fe1a85ec53L;
+        hash ^= hash >>> 33;
+        return hash;
+    }
+
+    public int getPrecision() {
+        return precision;
+    }
+
+    public void add(String value) {
+        addHash(hash(value));
+    }
+
+    public void addHash(long hash) {
+        int index = (int) (hash >>> (64 - precision));
+        byte rank = (byte) (Long.numberOfLeadingZeros((hash << precision) | (1L << (precision - 1))) + 1);
+        if (registers[index] < rank) {
+            registers[index] = rank;
+        }
+    }
+
+    public void merge(HyperLogLog other) {
+        if (other.precision < precision) {
+            fold(other.precision);
+        }
+        byte[] source = other.precision == precision ? other.registers : other.folded(precision);
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] < source[i]) {
+                registers[i] = source[i];
+            }
+        }
+    }
+
+    public long estimate() {
+        int m = registers.length;
+        double sum = 0;
+        int zeros = 0;
+        for (byte register : registers) {
+            sum += 1.0 / (1L << register);
+            if (register == 0) zeros++;
+        }
+
+        double estimate = alpha(m) * m * m / sum;
+        if (estimate <= 2.5 * m && zeros > 0) {
+            estimate = m * Math.log((double) m / zeros);
+        }
+        return Math.round(estimate);
+    }
+
+    public HyperLogLog copy() {
+        HyperLogLog copy = new HyperLogLog(precision);
+        System.arraycopy(registers, 0, copy.registers, 0, registers.length);
+        return copy;
+    }
+
+    /**
+     * Serializes the sketch, sparsely populated sketches are written as (index, rank) pairs.
+     */
+    public byte[] toBytes() {
+        int used = 0;
+        for (byte register : registers) {
+            if (register != 0) used++;
+        }
+
+        if (used * 3 < registers.length) {
+            ByteBuffer buffer = ByteBuffer.allocate(2 + 4 + used * 3);
+            buffer.put(SPARSE).put((byte) precision).putInt(used);
+            for (int i = 0; i < registers.length; i++) {
+                if (registers[i] != 0) {
+                    buffer.putChar((char) i).put(registers[i]);
+                }
+            }
+            return buffer.array();
+        }
+
+        ByteBuffer buffer = ByteBuffer.allocate(2 + registers.length);
+        buffer.put(DENSE).put((byte) precision).put(registers);
+        return buffer.array();
+    }
+
+    public static HyperLogLog fromBytes(byte[] bytes) {
+        ByteBuffer buffer = ByteBuffer.wrap(bytes);
+        byte format = buffer.get();
+        HyperLogLog sketch = new HyperLogLog(buffer.get());
+        if (format == SPARSE) {
+            int used = buffer.getInt();
+            for (int i = 0; i < used; i++) {
+                sketch.registers[buffer.getChar()] = buffer.get();
+            }
+        } else {
+            buffer.get(sketch.registers);
+        }
+        return sketch;
+    }
+
+    private void fold(int target) {
+        registers = folded(target);
+        precision = target;
+    }
+
+    /*
+     * Re-indexes the registers for a lower precision. The index bits that are dropped become the
+     * leading bits of the remaining hash, so the rank can be recomputed exactly from them.
+     */
+    private byte[] folded(int target) {
+        int dropped = precision - target;
+        byte[] result = new byte[1 << target];
+        for (int i = 0; i < registers.length; i++) {
+            if (registers[i] == 0) continue;
+            int low = i & ((1 << dropped) - 1);
+            int rank = low != 0
+                    ? Integer.numberOfLeadingZeros(low) - (32 - dropped) + 1
+                    : dropped + registers[i];
+            int index = i >>> dropped;
+            if (result[index] < rank) {
+                result[index] = (byte) rank;
+            }
+        }
+        return result;
+    }
+
+    private static double alpha(int m) {
+        switch (m) {
+            case 16:
+                return 0.673;
+            case 32:
+                return 0.697;
+            case 64:
+                return 0.709;
+            default:
+                return 0.7213 / (1 + 1.079 / m);
+        }
+    }
+}
@@ -0,0 +1,26 @@
+package ru.practicum.validation;
+
+import javax.validation.Constraint;
+import javax.validation.Payload;
+import java.lang.annotation.Documented;
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * The annotated string is an IPv4 or IPv6 address literal, as accepted by the PostgreSQL {@code inet} type
+ * without a netmask. {@code null} is valid.
+ */
+@Documented
+@Constraint(validatedBy = IpAddressValidator.class)
+@Target({ElementType.FIELD, ElementType.PARAMETER, ElementType.TYPE_USE})
+@Retention(RetentionPolicy.RUNTIME)
+public @interface IpAddress {
+
+    String message() default "must be an IP address";
+
+    Class<?>[] groups() default {};
+
+    Class<? extends Payload>[] payload() default {};
+}
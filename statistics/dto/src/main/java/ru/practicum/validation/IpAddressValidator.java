@@ -0,0 +1,65 @@
+package ru.practicum.validation;
+
+import javax.validation.ConstraintValidator;
+import javax.validation.ConstraintValidatorContext;
+import java.net.InetAddress;
+import java.net.UnknownHostException;
+
+public class IpAddressValidator implements ConstraintValidator<IpAddress, String> {
+
+    @Override
+    public boolean isValid(String value, ConstraintValidatorContext context) {
+        return value == null || toBytes(value) != null;
+    }
+
+    /**
+     * Binary form of an IP address literal: 4 bytes for IPv4 and 16 bytes for IPv6, IPv4-mapped addresses
+     * included, so that equal addresses written differently get equal bytes. Returns {@code null} for anything
+     * else; host names are never resolved.
+     */
+    public static byte[] toBytes(String ip) {
+        if (ip.indexOf(':') < 0) {
+            return parseIpv4(ip);
+        }
+        for (int i = 0; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (Character.digit(c, 16) < 0 && c != ':' && c != '.') return null;
+        }
+        byte[] address;
+        try {
+            // a literal containing ':' is always parsed as IPv6, never looked up
+            address = InetAddress.getByName(ip).getAddress();
+        } catch (UnknownHostException e) {
+            return null;
+        }
+        if (address.length == 16) return address;
+
+        // InetAddress turns ::ffff:a.b.c.d into an IPv4 address, inet keeps it apart from a.b.c.d
+        byte[] mapped = new byte[16];
+        mapped[10] = (byte) 0xff;
+        mapped[11] = (byte) 0xff;
+        System.arraycopy(address, 0, mapped, 12, 4);
+        return mapped;
+    }
+
+    private static byte[] parseIpv4(String ip) {
+        byte[] address = new byte[4];
+        int octet = 0;
+        int value = -1;
+        for (int i = 0; i <= ip.length(); i++) {
+            char c = i < ip.length() ? ip.charAt(i) : '.';
+            if (c == '.') {
+                if (value < 0 || octet == 4) return null;
+                address[octet++] = (byte) value;
+                value = -1;
+            } else if (c >= '0' && c <= '9') {
+                if (value == 0) return null;
+                value = (value < 0 ? 0 : value * 10) + (c - '0');
+                if (value > 255) return null;
+            } else {
+                return null;
+            }
+        }
+        return octet == 4 ? address : null;
+    }
+}
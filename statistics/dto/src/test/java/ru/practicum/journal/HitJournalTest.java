@@ -0,0 +1,181 @@
+package ru.practicum.journal;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import ru.practicum.RequestDTO;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HitJournalTest {
+    private static final int SEGMENT_BYTES = 4096;
+
+    @TempDir
+    Path dir;
+
+    @Test
+    void replaysAppendedHitsAfterReopening() throws IOException {
+        HitJournal journal = open(null, new ArrayList<>());
+        journal.append(hits(0, 3));
+        journal.append(hits(3, 5));
+        journal.close();
+
+        List<RequestDTO> replayed = new ArrayList<>();
+        HitJournal reopened = open(null, replayed);
+        reopened.append(hits(5, 6));
+        reopened.close();
+
+        assertThat(replayed).isEqualTo(hits(0, 5));
+        List<RequestDTO> all = new ArrayList<>();
+        open(null, all);
+        assertThat(all).isEqualTo(hits(0, 6));
+    }
+
+    @Test
+    void stopsAtTornRecordAndOverwritesIt() throws IOException {
+        HitJournal journal = open(null, new ArrayList<>());
+        journal.append(hits(0, 2));
+        HitJournal.Position torn = journal.append(hits(2, 3));
+        journal.append(hits(3, 4));
+        journal.close();
+        // a payload byte of the third record changes, as if the crash hit while it was being written
+        HitJournal.Position second = position(hits(0, 2));
+        corrupt(torn.getSegment(), second.getOffset() + 2 * Integer.BYTES);
+
+        List<RequestDTO> replayed = new ArrayList<>();
+        HitJournal reopened = open(null, replayed);
+        HitJournal.Position end = reopened.append(hits(10, 11));
+        reopened.close();
+
+        List<RequestDTO> expected = Stream.concat(hits(0, 2).stream(), hits(10, 11).stream()).collect(Collectors.toList());
+        assertThat(replayed).isEqualTo(hits(0, 2));
+        assertThat(end.getOffset()).isEqualTo(position(expected).getOffset());
+        List<RequestDTO> all = new ArrayList<>();
+        open(null, all);
+        assertThat(all).isEqualTo(expected);
+    }
+
+    @Test
+    void stopsAtLengthPastTheSegmentEnd() throws IOException {
+        HitJournal journal = open(null, new ArrayList<>());
+        HitJournal.Position first = journal.append(hits(0, 1));
+        journal.append(hits(1, 2));
+        journal.close();
+        writeInt(first.getSegment(), first.getOffset(), SEGMENT_BYTES);
+
+        List<RequestDTO> replayed = new ArrayList<>();
+        open(null, replayed);
+
+        assertThat(replayed).isEqualTo(hits(0, 1));
+    }
+
+    @Test
+    void rotatesSegmentsAndReadsAcrossThem() throws IOException {
+        HitJournal journal = open(null, new ArrayList<>());
+        for (int i = 0; i < 200; i += 10) {
+            journal.append(hits(i, i + 10));
+        }
+        assertThat(journal.getSegmentCount()).isGreaterThan(1);
+
+        List<RequestDTO> read = new ArrayList<>();
+        HitJournal.Position[] last = {new HitJournal.Position(0, 0)};
+        while (read.size() < 200) {
+            int count = journal.read(last[0], 37, (hit, position) -> {
+                read.add(hit);
+                last[0] = position;
+            });
+            assertThat(count).isPositive();
+        }
+
+        assertThat(read).isEqualTo(hits(0, 200));
+        assertThat(journal.read(last[0], 10, (hit, position) -> { })).isZero();
+    }
+
+    @Test
+    void opensFromPositionAndDeletesOlderSegments() throws IOException {
+        HitJournal journal = open(null, new ArrayList<>());
+        for (int i = 0; i < 160; i += 10) {
+            journal.append(hits(i, i + 10));
+        }
+        HitJournal.Position checkpoint = journal.append(Collections.emptyList());
+        journal.append(hits(160, 200));
+        journal.close();
+
+        List<RequestDTO> replayed = new ArrayList<>();
+        open(checkpoint, replayed);
+
+        assertThat(replayed).isEqualTo(hits(160, 200));
+        try (Stream<Path> files = Files.list(dir)) {
+            assertThat(files.map(path -> path.getFileName().toString()))
+                    .allMatch(name -> Long.parseLong(name.substring(0, 20)) >= checkpoint.getSegment());
+        }
+    }
+
+    @Test
+    void rejectsHitsLargerThanASegment() throws IOException {
+        HitJournal journal = new HitJournal(dir, 64, false);
+        journal.open(null, (hit, position) -> { });
+
+        RequestDTO hit = new RequestDTO(null, "ewm-main-service", "/events/" + "1".repeat(64), "10.0.0.1", LocalDateTime.now());
+
+        assertThatThrownBy(() -> journal.append(List.of(hit))).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private HitJournal open(HitJournal.Position from, List<RequestDTO> replayed) throws IOException {
+        HitJournal journal = new HitJournal(dir, SEGMENT_BYTES, false);
+        journal.open(from, (hit, position) -> replayed.add(hit));
+        return journal;
+    }
+
+    /**
+     * Position after {@code hits} appended to an empty journal.
+     */
+    private static HitJournal.Position position(List<RequestDTO> hits) {
+        int offset = 0;
+        for (RequestDTO hit : hits) {
+            offset += 2 * Integer.BYTES + HitCodec.encode(hit).length;
+        }
+        return new HitJournal.Position(0, offset);
+    }
+
+    private void corrupt(long segment, int offset) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.READ, StandardOpenOption.WRITE)) {
+            ByteBuffer buffer = ByteBuffer.allocate(1);
+            channel.read(buffer, offset);
+            buffer.flip();
+            byte value = buffer.get();
+            channel.write(ByteBuffer.wrap(new byte[]{(byte) ~value}), offset);
+        }
+    }
+
+    private void writeInt(long segment, int offset, int value) throws IOException {
+        try (FileChannel channel = FileChannel.open(segmentPath(segment), StandardOpenOption.WRITE)) {
+            channel.write((ByteBuffer) ByteBuffer.allocate(Integer.BYTES).putInt(value).flip(), offset);
+        }
+    }
+
+    private Path segmentPath(long segment) {
+        return dir.resolve(String.format("%020d.seg", segment));
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new RequestDTO(null, "ewm-main-service", "/events/" + i, "10.0.0." + (i % 250),
+                        LocalDateTime.of(2026, 1, 1, 12, 0).plusSeconds(i)))
+                .collect(Collectors.toList());
+    }
+}
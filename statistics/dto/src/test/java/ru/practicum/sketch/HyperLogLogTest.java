@@ -0,0 +1,115 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.assertj.core.api.Assertions.within;
+
+class HyperLogLogTest {
+    private static final int PRECISION = 14;
+    // three standard errors, 1.04 / sqrt(2^14) each
+    private static final double TOLERANCE = 3 * 1.04 / Math.sqrt(1 << PRECISION);
+
+    @ParameterizedTest
+    @ValueSource(ints = {10, 1_000, 50_000, 300_000})
+    void estimatesWithinErrorBound(int cardinality) {
+        HyperLogLog sketch = sketchOf(0, cardinality, PRECISION);
+
+        assertThat((double) sketch.estimate()).isCloseTo(cardinality, within(Math.max(1, cardinality * TOLERANCE)));
+    }
+
+    @Test
+    void ignoresRepeatedValues() {
+        HyperLogLog sketch = sketchOf(0, 5_000, PRECISION);
+        long estimate = sketch.estimate();
+
+        for (int i = 0; i < 5_000; i++) {
+            sketch.add(ip(i));
+        }
+
+        assertThat(sketch.estimate()).isEqualTo(estimate);
+    }
+
+    @Test
+    void mergeEstimatesUnion() {
+        HyperLogLog left = sketchOf(0, 60_000, PRECISION);
+        HyperLogLog right = sketchOf(40_000, 100_000, PRECISION);
+
+        left.merge(right);
+
+        assertThat((double) left.estimate()).isCloseTo(100_000, within(100_000 * TOLERANCE));
+    }
+
+    @Test
+    void mergeIsIdempotent() {
+        HyperLogLog sketch = sketchOf(0, 20_000, PRECISION);
+        byte[] before = sketch.toBytes();
+
+        sketch.merge(sketch.copy());
+
+        assertThat(sketch.toBytes()).isEqualTo(before);
+    }
+
+    @Test
+    void mergeWithLowerPrecisionFoldsToIt() {
+        HyperLogLog high = sketchOf(0, 30_000, PRECISION);
+        HyperLogLog low = sketchOf(0, 30_000, 10);
+        HyperLogLog expected = low.copy();
+
+        low.merge(high);
+        high.merge(expected);
+
+        assertThat(low.getPrecision()).isEqualTo(10);
+        assertThat(high.getPrecision()).isEqualTo(10);
+        // folding recomputes the ranks exactly, as if the values had been added at the lower precision
+        assertThat(low.toBytes()).isEqualTo(expected.toBytes());
+        assertThat(high.toBytes()).isEqualTo(expected.toBytes());
+    }
+
+    @ParameterizedTest
+    @ValueSource(ints = {0, 100, 100_000})
+    void roundTripsThroughBytes(int cardinality) {
+        HyperLogLog sketch = sketchOf(0, cardinality, PRECISION);
+
+        HyperLogLog copy = HyperLogLog.fromBytes(sketch.toBytes());
+
+        assertThat(copy.getPrecision()).isEqualTo(PRECISION);
+        assertThat(copy.estimate()).isEqualTo(sketch.estimate());
+        assertThat(copy.toBytes()).isEqualTo(sketch.toBytes());
+    }
+
+    @Test
+    void writesSparseSketchesCompactly() {
+        HyperLogLog sketch = sketchOf(0, 100, PRECISION);
+
+        assertThat(sketch.toBytes().length).isLessThan(1 << PRECISION);
+    }
+
+    @Test
+    void choosesPrecisionForRelativeError() {
+        assertThat(HyperLogLog.precisionFor(0.02)).isEqualTo(12);
+        assertThat(HyperLogLog.precisionFor(0.5)).isEqualTo(HyperLogLog.MIN_PRECISION);
+        assertThat(HyperLogLog.precisionFor(0.0001)).isEqualTo(HyperLogLog.MAX_PRECISION);
+    }
+
+    @Test
+    void rejectsPrecisionOutOfRange() {
+        assertThatThrownBy(() -> new HyperLogLog(HyperLogLog.MAX_PRECISION + 1))
+                .isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static HyperLogLog sketchOf(int from, int to, int precision) {
+        HyperLogLog sketch = new HyperLogLog(precision);
+        for (int i = from; i < to; i++) {
+            sketch.add(ip(i));
+        }
+        return sketch;
+    }
+
+    private static String ip(int i) {
+        return "10." + (i >>> 16 & 0xff) + "." + (i >>> 8 & 0xff) + "." + (i & 0xff);
+    }
+}
@@ -0,0 +1,123 @@
+import java.net.URI;
+import java.net.URLEncoder;
+import java.net.http.HttpClient;
+import java.net.http.HttpRequest;
+import java.net.http.HttpResponse;
+import java.nio.charset.StandardCharsets;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+import java.util.concurrent.ThreadLocalRandom;
+
+/**
+ * Load generator comparing the servlet and the reactive runtime of the statistics server.
+ * <p>
+ * Run against a started server (default or {@code reactive} profile) with
+ * {@code java bench/StatsBenchmark.java [baseUrl] [concurrency] [requestsPerWorker]}
+ * and compare throughput and p99 latency of {@code POST /hit} and {@code GET /stats}.
+ */
+public class StatsBenchmark {
+    private static final DateTimeFormatter FORMAT = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final int URIS = 1000;
+
+    public static void main(String[] args) throws Exception {
+        String baseUrl = args.length > 0 ? args[0] : "http://localhost:9090";
+        int concurrency = args.length > 1 ? Integer.parseInt(args[1]) : 64;
+        int requests = args.length > 2 ? Integer.parseInt(args[2]) : 500;
+
+        HttpClient client = HttpClient.newBuilder()
+                .connectTimeout(Duration.ofSeconds(5))
+                .executor(Executors.newFixedThreadPool(Math.max(4, concurrency / 4)))
+                .build();
+
+        run("POST /hit", concurrency, requests, () -> hit(client, baseUrl));
+        run("GET /stats", concurrency, requests, () -> stats(client, baseUrl));
+        System.exit(0);
+    }
+
+    private static void run(String name, int concurrency, int requests, Call call) throws Exception {
+        ExecutorService workers = Executors.newFixedThreadPool(concurrency);
+        List<Future<long[]>> futures = new ArrayList<>();
+        long started = System.nanoTime();
+
+        for (int w = 0; w < concurrency; w++) {
+            futures.add(workers.submit(() -> {
+                long[] latencies = new long[requests];
+                for (int i = 0; i < requests; i++) {
+                    long t = System.nanoTime();
+                    int status = call.execute();
+                    latencies[i] = status < 400 ? System.nanoTime() - t : -1;
+                }
+                return latencies;
+            }));
+        }
+
+        long[] all = new long[concurrency * requests];
+        int n = 0;
+        int errors = 0;
+        for (Future<long[]> future : futures) {
+            for (long latency : future.get()) {
+                if (latency < 0) {
+                    errors++;
+                } else {
+                    all[n++] = latency;
+                }
+            }
+        }
+        double seconds = (System.nanoTime() - started) / 1e9;
+        workers.shutdown();
+
+        long[] ok = Arrays.copyOf(all, n);
+        Arrays.sort(ok);
+        System.out.printf("%-11s concurrency=%d requests=%d errors=%d throughput=%.0f req/s p50=%.2f ms p99=%.2f ms%n",
+                name, concurrency, concurrency * requests, errors, (concurrency * requests) / seconds,
+                percentile(ok, 0.50), percentile(ok, 0.99));
+    }
+
+    private static double percentile(long[] sorted, double p) {
+        if (sorted.length == 0) {
+            return Double.NaN;
+        }
+        return sorted[(int) Math.min(sorted.length - 1, Math.ceil(p * sorted.length) - 1)] / 1e6;
+    }
+
+    private static int hit(HttpClient client, String baseUrl) throws Exception {
+        ThreadLocalRandom random = ThreadLocalRandom.current();
+        String body = String.format("{\"app\":\"ewm-main-service\",\"uri\":\"/events/%d\","
+                        + "\"ip\":\"10.0.%d.%d\",\"timestamp\":\"%s\"}",
+                random.nextInt(URIS), random.nextInt(256), random.nextInt(256), LocalDateTime.now().format(FORMAT));
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/hit"))
+                .header("Content-Type", "application/json")
+                .POST(HttpRequest.BodyPublishers.ofString(body))
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static int stats(HttpClient client, String baseUrl) throws Exception {
+        LocalDateTime now = LocalDateTime.now();
+        String query = "?start=" + encode(now.minusHours(1).format(FORMAT))
+                + "&end=" + encode(now.format(FORMAT))
+                + "&uris=/events/" + ThreadLocalRandom.current().nextInt(URIS)
+                + "&unique=" + ThreadLocalRandom.current().nextBoolean();
+        HttpRequest request = HttpRequest.newBuilder(URI.create(baseUrl + "/stats" + query))
+                .header("Accept", "application/json")
+                .GET()
+                .build();
+        return client.send(request, HttpResponse.BodyHandlers.discarding()).statusCode();
+    }
+
+    private static String encode(String value) {
+        return URLEncoder.encode(value, StandardCharsets.UTF_8);
+    }
+
+    @FunctionalInterface
+    private interface Call {
+        int execute() throws Exception;
+    }
+}
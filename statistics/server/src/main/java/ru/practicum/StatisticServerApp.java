@@ -1,11 +1,26 @@
 package ru.practicum;
 
-import org.springframework.boot.SpringApplication;
 import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.scheduling.annotation.EnableScheduling;
 
-@SpringBootApplication
+/**
+ * The server reads {@code stats-server.properties} and scans only its own packages, so that it can also
+ * run embedded in another service next to that service's configuration and beans.
+ */
+@SpringBootApplication(scanBasePackages = {"ru.practicum.config", "ru.practicum.controller", "ru.practicum.mapper",
+        "ru.practicum.repository", "ru.practicum.service", "ru.practicum.tcp"})
+@EntityScan("ru.practicum.model")
+@EnableJpaRepositories("ru.practicum.repository")
+@EnableScheduling
 public class StatisticServerApp {
+    public static final String CONFIG_NAME = "stats-server";
+
     public static void main(String[] args) {
-        SpringApplication.run(StatisticServerApp.class);
+        new SpringApplicationBuilder(StatisticServerApp.class)
+                .properties("spring.config.name=" + CONFIG_NAME)
+                .run(args);
     }
-}
\ No newline at end of file
+}
@@ -0,0 +1,72 @@
+package ru.practicum.cluster;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.ShardedStatisticsClient;
+
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * The endpoints of a statistics server, answered by the shards: hits are routed by URI and queries
+ * are scattered to all shards and merged. Hits are answered with 201 once the shards have them.
+ */
+@RestController
+@Validated
+@RequiredArgsConstructor
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class CoordinatorController {
+    private final ShardedStatisticsClient statisticsClient;
+
+    @PostMapping("/hit")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void addRequest(@Valid @RequestBody RequestDTO requestDto) {
+        statisticsClient.addRequests(Collections.singletonList(requestDto));
+    }
+
+    @PostMapping("/hit/batch")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void addRequests(@RequestBody List<@Valid RequestDTO> requestDtos) {
+        statisticsClient.addRequests(requestDtos);
+    }
+
+    @GetMapping("/stats")
+    public ResponseEntity<List<RequestOutDTO>> getStats(@RequestParam String start,
+                                                        @RequestParam String end,
+                                                        @RequestParam(required = false) List<String> uris,
+                                                        @RequestParam(defaultValue = "false") Boolean unique) {
+
+        return statisticsClient.getStats(start, end, uris, unique);
+    }
+
+    @GetMapping("/stats/trending")
+    public ResponseEntity<List<RequestOutDTO>> getTrending(@RequestParam(defaultValue = "15") Long minutes,
+                                                           @RequestParam(defaultValue = "10") Integer limit,
+                                                           @RequestParam(required = false) String uriPrefix) {
+
+        return statisticsClient.getTrending(minutes, limit, uriPrefix);
+    }
+
+    @GetMapping("/statsByIp")
+    public ResponseEntity<List<RequestOutDTO>> statsByIp(@RequestParam String start,
+                                                         @RequestParam String end,
+                                                         @RequestParam(required = false) List<String> uris,
+                                                         @RequestParam(defaultValue = "false") Boolean unique,
+                                                         @RequestParam String ip) {
+
+        return statisticsClient.getStatsByIp(start, end, uris, unique, ip);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
+    public void handleConstraintViolation(ConstraintViolationException e) {
+    }
+}
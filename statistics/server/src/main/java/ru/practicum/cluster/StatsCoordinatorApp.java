@@ -0,0 +1,25 @@
+package ru.practicum.cluster;
+
+import org.springframework.boot.autoconfigure.SpringBootApplication;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.annotation.Import;
+import ru.practicum.ShardedStatisticsClient;
+import ru.practicum.StatisticsClientConfig;
+
+/**
+ * Coordinator of statistics servers sharded by URI. It serves the hit and query endpoints of a server
+ * through a {@link ShardedStatisticsClient} over {@code stats.cluster.shards} and has no database.
+ * It reads {@code stats-coordinator.properties} and starts from the server jar with
+ * {@code LOADER_MAIN=ru.practicum.cluster.StatsCoordinatorApp}.
+ */
+@SpringBootApplication
+@Import(StatisticsClientConfig.class)
+public class StatsCoordinatorApp {
+    public static final String CONFIG_NAME = "stats-coordinator";
+
+    public static void main(String[] args) {
+        new SpringApplicationBuilder(StatsCoordinatorApp.class)
+                .properties("spring.config.name=" + CONFIG_NAME)
+                .run(args);
+    }
+}
@@ -0,0 +1,65 @@
+package ru.practicum.controller;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
+import org.springframework.web.bind.annotation.*;
+import reactor.core.publisher.Mono;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.service.ReactiveStatService;
+
+import javax.validation.ConstraintViolationException;
+import javax.validation.Valid;
+import java.util.Collections;
+import java.util.List;
+
+@RestController
+@Validated
+@Profile("reactive")
+@RequiredArgsConstructor
+@RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
+public class ReactiveServerController {
+    private final ReactiveStatService statService;
+
+    @PostMapping("/hit")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public Mono<Void> addRequest(@Valid @RequestBody RequestDTO requestDto) {
+        return statService.addRequests(Collections.singletonList(requestDto));
+    }
+
+    @PostMapping("/hit/batch")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public Mono<Void> addRequests(@RequestBody List<@Valid RequestDTO> requestDtos) {
+        return statService.addRequests(requestDtos);
+    }
+
+    @GetMapping("/stats")
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStats(@RequestParam String start,
+                                                              @RequestParam String end,
+                                                              @RequestParam(required = false) List<String> uris,
+                                                              @RequestParam(defaultValue = "false") Boolean unique,
+                                                              @RequestParam(defaultValue = "false") Boolean aggregate,
+                                                              @RequestParam(required = false) String groupBy) {
+
+        return statService.getRequestsWithViews(start, end, uris, unique, aggregate, groupBy);
+    }
+
+    @GetMapping("/statsByIp")
+    public Mono<ResponseEntity<List<RequestOutDTO>>> statsByIp(@RequestParam String start,
+                                                               @RequestParam String end,
+                                                               @RequestParam(required = false) List<String> uris,
+                                                               @RequestParam(defaultValue = "false") Boolean unique,
+                                                               @RequestParam String ip) {
+
+        return statService.getRequestsWithViewsByIp(start, end, uris, unique, ip);
+    }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
+    public void handleConstraintViolation(ConstraintViolationException e) {
+    }
+}
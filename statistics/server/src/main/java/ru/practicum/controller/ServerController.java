@@ -1,19 +1,28 @@
 package ru.practicum.controller;
 
 import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.validation.annotation.Validated;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.RequestDTO;
 import ru.practicum.RequestOutDTO;
+import ru.practicum.RequestSeriesDTO;
+import ru.practicum.TopRequestDTO;
+import ru.practicum.UniqueSketchDTO;
 import ru.practicum.service.StatService;
 
+import javax.validation.ConstraintViolationException;
 import javax.validation.Valid;
 import java.time.format.DateTimeFormatter;
 import java.util.List;
 
 @RestController
+@Validated
+@Profile("!reactive")
 @RequiredArgsConstructor
 @RequestMapping(produces = MediaType.APPLICATION_JSON_VALUE)
 public class ServerController {
@@ -27,13 +36,64 @@ public class ServerController {
         statService.addRequest(requestDto);
     }
 
+    @PostMapping("/hit/batch")
+    @ResponseStatus(code = HttpStatus.CREATED)
+    public void addRequests(@RequestBody List<@Valid RequestDTO> requestDtos) {
+        statService.addRequests(requestDtos);
+    }
+
     @GetMapping("/stats")
     public ResponseEntity<List<RequestOutDTO>> getStats(@RequestParam String start,
                                                         @RequestParam String end,
                                                         @RequestParam(required = false) List<String> uris,
-                                                        @RequestParam(defaultValue = "false") Boolean unique) {
+                                                        @RequestParam(defaultValue = "false") Boolean unique,
+                                                        @RequestParam(defaultValue = "false") Boolean aggregate,
+                                                        @RequestParam(required = false) String groupBy) {
+
+        return statService.getRequestsWithViews(start, end, uris, unique, aggregate, groupBy);
+    }
+
+    @GetMapping(value = "/stats", produces = MediaType.APPLICATION_NDJSON_VALUE)
+    public ResponseEntity<StreamingResponseBody> streamStats(@RequestParam String start,
+                                                             @RequestParam String end,
+                                                             @RequestParam(required = false) List<String> uris,
+                                                             @RequestParam(defaultValue = "false") Boolean unique,
+                                                             @RequestParam(required = false) Integer limit) {
+
+        return statService.streamRequestsWithViews(start, end, uris, unique, limit);
+    }
+
+    @GetMapping("/stats/series")
+    public ResponseEntity<List<RequestSeriesDTO>> getSeries(@RequestParam String start,
+                                                            @RequestParam String end,
+                                                            @RequestParam(required = false) List<String> uris,
+                                                            @RequestParam(defaultValue = "HOUR") String bucket) {
+
+        return statService.getSeries(start, end, uris, bucket);
+    }
+
+    @GetMapping("/stats/trending")
+    public ResponseEntity<List<RequestOutDTO>> getTrending(@RequestParam(defaultValue = "15") Long minutes,
+                                                           @RequestParam(defaultValue = "10") Integer limit,
+                                                           @RequestParam(required = false) String uriPrefix) {
+
+        return statService.getTrending(minutes, limit, uriPrefix);
+    }
+
+    @GetMapping("/stats/top")
+    public ResponseEntity<List<TopRequestDTO>> getTop(@RequestParam String start,
+                                                      @RequestParam String end,
+                                                      @RequestParam(defaultValue = "10") Integer k) {
 
-        return statService.getRequestsWithViews(start, end, uris, unique);
+        return statService.getTop(start, end, k);
+    }
+
+    @GetMapping("/stats/sketches")
+    public ResponseEntity<List<UniqueSketchDTO>> getSketches(@RequestParam String start,
+                                                             @RequestParam String end,
+                                                             @RequestParam(required = false) List<String> uris) {
+
+        return statService.getUniqueSketches(start, end, uris);
     }
 
     @GetMapping("/statsByIp")
@@ -45,4 +105,9 @@ public class ServerController {
 
         return statService.getRequestsWithViewsByIp(start, end, uris, unique, ip);
     }
+
+    @ExceptionHandler(ConstraintViolationException.class)
+    @ResponseStatus(code = HttpStatus.BAD_REQUEST)
+    public void handleConstraintViolation(ConstraintViolationException e) {
+    }
 }
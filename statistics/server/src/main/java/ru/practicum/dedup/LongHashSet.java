@@ -0,0 +1,98 @@
+package ru.practicum.dedup;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing set of non-zero {@code long} values, without boxing.
+ * Not thread-safe.
+ */
+public class LongHashSet {
+    private static final long EMPTY = 0;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private final long[] values;
+    private final int maxSize;
+    private int size;
+
+    /**
+     * Creates a set that holds up to {@code maxSize} values; it never grows beyond that.
+     */
+    public LongHashSet(int maxSize) {
+        this.values = new long[Integer.highestOneBit(Math.max(4, (int) (maxSize / LOAD_FACTOR)) - 1) << 1];
+        this.maxSize = maxSize;
+    }
+
+    /**
+     * Adds the value unless the set is full.
+     *
+     * @return {@code false} if the value was already present
+     */
+    public boolean add(long value) {
+        if (value == EMPTY) {
+            throw new IllegalArgumentException("Value must not be zero.");
+        }
+        int index = indexOf(value);
+        if (values[index] == value) return false;
+        if (size < maxSize) {
+            values[index] = value;
+            size++;
+        }
+        return true;
+    }
+
+    /**
+     * Removes the value, moving back the values probed past it so that lookups need no tombstones.
+     *
+     * @return {@code false} if the value was not present
+     */
+    public boolean remove(long value) {
+        int mask = values.length - 1;
+        int index = indexOf(value);
+        if (values[index] != value || value == EMPTY) return false;
+
+        int next = index;
+        while (true) {
+            next = (next + 1) & mask;
+            if (values[next] == EMPTY) break;
+            int home = home(values[next], mask);
+            // keep the value where it is while its home lies cyclically in (index, next]
+            if (index <= next ? (index < home && home <= next) : (index < home || home <= next)) continue;
+            values[index] = values[next];
+            index = next;
+        }
+        values[index] = EMPTY;
+        size--;
+        return true;
+    }
+
+    public boolean contains(long value) {
+        return values[indexOf(value)] == value;
+    }
+
+    public boolean isFull() {
+        return size >= maxSize;
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(values, EMPTY);
+        size = 0;
+    }
+
+    private int indexOf(long value) {
+        int mask = values.length - 1;
+        int index = home(value, mask);
+        while (values[index] != EMPTY && values[index] != value) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int home(long value, int mask) {
+        return (int) (value ^ (value >>> 32)) & mask;
+    }
+}
@@ -0,0 +1,119 @@
+package ru.practicum.embedded;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.server.ResponseStatusException;
+import reactor.core.publisher.Mono;
+import reactor.core.scheduler.Schedulers;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.StatisticsClient;
+import ru.practicum.service.StatService;
+
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * {@link StatisticsClient} calling {@link StatService} of a statistics server started in the same JVM.
+ * <p>
+ * Requests skip HTTP and serialization but keep the semantics of the remote client: hits are validated
+ * like on {@code /hit}, query parameters get the defaults of the server endpoints and failures come back
+ * as responses instead of exceptions. The client owns the server context and closes it.
+ */
+@Slf4j
+public class EmbeddedStatisticsClient implements StatisticsClient {
+    private static final long DEFAULT_TRENDING_MINUTES = 15;
+    private static final int DEFAULT_TRENDING_LIMIT = 10;
+
+    private final ConfigurableApplicationContext context;
+    private final StatService statService;
+    private final Validator validator;
+
+    public EmbeddedStatisticsClient(ConfigurableApplicationContext context) {
+        this.context = context;
+        this.statService = context.getBean(StatService.class);
+        this.validator = context.getBean(Validator.class);
+    }
+
+    @Override
+    public void addRequest(RequestDTO requestDto) {
+        if (!validator.validate(requestDto).isEmpty()) {
+            log.warn("Dropped an invalid hit: {}", requestDto);
+            return;
+        }
+        try {
+            statService.addRequest(requestDto);
+        } catch (RuntimeException e) {
+            log.warn("Failed to record a hit: {}", e.getMessage());
+        }
+    }
+
+    @Override
+    public Mono<Void> addRequestAsync(RequestDTO requestDto) {
+        return Mono.<Void>fromRunnable(() -> addRequest(requestDto)).subscribeOn(Schedulers.boundedElastic());
+    }
+
+    @Override
+    public boolean flush(Duration timeout) {
+        // hits are recorded before addRequest returns
+        return true;
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStats(String start, String end, List<String> uris, Boolean unique) {
+        return query(() -> statService.getRequestsWithViews(start, end, uris, Boolean.TRUE.equals(unique), false, null));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsAsync(String start, String end, List<String> uris,
+                                                                   Boolean unique) {
+        return async(() -> getStats(start, end, uris, unique));
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getStatsByIp(String start, String end, List<String> uris,
+                                                            Boolean unique, String ip) {
+        return query(() -> statService.getRequestsWithViewsByIp(start, end, uris, Boolean.TRUE.equals(unique), ip));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getStatsByIpAsync(String start, String end, List<String> uris,
+                                                                       Boolean unique, String ip) {
+        return async(() -> getStatsByIp(start, end, uris, unique, ip));
+    }
+
+    @Override
+    public ResponseEntity<List<RequestOutDTO>> getTrending(Long minutes, Integer limit, String uriPrefix) {
+        return query(() -> statService.getTrending(minutes != null ? minutes : DEFAULT_TRENDING_MINUTES,
+                limit != null ? limit : DEFAULT_TRENDING_LIMIT, uriPrefix));
+    }
+
+    @Override
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getTrendingAsync(Long minutes, Integer limit, String uriPrefix) {
+        return async(() -> getTrending(minutes, limit, uriPrefix));
+    }
+
+    @Override
+    public void close() {
+        context.close();
+    }
+
+    private static ResponseEntity<List<RequestOutDTO>> query(Supplier<ResponseEntity<List<RequestOutDTO>>> call) {
+        try {
+            return call.get();
+        } catch (ResponseStatusException e) {
+            return ResponseEntity.status(e.getStatus()).build();
+        } catch (RuntimeException e) {
+            log.warn("Statistics are unavailable: {}", e.getMessage());
+            return ResponseEntity.status(HttpStatus.SERVICE_UNAVAILABLE).build();
+        }
+    }
+
+    private static <T> Mono<T> async(Supplier<T> call) {
+        return Mono.fromSupplier(call).subscribeOn(Schedulers.boundedElastic());
+    }
+}
@@ -0,0 +1,105 @@
+package ru.practicum.embedded;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.boot.SpringApplication;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.boot.context.logging.LoggingApplicationListener;
+import org.springframework.boot.context.properties.bind.Bindable;
+import org.springframework.boot.context.properties.bind.Binder;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.core.env.ConfigurableEnvironment;
+import org.springframework.core.env.MapPropertySource;
+import org.springframework.core.env.MutablePropertySources;
+import org.springframework.core.env.StandardEnvironment;
+import ru.practicum.StatisticServerApp;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Runs the statistics server inside the importing service when {@code stats.client.mode=embedded}.
+ * <p>
+ * The server gets an application context of its own, without a web server, configured by
+ * {@code stats-server.properties} overridden by the host properties under {@code stats.embedded}, e.g.
+ * {@code stats.embedded.spring.datasource.url}. The host environment is not inherited, so the server
+ * never picks up the datasource of the host by accident. Metrics go to the meter registry of the host.
+ * <p>
+ * The statistics schema script drops its tables on startup, {@code requests} among them, so the server
+ * refuses to start on the database and schema of the host.
+ */
+@Configuration
+@ConditionalOnProperty(name = "stats.client.mode", havingValue = "embedded")
+public class EmbeddedStatisticsConfig {
+    private static final String PREFIX = "stats.embedded";
+    private static final String URL = "spring.datasource.url";
+    private static final String SCHEMA = "spring.datasource.hikari.schema";
+    private static final String SCHEMA_PARAMETER = "currentSchema=";
+
+    @Bean
+    public EmbeddedStatisticsClient statisticsClient(ConfigurableEnvironment environment,
+                                                     ObjectProvider<MeterRegistry> meterRegistry) {
+        Map<String, Object> properties = new HashMap<>(Binder.get(environment)
+                .bind(PREFIX, Bindable.mapOf(String.class, String.class))
+                .orElse(Collections.emptyMap()));
+        checkSeparateDatabase(environment, properties);
+        properties.put("spring.config.name", StatisticServerApp.CONFIG_NAME);
+        properties.put("spring.main.web-application-type", "none");
+        properties.put("spring.main.banner-mode", "off");
+
+        StandardEnvironment serverEnvironment = new StandardEnvironment();
+        MutablePropertySources sources = serverEnvironment.getPropertySources();
+        sources.remove(StandardEnvironment.SYSTEM_ENVIRONMENT_PROPERTY_SOURCE_NAME);
+        sources.remove(StandardEnvironment.SYSTEM_PROPERTIES_PROPERTY_SOURCE_NAME);
+        sources.addFirst(new MapPropertySource(PREFIX, properties));
+
+        SpringApplication application = new SpringApplicationBuilder(StatisticServerApp.class)
+                .main(StatisticServerApp.class)
+                .environment(serverEnvironment)
+                .registerShutdownHook(false)
+                .initializers(context -> meterRegistry.ifAvailable(registry ->
+                        context.getBeanFactory().registerSingleton("meterRegistry", registry)))
+                .build();
+        // logging belongs to the host, re-initializing it would drop the host's levels
+        application.setListeners(application.getListeners().stream()
+                .filter(listener -> !(listener instanceof LoggingApplicationListener))
+                .collect(Collectors.toList()));
+        return new EmbeddedStatisticsClient(application.run());
+    }
+
+    static void checkSeparateDatabase(ConfigurableEnvironment environment, Map<String, Object> properties) {
+        String url = (String) properties.get(URL);
+        if (url == null) {
+            throw new IllegalStateException(PREFIX + "." + URL + " must be set in embedded mode.");
+        }
+        String hostUrl = environment.getProperty(URL);
+        if (hostUrl != null && database(hostUrl).equalsIgnoreCase(database(url))
+                && schema(hostUrl, environment.getProperty(SCHEMA)).equals(schema(url, (String) properties.get(SCHEMA)))) {
+            throw new IllegalStateException("The embedded statistics server would recreate its tables in the host "
+                    + "database, point " + PREFIX + "." + URL + " at another database or schema.");
+        }
+    }
+
+    private static String database(String url) {
+        int query = url.indexOf('?');
+        return query < 0 ? url : url.substring(0, query);
+    }
+
+    private static String schema(String url, String schema) {
+        if (schema != null) return schema;
+        int query = url.indexOf('?');
+        if (query >= 0) {
+            for (String parameter : url.substring(query + 1).split("&")) {
+                if (parameter.startsWith(SCHEMA_PARAMETER)) {
+                    // the first schema of the search path is where the unqualified tables are created
+                    return parameter.substring(SCHEMA_PARAMETER.length()).split(",|%2C")[0];
+                }
+            }
+        }
+        return "public";
+    }
+}
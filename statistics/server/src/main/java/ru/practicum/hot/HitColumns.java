@@ -0,0 +1,60 @@
+package ru.practicum.hot;
+
+import java.util.Arrays;
+
+/**
+ * Hits of one time bucket stored column by column in primitive arrays: second within the bucket,
+ * app id, uri id and a 64-bit hash of the IP. Appends are synchronized; a reader scans the prefix
+ * written before it started without holding the lock, written slots never change.
+ */
+public class HitColumns {
+    private static final int INITIAL_CAPACITY = 256;
+
+    private int[] seconds = new int[INITIAL_CAPACITY];
+    private int[] appIds = new int[INITIAL_CAPACITY];
+    private int[] uriIds = new int[INITIAL_CAPACITY];
+    private long[] ips = new long[INITIAL_CAPACITY];
+    private int size;
+
+    public synchronized void add(int second, int appId, int uriId, long ip) {
+        if (size == seconds.length) {
+            int capacity = size * 2;
+            seconds = Arrays.copyOf(seconds, capacity);
+            appIds = Arrays.copyOf(appIds, capacity);
+            uriIds = Arrays.copyOf(uriIds, capacity);
+            ips = Arrays.copyOf(ips, capacity);
+        }
+        seconds[size] = second;
+        appIds[size] = appId;
+        uriIds[size] = uriId;
+        ips[size] = ip;
+        size++;
+    }
+
+    public synchronized int size() {
+        return size;
+    }
+
+    public void forEach(HitConsumer consumer) {
+        int[] seconds;
+        int[] appIds;
+        int[] uriIds;
+        long[] ips;
+        int size;
+        synchronized (this) {
+            seconds = this.seconds;
+            appIds = this.appIds;
+            uriIds = this.uriIds;
+            ips = this.ips;
+            size = this.size;
+        }
+        for (int i = 0; i < size; i++) {
+            consumer.accept(seconds[i], appIds[i], uriIds[i], ips[i]);
+        }
+    }
+
+    @FunctionalInterface
+    public interface HitConsumer {
+        void accept(int second, int appId, int uriId, long ip);
+    }
+}
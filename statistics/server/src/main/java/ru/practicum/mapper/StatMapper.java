@@ -12,8 +12,10 @@ public interface StatMapper {
     StatMapper INSTANCE = Mappers.getMapper(StatMapper.class);
 
     @Mapping(source = "app.name", target = "app")
+    @Mapping(source = "uri.uri", target = "uri")
     RequestDTO toRequestDto(Request request);
 
     @Mapping(source = "app", target = "app.name")
+    @Mapping(source = "uri", target = "uri.uri")
     Request toRequest(RequestDTO requestDto);
 }
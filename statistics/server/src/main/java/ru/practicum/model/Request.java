@@ -4,6 +4,7 @@ import lombok.AllArgsConstructor;
 import lombok.Getter;
 import lombok.NoArgsConstructor;
 import lombok.Setter;
+import org.hibernate.annotations.ColumnTransformer;
 
 import javax.persistence.*;
 import javax.validation.constraints.NotNull;
@@ -18,25 +19,27 @@ import java.time.LocalDateTime;
 public class Request {
     @Id
     @GeneratedValue(strategy = GenerationType.IDENTITY)
-    private Integer id;
+    private Long id;
 
     @ManyToOne
     @JoinColumn(name = "app_id")
     private Application app;
 
-    @NotNull
-    private String uri;
+    @ManyToOne
+    @JoinColumn(name = "uri_id")
+    private UriEntry uri;
 
     @NotNull
+    @ColumnTransformer(read = "host(ip)", write = "CAST(? AS inet)")
     private String ip;
 
     @NotNull
     @Column(name = "time_stamp")
     private LocalDateTime timestamp;
 
-    public Request(Integer id, String uri, String ip, LocalDateTime timestamp, Integer appId, String name) {
+    public Request(Long id, String uri, String ip, LocalDateTime timestamp, Integer appId, String name) {
         this.id = id;
-        this.uri = uri;
+        this.uri = new UriEntry(uri);
         this.ip = ip;
         this.timestamp = timestamp;
         this.app = new Application(appId, name);
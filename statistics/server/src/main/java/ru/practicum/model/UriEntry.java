@@ -0,0 +1,26 @@
+package ru.practicum.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+import lombok.NoArgsConstructor;
+import lombok.Setter;
+
+import javax.persistence.*;
+
+@Entity
+@Table(name = "uris")
+@Getter
+@Setter
+@NoArgsConstructor
+@AllArgsConstructor
+public class UriEntry {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Integer id;
+
+    private String uri;
+
+    public UriEntry(String uri) {
+        this.uri = uri;
+    }
+}
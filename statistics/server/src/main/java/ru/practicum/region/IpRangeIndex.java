@@ -0,0 +1,148 @@
+package ru.practicum.region;
+
+import java.io.BufferedReader;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Immutable map from IPv4 address ranges to regions, kept in sorted primitive arrays of 12 bytes per
+ * range. A lookup parses the address in place and binary searches the range starts, it does not allocate.
+ * IPv6 addresses other than IPv4-mapped ones have no region.
+ */
+public class IpRangeIndex {
+    public static final IpRangeIndex EMPTY = new IpRangeIndex(new int[0], new int[0], new int[0], new String[0]);
+    // length of requests.region
+    private static final int MAX_REGION_LENGTH = 64;
+    private static final String MAPPED_PREFIX = "::ffff:";
+
+    // addresses with the sign bit flipped, so that signed order is address order
+    private final int[] starts;
+    private final int[] ends;
+    private final int[] regionIds;
+    private final String[] regions;
+
+    private IpRangeIndex(int[] starts, int[] ends, int[] regionIds, String[] regions) {
+        this.starts = starts;
+        this.ends = ends;
+        this.regionIds = regionIds;
+        this.regions = regions;
+    }
+
+    /**
+     * Reads {@code start,end,region} lines with dotted addresses, both ends inclusive; blank lines and
+     * lines starting with {@code #} are skipped. Ranges must not overlap and regions must not be longer
+     * than {@value #MAX_REGION_LENGTH} characters.
+     */
+    public static IpRangeIndex load(Path file) throws IOException {
+        List<long[]> ranges = new ArrayList<>();
+        Map<String, Integer> regionIds = new HashMap<>();
+        List<String> regions = new ArrayList<>();
+        try (BufferedReader reader = Files.newBufferedReader(file)) {
+            String line;
+            int lineNumber = 0;
+            while ((line = reader.readLine()) != null) {
+                lineNumber++;
+                line = line.trim();
+                if (line.isEmpty() || line.startsWith("#")) continue;
+
+                String[] fields = line.split(",");
+                long start = fields.length == 3 ? parse(fields[0].trim()) : -1;
+                long end = fields.length == 3 ? parse(fields[1].trim()) : -1;
+                if (start < 0 || end < start || fields[2].isBlank()) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": expected start,end,region but got " + line);
+                }
+                String name = fields[2].trim();
+                if (name.length() > MAX_REGION_LENGTH) {
+                    throw new IllegalArgumentException(file + ":" + lineNumber + ": region longer than "
+                            + MAX_REGION_LENGTH + " characters: " + name);
+                }
+                int regionId = regionIds.computeIfAbsent(name, region -> {
+                    regions.add(region);
+                    return regions.size() - 1;
+                });
+                ranges.add(new long[]{start, end, regionId});
+            }
+        }
+        ranges.sort(Comparator.comparingLong(range -> range[0]));
+
+        int[] starts = new int[ranges.size()];
+        int[] ends = new int[ranges.size()];
+        int[] ids = new int[ranges.size()];
+        for (int i = 0; i < ranges.size(); i++) {
+            long[] range = ranges.get(i);
+            if (i > 0 && range[0] <= ranges.get(i - 1)[1]) {
+                throw new IllegalArgumentException(file + ": range starting at " + format(range[0]) + " overlaps the previous one");
+            }
+            starts[i] = flip(range[0]);
+            ends[i] = flip(range[1]);
+            ids[i] = (int) range[2];
+        }
+        return new IpRangeIndex(starts, ends, ids, regions.toArray(new String[0]));
+    }
+
+    /**
+     * @return the region of {@code ip}, {@code null} when no range contains it or it is not an IPv4 address
+     */
+    public String find(String ip) {
+        if (starts.length == 0 || ip == null) return null;
+        long address = parse(ip);
+        if (address < 0) return null;
+
+        int key = flip(address);
+        int index = Arrays.binarySearch(starts, key);
+        if (index < 0) index = -index - 2;
+        if (index < 0 || key > ends[index]) return null;
+        return regions[regionIds[index]];
+    }
+
+    public int size() {
+        return starts.length;
+    }
+
+    public int getRegionCount() {
+        return regions.length;
+    }
+
+    /**
+     * Dotted IPv4 address, possibly IPv4-mapped IPv6 written as {@code ::ffff:a.b.c.d}, as an unsigned
+     * 32-bit value; {@code -1} if malformed.
+     */
+    static long parse(String ip) {
+        long address = 0;
+        int octet = 0;
+        int digits = 0;
+        int dots = 0;
+        int from = ip.regionMatches(true, 0, MAPPED_PREFIX, 0, MAPPED_PREFIX.length()) ? MAPPED_PREFIX.length() : 0;
+        for (int i = from; i < ip.length(); i++) {
+            char c = ip.charAt(i);
+            if (c >= '0' && c <= '9') {
+                octet = octet * 10 + (c - '0');
+                if (++digits > 3 || octet > 255) return -1;
+            } else if (c == '.' && digits > 0 && dots < 3) {
+                address = address << 8 | octet;
+                octet = 0;
+                digits = 0;
+                dots++;
+            } else {
+                return -1;
+            }
+        }
+        if (dots != 3 || digits == 0) return -1;
+        return address << 8 | octet;
+    }
+
+    private static int flip(long address) {
+        return (int) address ^ Integer.MIN_VALUE;
+    }
+
+    private static String format(long address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xff) + "." + (address >>> 8 & 0xff) + "." + (address & 0xff);
+    }
+}
@@ -0,0 +1,137 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.service.RegionService;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+@Repository
+@RequiredArgsConstructor
+public class HitJdbcRepository {
+    private static final String INSERT_REQUEST = "INSERT INTO requests (app_id, uri_id, ip, time_stamp, region) " +
+            "VALUES (?, ?, CAST(? AS inet), ?, ?)";
+    private static final String COUNT_HITS = "SELECT a.name AS app, u.uri AS uri, COUNT(r.ip) AS hits " +
+            "FROM requests AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.time_stamp >= :from AND r.time_stamp < :to %s" +
+            "GROUP BY a.name, u.uri";
+    private static final String COUNT_BY_REGION = "SELECT a.name AS app, u.uri AS uri, " +
+            "COALESCE(r.region, '" + RegionService.UNKNOWN + "') AS region, %s AS hits " +
+            "FROM requests AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.time_stamp >= :from AND r.time_stamp < :to %s" +
+            "GROUP BY a.name, u.uri, 3 " +
+            "ORDER BY hits DESC";
+    private static final String DISTINCT_IPS = "SELECT DISTINCT a.name AS app, u.uri AS uri, host(r.ip) AS ip " +
+            "FROM requests AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.time_stamp >= :from AND r.time_stamp < :to %s";
+    private static final String COUNT_SERIES = "SELECT a.name AS app, u.uri AS uri, " +
+            "date_trunc('%s', r.time_stamp) AS bucket, %s AS hits " +
+            "FROM requests AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.time_stamp >= :from AND r.time_stamp < :to %s" +
+            "GROUP BY a.name, u.uri, 3";
+
+    private final JdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate namedJdbcTemplate;
+
+    @Value("${stats.ingest.jdbc-batch-size:500}")
+    private int batchSize;
+
+    /**
+     * Writes hits with JDBC batching; together with {@code reWriteBatchedInserts=true} on the
+     * PostgreSQL driver every batch is sent as a single multi-row insert.
+     */
+    public void insertAll(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds,
+                          Function<String, String> regions) {
+        jdbcTemplate.batchUpdate(INSERT_REQUEST, hits, batchSize, (ps, hit) -> {
+            ps.setInt(1, appIds.get(hit.getApp()));
+            ps.setInt(2, uriIds.get(hit.getUri()));
+            ps.setString(3, hit.getIp());
+            ps.setTimestamp(4, Timestamp.valueOf(hit.getTimestamp()));
+            ps.setString(5, regions.apply(hit.getIp()));
+        });
+    }
+
+    public List<RequestOutDTO> countHits(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        MapSqlParameterSource params = range(from, to);
+        return namedJdbcTemplate.query(String.format(COUNT_HITS, uriFilter(uriIds, params)), params,
+                (rs, rowNum) -> new RequestOutDTO(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    /**
+     * Exact hit or distinct IP counts per (app, uri) over raw hits in {@code [from, to)}, optionally of one
+     * {@code ip}, most hit first.
+     */
+    public List<RequestOutDTO> countRawHits(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, boolean unique,
+                                            String ip) {
+        StatQueries.Query query = StatQueries.rawHits(from, to, uriIds, unique, ip, null);
+        return namedJdbcTemplate.query(query.getSql(), query.getParams(),
+                (rs, rowNum) -> new RequestOutDTO(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    /**
+     * Raw hit or distinct IP counts per (app, uri, region) in {@code [from, to)}, most hit first.
+     */
+    public List<RequestOutDTO> countByRegion(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, boolean unique) {
+        MapSqlParameterSource params = range(from, to);
+        String count = unique ? "COUNT(DISTINCT r.ip)" : "COUNT(r.ip)";
+        return namedJdbcTemplate.query(String.format(COUNT_BY_REGION, count, uriFilter(uriIds, params)), params,
+                (rs, rowNum) -> new RequestOutDTO(rs.getString("app"), rs.getString("uri"), rs.getLong("hits"),
+                        rs.getString("region")));
+    }
+
+    public void forEachDistinctIp(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, IpConsumer consumer) {
+        MapSqlParameterSource params = range(from, to);
+        namedJdbcTemplate.query(String.format(DISTINCT_IPS, uriFilter(uriIds, params)), params,
+                rs -> {
+                    consumer.accept(rs.getString("app"), rs.getString("uri"), rs.getString("ip"));
+                });
+    }
+
+    /**
+     * Raw hit or distinct IP counts per (app, uri) and {@code date_trunc(field, time_stamp)} in {@code [from, to)}.
+     */
+    public void countSeries(String field, boolean unique, LocalDateTime from, LocalDateTime to, List<Integer> uriIds,
+                            RollupRepository.SeriesConsumer consumer) {
+        MapSqlParameterSource params = range(from, to);
+        String count = unique ? "COUNT(DISTINCT r.ip)" : "COUNT(r.ip)";
+        namedJdbcTemplate.query(String.format(COUNT_SERIES, field, count, uriFilter(uriIds, params)), params,
+                rs -> {
+                    consumer.accept(rs.getString("app"), rs.getString("uri"),
+                            rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+                });
+    }
+
+    private static MapSqlParameterSource range(LocalDateTime from, LocalDateTime to) {
+        return new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+    }
+
+    private static String uriFilter(List<Integer> uriIds, MapSqlParameterSource params) {
+        if (uriIds == null) return "";
+        params.addValue("uriIds", uriIds);
+        return "AND r.uri_id IN (:uriIds) ";
+    }
+
+    public interface IpConsumer {
+        void accept(String app, String uri, String ip);
+    }
+}
@@ -0,0 +1,32 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.journal.HitJournal;
+
+import java.util.Optional;
+
+/**
+ * Position up to which the hit journal has been loaded into the database. It is saved in the
+ * same transaction as the drained hits, so a hit is never loaded twice or skipped after a restart.
+ */
+@Repository
+@RequiredArgsConstructor
+public class JournalCheckpointRepository {
+    private static final String FIND = "SELECT segment, position FROM journal_checkpoint WHERE id = 1";
+    private static final String SAVE = "INSERT INTO journal_checkpoint (id, segment, position) VALUES (1, ?, ?) " +
+            "ON CONFLICT (id) DO UPDATE SET segment = EXCLUDED.segment, position = EXCLUDED.position";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public Optional<HitJournal.Position> find() {
+        return jdbcTemplate.query(FIND, (rs, rowNum) -> new HitJournal.Position(rs.getLong("segment"), rs.getInt("position")))
+                .stream()
+                .findFirst();
+    }
+
+    public void save(HitJournal.Position position) {
+        jdbcTemplate.update(SAVE, position.getSegment(), position.getOffset());
+    }
+}
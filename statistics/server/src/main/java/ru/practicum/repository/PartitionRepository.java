@@ -0,0 +1,54 @@
+package ru.practicum.repository;
+
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import javax.sql.DataSource;
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * DDL for the time-range partitions of {@code requests}. Statements run without the stats query timeout,
+ * dropping a partition or deleting expired rollups may take longer than any query should.
+ */
+@Repository
+public class PartitionRepository {
+    private static final String FIND_PARTITIONS = "SELECT c.relname FROM pg_inherits AS i " +
+            "JOIN pg_class AS c ON c.oid = i.inhrelid " +
+            "WHERE i.inhparent = 'requests'::regclass";
+    private static final String CREATE_PARTITION = "CREATE TABLE IF NOT EXISTS %s PARTITION OF requests " +
+            "FOR VALUES FROM ('%s') TO ('%s')";
+    private static final String DROP_PARTITION = "DROP TABLE IF EXISTS %s";
+    private static final String DELETE_MINUTE_ROLLUPS = "DELETE FROM requests_minute WHERE bucket < ?";
+    private static final String DELETE_DEFAULT_HITS = "DELETE FROM requests_default WHERE time_stamp < ?";
+
+    private final JdbcTemplate jdbcTemplate;
+
+    public PartitionRepository(DataSource dataSource) {
+        this.jdbcTemplate = new JdbcTemplate(dataSource);
+    }
+
+    public List<String> findPartitionNames() {
+        return jdbcTemplate.queryForList(FIND_PARTITIONS, String.class);
+    }
+
+    public void createPartition(String name, LocalDateTime from, LocalDateTime to) {
+        jdbcTemplate.execute(String.format(CREATE_PARTITION, name, Timestamp.valueOf(from), Timestamp.valueOf(to)));
+    }
+
+    public void dropPartition(String name) {
+        jdbcTemplate.execute(String.format(DROP_PARTITION, name));
+    }
+
+    /**
+     * Hits outside every range partition land in {@code requests_default}, which is never dropped.
+     */
+    public int deleteDefaultHitsBefore(LocalDateTime timestamp) {
+        return jdbcTemplate.update(DELETE_DEFAULT_HITS, Timestamp.valueOf(timestamp));
+    }
+
+    public int deleteMinuteRollupsBefore(LocalDateTime bucket) {
+        return jdbcTemplate.update(DELETE_MINUTE_ROLLUPS, Timestamp.valueOf(bucket));
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.repository;
+
+import io.r2dbc.spi.Statement;
+import lombok.RequiredArgsConstructor;
+import org.springframework.context.annotation.Profile;
+import org.springframework.r2dbc.core.DatabaseClient;
+import org.springframework.stereotype.Repository;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.temporal.ChronoUnit;
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+
+/**
+ * Non-blocking access to the statistics tables used by the reactive runtime.
+ */
+@Repository
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveHitRepository {
+    private static final String RESOLVE_APP = "INSERT INTO application (name) VALUES (:name) " +
+            "ON CONFLICT (name) DO UPDATE SET name = EXCLUDED.name RETURNING id";
+    private static final String RESOLVE_URI = "INSERT INTO uris (uri) VALUES (:uri) " +
+            "ON CONFLICT (uri) DO UPDATE SET uri = EXCLUDED.uri RETURNING id";
+    private static final String FIND_URIS = "SELECT id FROM uris WHERE uri IN (:uris)";
+    private static final String INSERT_REQUEST = "INSERT INTO requests (app_id, uri_id, ip, time_stamp, region) " +
+            "VALUES ($1, $2, CAST($3 AS inet), $4, $5)";
+    private static final String UPSERT_ROLLUP = "INSERT INTO %1$s (app_id, uri_id, bucket, hits) VALUES ($1, $2, $3, $4) " +
+            "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+
+    private final DatabaseClient databaseClient;
+
+    public Mono<Integer> resolveAppId(String name) {
+        return databaseClient.sql(RESOLVE_APP).bind("name", name)
+                .map(row -> row.get("id", Integer.class))
+                .one();
+    }
+
+    public Mono<Integer> resolveUriId(String uri) {
+        return databaseClient.sql(RESOLVE_URI).bind("uri", uri)
+                .map(row -> row.get("id", Integer.class))
+                .one();
+    }
+
+    public Mono<List<Integer>> findUriIds(List<String> uris) {
+        return databaseClient.sql(FIND_URIS).bind("uris", uris)
+                .map(row -> row.get("id", Integer.class))
+                .all()
+                .collectList();
+    }
+
+    public Mono<Void> insertAll(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds,
+                                Function<String, String> regions) {
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(INSERT_REQUEST);
+            for (int i = 0; i < hits.size(); i++) {
+                RequestDTO hit = hits.get(i);
+                if (i > 0) statement.add();
+                statement.bind(0, appIds.get(hit.getApp()))
+                        .bind(1, uriIds.get(hit.getUri()))
+                        .bind(2, hit.getIp())
+                        .bind(3, hit.getTimestamp());
+                String region = regions.apply(hit.getIp());
+                if (region != null) {
+                    statement.bind(4, region);
+                } else {
+                    statement.bindNull(4, String.class);
+                }
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+        }).then();
+    }
+
+    public Mono<Void> addRollups(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        return upsertRollups(RollupRepository.MINUTE_TABLE, hits, appIds, uriIds, ChronoUnit.MINUTES)
+                .then(upsertRollups(RollupRepository.HOUR_TABLE, hits, appIds, uriIds, ChronoUnit.HOURS));
+    }
+
+    public Flux<RequestOutDTO> query(StatQueries.Query query) {
+        DatabaseClient.GenericExecuteSpec spec = databaseClient.sql(query.getSql());
+        for (Map.Entry<String, Object> param : query.getParams().entrySet()) {
+            spec = spec.bind(param.getKey(), param.getValue());
+        }
+        return spec.map(row -> new RequestOutDTO(row.get("app", String.class), row.get("uri", String.class),
+                        row.get("hits", Long.class)))
+                .all();
+    }
+
+    private Mono<Void> upsertRollups(String table, List<RequestDTO> hits, Map<String, Integer> appIds,
+                                     Map<String, Integer> uriIds, ChronoUnit unit) {
+        Map<RollupRepository.BucketKey, Long> counts = RollupRepository.aggregate(hits, appIds, uriIds, unit);
+
+        return databaseClient.inConnectionMany(connection -> {
+            Statement statement = connection.createStatement(String.format(UPSERT_ROLLUP, table));
+            boolean first = true;
+            for (Map.Entry<RollupRepository.BucketKey, Long> entry : counts.entrySet()) {
+                if (!first) statement.add();
+                first = false;
+                statement.bind(0, entry.getKey().appId)
+                        .bind(1, entry.getKey().uriId)
+                        .bind(2, entry.getKey().bucket)
+                        .bind(3, entry.getValue());
+            }
+            return Flux.from(statement.execute()).flatMap(result -> result.getRowsUpdated());
+        }).then();
+    }
+}
@@ -0,0 +1,147 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.TreeMap;
+
+/**
+ * Hit counts pre-aggregated per (app, uri, bucket) in {@code requests_minute} and {@code requests_hour}.
+ */
+@Repository
+@RequiredArgsConstructor
+public class RollupRepository {
+    public static final String MINUTE_TABLE = "requests_minute";
+    public static final String HOUR_TABLE = "requests_hour";
+
+    private static final String UPSERT = "INSERT INTO %1$s (app_id, uri_id, bucket, hits) " +
+            "VALUES (:appId, :uriId, :bucket, :hits) " +
+            "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET hits = %1$s.hits + EXCLUDED.hits";
+    private static final String COUNT = "SELECT a.name AS app, u.uri AS uri, SUM(r.hits) AS hits " +
+            "FROM %s AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.bucket >= :from AND r.bucket < :to %s" +
+            "GROUP BY a.name, u.uri";
+    private static final String COUNT_SERIES = "SELECT a.name AS app, u.uri AS uri, " +
+            "date_trunc('%2$s', r.bucket) AS bucket, SUM(r.hits) AS hits " +
+            "FROM %1$s AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.bucket >= :from AND r.bucket < :to %3$s" +
+            "GROUP BY a.name, u.uri, 3";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public void addAll(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        upsert(MINUTE_TABLE, aggregate(hits, appIds, uriIds, ChronoUnit.MINUTES));
+        upsert(HOUR_TABLE, aggregate(hits, appIds, uriIds, ChronoUnit.HOURS));
+    }
+
+    public List<RequestOutDTO> countHits(String table, LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriFilter = "";
+        if (uriIds != null) {
+            uriFilter = "AND r.uri_id IN (:uriIds) ";
+            params.addValue("uriIds", uriIds);
+        }
+
+        return jdbcTemplate.query(String.format(COUNT, table, uriFilter), params,
+                (rs, rowNum) -> new RequestOutDTO(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+    }
+
+    /**
+     * Hit counts per (app, uri) and {@code date_trunc(field, bucket)} for rollup buckets in {@code [from, to)}.
+     */
+    public void countSeries(String table, String field, LocalDateTime from, LocalDateTime to, List<Integer> uriIds,
+                            SeriesConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriFilter = "";
+        if (uriIds != null) {
+            uriFilter = "AND r.uri_id IN (:uriIds) ";
+            params.addValue("uriIds", uriIds);
+        }
+
+        jdbcTemplate.query(String.format(COUNT_SERIES, table, field, uriFilter), params,
+                rs -> {
+                    consumer.accept(rs.getString("app"), rs.getString("uri"),
+                            rs.getTimestamp("bucket").toLocalDateTime(), rs.getLong("hits"));
+                });
+    }
+
+    // Rows are upserted in key order so that concurrent batches lock them in the same order.
+    private void upsert(String table, Map<BucketKey, Long> counts) {
+        MapSqlParameterSource[] batch = counts.entrySet().stream()
+                .map(entry -> new MapSqlParameterSource()
+                        .addValue("appId", entry.getKey().appId)
+                        .addValue("uriId", entry.getKey().uriId)
+                        .addValue("bucket", Timestamp.valueOf(entry.getKey().bucket))
+                        .addValue("hits", entry.getValue()))
+                .toArray(MapSqlParameterSource[]::new);
+        jdbcTemplate.batchUpdate(String.format(UPSERT, table), batch);
+    }
+
+    static Map<BucketKey, Long> aggregate(List<RequestDTO> hits, Map<String, Integer> appIds,
+                                                  Map<String, Integer> uriIds, ChronoUnit unit) {
+        Map<BucketKey, Long> counts = new TreeMap<>();
+        for (RequestDTO hit : hits) {
+            BucketKey key = new BucketKey(appIds.get(hit.getApp()), uriIds.get(hit.getUri()),
+                    hit.getTimestamp().truncatedTo(unit));
+            counts.merge(key, 1L, Long::sum);
+        }
+        return counts;
+    }
+
+    static class BucketKey implements Comparable<BucketKey> {
+        private static final Comparator<BucketKey> ORDER = Comparator.<BucketKey>comparingInt(key -> key.appId)
+                .thenComparingInt(key -> key.uriId)
+                .thenComparing(key -> key.bucket);
+
+        final int appId;
+        final int uriId;
+        final LocalDateTime bucket;
+
+        BucketKey(int appId, int uriId, LocalDateTime bucket) {
+            this.appId = appId;
+            this.uriId = uriId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public int compareTo(BucketKey other) {
+            return ORDER.compare(this, other);
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof BucketKey)) return false;
+            BucketKey that = (BucketKey) o;
+            return appId == that.appId && uriId == that.uriId && bucket.equals(that.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, uriId, bucket);
+        }
+    }
+
+    public interface SeriesConsumer {
+        void accept(String app, String uri, LocalDateTime bucket, long count);
+    }
+}
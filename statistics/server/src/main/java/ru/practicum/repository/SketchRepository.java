@@ -0,0 +1,69 @@
+package ru.practicum.repository;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.support.DataAccessUtils;
+import org.springframework.jdbc.core.namedparam.MapSqlParameterSource;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Serialized HyperLogLog sketches of visitor IPs per (app, uri, hour).
+ */
+@Repository
+@RequiredArgsConstructor
+public class SketchRepository {
+    private static final String FIND_FOR_UPDATE = "SELECT sketch FROM uri_sketches " +
+            "WHERE app_id = :appId AND uri_id = :uriId AND bucket = :bucket FOR UPDATE";
+    private static final String UPSERT = "INSERT INTO uri_sketches (app_id, uri_id, bucket, sketch) " +
+            "VALUES (:appId, :uriId, :bucket, :sketch) " +
+            "ON CONFLICT (app_id, uri_id, bucket) DO UPDATE SET sketch = EXCLUDED.sketch";
+    private static final String FIND_IN_RANGE = "SELECT a.name AS app, u.uri AS uri, s.bucket AS bucket, s.sketch AS sketch " +
+            "FROM uri_sketches AS s " +
+            "LEFT JOIN application AS a ON a.id = s.app_id " +
+            "JOIN uris AS u ON u.id = s.uri_id " +
+            "WHERE s.bucket >= :from AND s.bucket < :to %s";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+
+    public byte[] findForUpdate(int appId, int uriId, LocalDateTime bucket) {
+        List<byte[]> sketches = jdbcTemplate.query(FIND_FOR_UPDATE, key(appId, uriId, bucket),
+                (rs, rowNum) -> rs.getBytes("sketch"));
+        return DataAccessUtils.singleResult(sketches);
+    }
+
+    public void save(int appId, int uriId, LocalDateTime bucket, byte[] sketch) {
+        jdbcTemplate.update(UPSERT, key(appId, uriId, bucket).addValue("sketch", sketch));
+    }
+
+    public void forEachInRange(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, SketchConsumer consumer) {
+        MapSqlParameterSource params = new MapSqlParameterSource()
+                .addValue("from", Timestamp.valueOf(from))
+                .addValue("to", Timestamp.valueOf(to));
+        String uriFilter = "";
+        if (uriIds != null) {
+            uriFilter = "AND s.uri_id IN (:uriIds) ";
+            params.addValue("uriIds", uriIds);
+        }
+
+        jdbcTemplate.query(String.format(FIND_IN_RANGE, uriFilter), params,
+                rs -> {
+                    consumer.accept(rs.getString("app"), rs.getString("uri"), rs.getTimestamp("bucket").toLocalDateTime(),
+                            rs.getBytes("sketch"));
+                });
+    }
+
+    private static MapSqlParameterSource key(int appId, int uriId, LocalDateTime bucket) {
+        return new MapSqlParameterSource()
+                .addValue("appId", appId)
+                .addValue("uriId", uriId)
+                .addValue("bucket", Timestamp.valueOf(bucket));
+    }
+
+    public interface SketchConsumer {
+        void accept(String app, String uri, LocalDateTime bucket, byte[] sketch);
+    }
+}
@@ -0,0 +1,109 @@
+package ru.practicum.repository;
+
+import lombok.Getter;
+import ru.practicum.service.WindowPlan;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+
+/**
+ * Single-statement aggregation queries with named parameters, shared by the JDBC and the R2DBC
+ * repositories. Results are ordered by the hit count and have {@code app}, {@code uri} and {@code hits} columns.
+ */
+public final class StatQueries {
+    private static final String HITS = "SELECT a.name AS app, u.uri AS uri, SUM(p.hits) AS hits " +
+            "FROM (%s) AS p " +
+            "LEFT JOIN application AS a ON a.id = p.app_id " +
+            "JOIN uris AS u ON u.id = p.uri_id " +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY SUM(p.hits) DESC %s";
+    private static final String ROLLUP_PART = "SELECT app_id, uri_id, hits FROM %s AS r " +
+            "WHERE r.bucket >= :from%2$d AND r.bucket < :to%2$d %3$s";
+    private static final String RAW_PART = "SELECT app_id, uri_id, 1 AS hits FROM requests AS r " +
+            "WHERE r.time_stamp >= :from%1$d AND r.time_stamp < :to%1$d %2$s";
+    private static final String RAW_HITS = "SELECT a.name AS app, u.uri AS uri, %s AS hits " +
+            "FROM requests AS r " +
+            "LEFT JOIN application AS a ON a.id = r.app_id " +
+            "JOIN uris AS u ON u.id = r.uri_id " +
+            "WHERE r.time_stamp >= :from AND r.time_stamp < :to %s" +
+            "GROUP BY a.name, u.uri " +
+            "ORDER BY hits DESC %s";
+
+    private StatQueries() {
+    }
+
+    /**
+     * Hit counts for the window of the plan: rollup and raw parts are combined with
+     * {@code UNION ALL} and summed by the database.
+     */
+    public static Query hits(WindowPlan plan, List<Integer> uriIds, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        String uriFilter = uriFilter(uriIds, params);
+
+        List<String> parts = new ArrayList<>();
+        int n = 0;
+        for (WindowPlan.Range range : plan.getHours()) {
+            addRange(params, n, range);
+            parts.add(String.format(ROLLUP_PART, RollupRepository.HOUR_TABLE, n++, uriFilter));
+        }
+        for (WindowPlan.Range range : plan.getMinutes()) {
+            addRange(params, n, range);
+            parts.add(String.format(ROLLUP_PART, RollupRepository.MINUTE_TABLE, n++, uriFilter));
+        }
+        for (WindowPlan.Range range : plan.getRaw()) {
+            addRange(params, n, range);
+            parts.add(String.format(RAW_PART, n++, uriFilter));
+        }
+
+        return new Query(String.format(HITS, String.join(" UNION ALL ", parts), limit(limit, params)), params);
+    }
+
+    /**
+     * Exact counts over raw hits in {@code [from, to)}, optionally restricted to one IP.
+     */
+    public static Query rawHits(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, boolean unique,
+                                String ip, Integer limit) {
+        Map<String, Object> params = new HashMap<>();
+        params.put("from", from);
+        params.put("to", to);
+        String filter = uriFilter(uriIds, params);
+        if (ip != null) {
+            filter += "AND r.ip = CAST(:ip AS inet) ";
+            params.put("ip", ip);
+        }
+
+        String count = unique ? "COUNT(DISTINCT r.ip)" : "COUNT(r.ip)";
+        return new Query(String.format(RAW_HITS, count, filter, limit(limit, params)), params);
+    }
+
+    private static void addRange(Map<String, Object> params, int n, WindowPlan.Range range) {
+        params.put("from" + n, range.getFrom());
+        params.put("to" + n, range.getTo());
+    }
+
+    private static String uriFilter(List<Integer> uriIds, Map<String, Object> params) {
+        if (uriIds == null) return "";
+        params.put("uriIds", uriIds);
+        return "AND r.uri_id IN (:uriIds) ";
+    }
+
+    private static String limit(Integer limit, Map<String, Object> params) {
+        if (limit == null) return "";
+        params.put("limit", limit);
+        return "LIMIT :limit";
+    }
+
+    @Getter
+    public static class Query {
+        private final String sql;
+        private final Map<String, Object> params;
+
+        Query(String sql, Map<String, Object> params) {
+            this.sql = sql;
+            this.params = params;
+        }
+    }
+}
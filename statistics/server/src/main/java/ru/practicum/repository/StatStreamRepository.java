@@ -0,0 +1,68 @@
+package ru.practicum.repository;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.jdbc.core.RowCallbackHandler;
+import org.springframework.jdbc.core.namedparam.NamedParameterJdbcTemplate;
+import org.springframework.stereotype.Repository;
+import ru.practicum.service.WindowPlan;
+
+import java.sql.Timestamp;
+import java.time.LocalDateTime;
+import java.util.Collections;
+import java.util.List;
+
+/**
+ * Aggregations over the whole window in a single ordered statement, read through a forward-only
+ * cursor so that rows can be handed out as soon as the database produces them.
+ */
+@Repository
+public class StatStreamRepository {
+    private static final String RAW_HITS = "SELECT app_id, uri_id, host(ip) AS ip, time_stamp FROM requests " +
+            "WHERE time_stamp >= :from";
+
+    private final NamedParameterJdbcTemplate jdbcTemplate;
+    private final NamedParameterJdbcTemplate loadTemplate;
+
+    public StatStreamRepository(JdbcTemplate jdbcTemplate,
+                                @Value("${stats.stream.fetch-size:1000}") int fetchSize) {
+        JdbcTemplate streamingTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        streamingTemplate.setFetchSize(fetchSize);
+        streamingTemplate.setQueryTimeout(jdbcTemplate.getQueryTimeout());
+        this.jdbcTemplate = new NamedParameterJdbcTemplate(streamingTemplate);
+
+        // loading is not a user query, the stats query timeout does not apply to it
+        JdbcTemplate untimedTemplate = new JdbcTemplate(jdbcTemplate.getDataSource());
+        untimedTemplate.setFetchSize(fetchSize);
+        this.loadTemplate = new NamedParameterJdbcTemplate(untimedTemplate);
+    }
+
+    /**
+     * Streams hit counts per (app, uri) in descending order. The PostgreSQL driver only uses a
+     * cursor inside a transaction, so callers must hold one.
+     */
+    public void streamHits(WindowPlan plan, List<Integer> uriIds, Integer limit, RowCallbackHandler handler) {
+        StatQueries.Query query = StatQueries.hits(plan, uriIds, limit);
+        jdbcTemplate.query(query.getSql(), query.getParams(), handler);
+    }
+
+    public void streamUniqueHits(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, Integer limit,
+                                 RowCallbackHandler handler) {
+        StatQueries.Query query = StatQueries.rawHits(from, to, uriIds, true, null, limit);
+        jdbcTemplate.query(query.getSql(), query.getParams(), handler);
+    }
+
+    /**
+     * Streams every raw hit stored since {@code from}, in no particular order, without a statement timeout.
+     */
+    public void streamRawHits(LocalDateTime from, RawHitConsumer consumer) {
+        loadTemplate.query(RAW_HITS, Collections.singletonMap("from", Timestamp.valueOf(from)), rs -> {
+            consumer.accept(rs.getInt("app_id"), rs.getInt("uri_id"), rs.getString("ip"),
+                    rs.getTimestamp("time_stamp").toLocalDateTime());
+        });
+    }
+
+    public interface RawHitConsumer {
+        void accept(int appId, int uriId, String ip, LocalDateTime timestamp);
+    }
+}
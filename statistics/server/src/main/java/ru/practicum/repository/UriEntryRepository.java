@@ -0,0 +1,12 @@
+package ru.practicum.repository;
+
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+import ru.practicum.model.UriEntry;
+
+import java.util.Optional;
+
+@Repository
+public interface UriEntryRepository extends JpaRepository<UriEntry, Integer> {
+    Optional<UriEntry> findByUri(String uri);
+}
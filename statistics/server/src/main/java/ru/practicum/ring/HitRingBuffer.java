@@ -0,0 +1,232 @@
+package ru.practicum.ring;
+
+import ru.practicum.RequestDTO;
+
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CopyOnWriteArrayList;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.atomic.AtomicLongArray;
+import java.util.concurrent.locks.Condition;
+import java.util.concurrent.locks.LockSupport;
+import java.util.concurrent.locks.ReentrantLock;
+
+/**
+ * Bounded lock-free multi-producer multi-consumer queue of hits (D. Vyukov's sequence-per-slot ring).
+ * <p>
+ * Slots are allocated once; publishing a hit only stores a reference and a timestamp. Every
+ * {@link Reader} announces the oldest position it may still be working on, which lets
+ * {@link #awaitConsumed} tell when every hit published before a point has been handled.
+ */
+public class HitRingBuffer {
+    private static final long IDLE = Long.MAX_VALUE;
+    private static final long MAX_SLEEP_NANOS = TimeUnit.MICROSECONDS.toNanos(500);
+
+    private final int mask;
+    private final RequestDTO[] hits;
+    private final long[] publishedAt;
+    private final AtomicLongArray sequences;
+    private final AtomicLong enqueuePosition = new AtomicLong();
+    private final AtomicLong dequeuePosition = new AtomicLong();
+    private final WaitStrategy waitStrategy;
+    private final List<Reader> readers = new CopyOnWriteArrayList<>();
+
+    private final ReentrantLock lock = new ReentrantLock();
+    private final Condition notEmpty = lock.newCondition();
+    private volatile int waitingReaders;
+
+    public HitRingBuffer(int capacity, WaitStrategy waitStrategy) {
+        if (capacity < 2 || Integer.bitCount(capacity) != 1) {
+            throw new IllegalArgumentException("Ring buffer capacity must be a power of two: " + capacity);
+        }
+        this.mask = capacity - 1;
+        this.hits = new RequestDTO[capacity];
+        this.publishedAt = new long[capacity];
+        this.sequences = new AtomicLongArray(capacity);
+        for (int i = 0; i < capacity; i++) {
+            sequences.set(i, i);
+        }
+        this.waitStrategy = waitStrategy;
+    }
+
+    /**
+     * Publishes a hit, waiting at most {@code timeoutNanos} for a free slot.
+     */
+    public boolean offer(RequestDTO hit, long timeoutNanos) {
+        return offerAll(Collections.singletonList(hit), timeoutNanos);
+    }
+
+    /**
+     * Publishes all hits of {@code batch} in consecutive slots or none of them, waiting at most
+     * {@code timeoutNanos} until enough slots are free.
+     */
+    public boolean offerAll(List<RequestDTO> batch, long timeoutNanos) {
+        int count = batch.size();
+        if (count > hits.length) {
+            throw new IllegalArgumentException("Batch of " + count + " hits exceeds the ring capacity " + hits.length);
+        }
+        if (count == 0) return true;
+
+        long deadline = 0;
+        int attempt = 0;
+        while (true) {
+            long position = enqueuePosition.get();
+            long difference = freeSlots(position, count);
+
+            if (difference == 0) {
+                // slots free for these positions stay free until their producer publishes into them
+                if (enqueuePosition.compareAndSet(position, position + count)) {
+                    long now = System.nanoTime();
+                    for (int i = 0; i < count; i++) {
+                        int index = (int) ((position + i) & mask);
+                        hits[index] = batch.get(i);
+                        publishedAt[index] = now;
+                        sequences.set(index, position + i + 1);
+                    }
+                    if (waitingReaders > 0) signalReaders();
+                    return true;
+                }
+            } else if (difference < 0) {
+                if (deadline == 0) deadline = System.nanoTime() + timeoutNanos;
+                if (System.nanoTime() - deadline >= 0) return false;
+                backOff(attempt++, false);
+            }
+        }
+    }
+
+    /**
+     * 0 when the {@code count} slots from {@code position} are all free, negative when one of them still
+     * holds a hit of the previous lap, positive when another producer has claimed {@code position} already.
+     */
+    private long freeSlots(long position, int count) {
+        for (int i = 0; i < count; i++) {
+            long difference = sequences.get((int) ((position + i) & mask)) - (position + i);
+            if (difference != 0) return difference;
+        }
+        return 0;
+    }
+
+    public int getCapacity() {
+        return hits.length;
+    }
+
+    public long getPublished() {
+        return enqueuePosition.get();
+    }
+
+    public long size() {
+        return Math.max(0, enqueuePosition.get() - dequeuePosition.get());
+    }
+
+    public Reader newReader() {
+        Reader reader = new Reader();
+        readers.add(reader);
+        return reader;
+    }
+
+    /**
+     * Waits until every hit published before {@code position} has been taken and released by its reader.
+     */
+    public void awaitConsumed(long position) {
+        int attempt = 0;
+        while (!isConsumed(position)) {
+            backOff(attempt++, false);
+        }
+    }
+
+    private boolean isConsumed(long position) {
+        if (dequeuePosition.get() < position) return false;
+        for (Reader reader : readers) {
+            if (reader.working < position) return false;
+        }
+        return true;
+    }
+
+    private void signalReaders() {
+        lock.lock();
+        try {
+            notEmpty.signalAll();
+        } finally {
+            lock.unlock();
+        }
+    }
+
+    private void backOff(int attempt, boolean reader) {
+        if (waitStrategy == WaitStrategy.BLOCKING && reader) {
+            awaitPublished();
+        } else if (waitStrategy == WaitStrategy.BUSY_SPIN || attempt < 100) {
+            Thread.onSpinWait();
+        } else if (waitStrategy == WaitStrategy.YIELDING || attempt < 200) {
+            Thread.yield();
+        } else {
+            LockSupport.parkNanos(Math.min(MAX_SLEEP_NANOS, 1000L << Math.min(attempt - 200, 9)));
+        }
+    }
+
+    private void awaitPublished() {
+        lock.lock();
+        try {
+            waitingReaders++;
+            if (enqueuePosition.get() == dequeuePosition.get()) {
+                notEmpty.await(1, TimeUnit.MILLISECONDS);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            waitingReaders--;
+            lock.unlock();
+        }
+    }
+
+    /**
+     * Consuming side used by a single thread.
+     */
+    public class Reader {
+        private volatile long working = IDLE;
+        private int attempt;
+
+        /**
+         * Appends up to {@code max} published hits to {@code batch} and their publish times to {@code times}
+         * from index {@code batch.size()}; the hits stay accounted to this reader until {@link #release()}.
+         */
+        public int poll(List<RequestDTO> batch, long[] times, int max) {
+            int taken = 0;
+            while (taken < max) {
+                long position = dequeuePosition.get();
+                if (working == IDLE) working = position;
+                int index = (int) (position & mask);
+                long difference = sequences.get(index) - (position + 1);
+
+                if (difference == 0) {
+                    if (dequeuePosition.compareAndSet(position, position + 1)) {
+                        times[batch.size()] = publishedAt[index];
+                        batch.add(hits[index]);
+                        taken++;
+                        hits[index] = null;
+                        sequences.set(index, position + mask + 1);
+                    }
+                } else if (difference < 0) {
+                    break;
+                }
+            }
+            if (taken > 0) {
+                attempt = 0;
+            } else if (batch.isEmpty()) {
+                working = IDLE;
+            }
+            return taken;
+        }
+
+        public void release() {
+            working = IDLE;
+        }
+
+        /**
+         * Waits for new hits after an empty {@link #poll}.
+         */
+        public void await() {
+            backOff(attempt++, true);
+        }
+    }
+}
@@ -0,0 +1,12 @@
+package ru.practicum.ring;
+
+/**
+ * How threads of the {@link HitRingBuffer} wait for free slots or published hits:
+ * trading latency ({@code BUSY_SPIN}) against CPU use ({@code BLOCKING}).
+ */
+public enum WaitStrategy {
+    BUSY_SPIN,
+    YIELDING,
+    SLEEPING,
+    BLOCKING
+}
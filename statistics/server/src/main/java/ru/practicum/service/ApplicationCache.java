@@ -0,0 +1,63 @@
+package ru.practicum.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.Application;
+import ru.practicum.repository.ApplicationRepository;
+
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * In-process application name to id cache. A name is looked up in the database only the
+ * first time it is seen, unknown applications are created in a separate transaction so that
+ * a cached id never points to a rolled back row.
+ */
+@Component
+public class ApplicationCache {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> names = new ConcurrentHashMap<>();
+    private final ApplicationRepository appRepository;
+    private final TransactionTemplate requiresNew;
+
+    public ApplicationCache(ApplicationRepository appRepository, PlatformTransactionManager transactionManager) {
+        this.appRepository = appRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    public Integer resolve(String name) {
+        Integer id = ids.get(name);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(name, this::findOrCreate);
+    }
+
+    public String getName(int id) {
+        String name = names.get(id);
+        if (name != null) {
+            return name;
+        }
+        return appRepository.findById(id).map(app -> {
+            names.put(app.getId(), app.getName());
+            return app.getName();
+        }).orElse(null);
+    }
+
+    private Integer findOrCreate(String name) {
+        Application app;
+        try {
+            app = requiresNew.execute(status -> appRepository.findByName(name)
+                    .orElseGet(() -> appRepository.save(new Application(name))));
+        } catch (DataIntegrityViolationException e) {
+            // another server created it in the meantime, names are unique
+            app = requiresNew.execute(status -> appRepository.findByName(name).orElseThrow(() -> e));
+        }
+        names.put(app.getId(), app.getName());
+        return app.getId();
+    }
+}
@@ -0,0 +1,33 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Component;
+import ru.practicum.RequestDTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Writes hits to the database before they are acknowledged.
+ */
+@Component
+@RequiredArgsConstructor
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "direct", matchIfMissing = true)
+public class DirectHitIngestor implements HitIngestor {
+    private final HitWriter hitWriter;
+
+    @Override
+    public void ingest(List<RequestDTO> hits) {
+        hitWriter.write(hits);
+    }
+
+    @Override
+    public <T> T query(Function<PendingHits, T> query) {
+        return query.apply(PendingHits.EMPTY);
+    }
+
+    @Override
+    public void drain() {
+    }
+}
@@ -0,0 +1,130 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import ru.practicum.RequestDTO;
+import ru.practicum.dedup.LongHashSet;
+
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Drops hits identical to one received during the last {@code stats.dedup.window-seconds}: same app, uri,
+ * ip and second. Fingerprints are 64-bit hashes kept in two generations of fixed size, so one is remembered
+ * for one to two windows. The older generation is discarded when the window elapses or when the current one
+ * fills up, which keeps memory bounded under any load at the price of forgetting fingerprints earlier.
+ * Callers {@link #forget} the hits they fail to store, so that a retry of the client is not taken for a duplicate.
+ */
+@Component
+public class HitDeduplicator {
+    private final boolean enabled;
+    private final long windowNanos;
+    private LongHashSet current;
+    private LongHashSet previous;
+    private long generationStarted = System.nanoTime();
+
+    private final Counter checked;
+    private final Counter dropped;
+
+    public HitDeduplicator(MeterRegistry meterRegistry,
+                           @Value("${stats.dedup.enabled:false}") boolean enabled,
+                           @Value("${stats.dedup.window-seconds:10}") long windowSeconds,
+                           @Value("${stats.dedup.max-entries:100000}") int maxEntries) {
+        this.enabled = enabled;
+        this.windowNanos = windowSeconds * 1_000_000_000L;
+        this.current = new LongHashSet(enabled ? maxEntries : 0);
+        this.previous = new LongHashSet(enabled ? maxEntries : 0);
+        this.checked = meterRegistry.counter("stats.dedup.checked");
+        this.dropped = meterRegistry.counter("stats.dedup.dropped");
+        Gauge.builder("stats.dedup.size", this, HitDeduplicator::size).register(meterRegistry);
+    }
+
+    /**
+     * Hits of the batch that are not duplicates, in their original order.
+     */
+    public List<RequestDTO> filter(List<RequestDTO> requestDtos) {
+        if (!enabled) return requestDtos;
+
+        List<RequestDTO> unique = new ArrayList<>(requestDtos.size());
+        synchronized (this) {
+            rotateIfExpired();
+            for (RequestDTO requestDto : requestDtos) {
+                long fingerprint = fingerprint(requestDto);
+                if (previous.contains(fingerprint) || !current.add(fingerprint)) continue;
+                unique.add(requestDto);
+                if (current.isFull()) {
+                    rotate();
+                }
+            }
+        }
+
+        checked.increment(requestDtos.size());
+        dropped.increment(requestDtos.size() - unique.size());
+        return unique;
+    }
+
+    /**
+     * Removes the fingerprints of hits passed by {@link #filter} that were not stored after all.
+     */
+    public void forget(List<RequestDTO> requestDtos) {
+        if (!enabled) return;
+
+        synchronized (this) {
+            for (RequestDTO requestDto : requestDtos) {
+                long fingerprint = fingerprint(requestDto);
+                current.remove(fingerprint);
+                previous.remove(fingerprint);
+            }
+        }
+    }
+
+    public synchronized int size() {
+        return current.size() + previous.size();
+    }
+
+    private void rotateIfExpired() {
+        long elapsed = System.nanoTime() - generationStarted;
+        if (elapsed >= windowNanos) {
+            rotate();
+            if (elapsed >= 2 * windowNanos) {
+                previous.clear();
+            }
+        }
+    }
+
+    private void rotate() {
+        LongHashSet expired = previous;
+        previous = current;
+        current = expired;
+        current.clear();
+        generationStarted = System.nanoTime();
+    }
+
+    private static long fingerprint(RequestDTO requestDto) {
+        long h = 0xcbf29ce484222325L;
+        h = hash(h, requestDto.getApp());
+        h = hash(h, requestDto.getUri());
+        h = hash(h, requestDto.getIp());
+        h = (h ^ requestDto.getTimestamp().toEpochSecond(ZoneOffset.UTC)) * 0x100000001b3L;
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        h *= 0xc4ceb9fe1a85ec53L;
+        h ^= h >>> 33;
+        return h == 0 ? 1 : h;
+    }
+
+    private static long hash(long h, String value) {
+        if (value != null) {
+            for (byte b : value.getBytes(StandardCharsets.UTF_8)) {
+                h = (h ^ (b & 0xff)) * 0x100000001b3L;
+            }
+        }
+        return (h ^ 0xff) * 0x100000001b3L;
+    }
+}
@@ -0,0 +1,25 @@
+package ru.practicum.service;
+
+import ru.practicum.RequestDTO;
+
+import java.util.List;
+import java.util.function.Function;
+
+/**
+ * Accepts hits on behalf of {@link StatService}; selected with {@code stats.ingest.mode}.
+ */
+public interface HitIngestor {
+
+    void ingest(List<RequestDTO> hits);
+
+    /**
+     * Runs a database query together with the counts of the accepted hits that are not in the database yet.
+     * No hit is in the database and in the passed counts at the same time while the query runs.
+     */
+    <T> T query(Function<PendingHits, T> query);
+
+    /**
+     * Blocks until every hit accepted before the call is in the database.
+     */
+    void drain();
+}
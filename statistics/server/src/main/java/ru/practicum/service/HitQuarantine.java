@@ -0,0 +1,98 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.RequestDTO;
+import ru.practicum.journal.HitJournal;
+
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Keeps hits the database refuses to store, or that could not be stored after retries, in a {@link HitJournal}
+ * under {@code stats.quarantine.dir}, so that a single bad hit does not block the hits accepted after it and
+ * acknowledged hits are not lost. Quarantined hits are logged at
+ * error level and counted; the journal is only created once the first hit is quarantined.
+ */
+@Slf4j
+@Component
+public class HitQuarantine {
+    private final Path dir;
+    private final int segmentBytes;
+    private final Counter quarantined;
+    private final HitWriter hitWriter;
+    private final TransactionTemplate transaction;
+    private HitJournal journal;
+
+    public HitQuarantine(HitWriter hitWriter,
+                         PlatformTransactionManager transactionManager,
+                         MeterRegistry meterRegistry,
+                         @Value("${stats.quarantine.dir:quarantine}") String dir,
+                         @Value("${stats.quarantine.segment-bytes:8388608}") int segmentBytes) {
+        this.dir = Paths.get(dir);
+        this.segmentBytes = segmentBytes;
+        this.quarantined = meterRegistry.counter("stats.ingest.quarantined");
+        this.hitWriter = hitWriter;
+        this.transaction = new TransactionTemplate(transactionManager);
+    }
+
+    public void writeEach(List<RequestDTO> hits) {
+        writeEach(hits, () -> { });
+    }
+
+    /**
+     * Writes the hits one at a time in one transaction together with {@code inTransaction} and quarantines
+     * those the database rejects as invalid once it commits. Any other failure is rethrown with every hit
+     * rolled back, so the caller can retry or quarantine the whole batch without duplicating stored hits.
+     */
+    public void writeEach(List<RequestDTO> hits, Runnable inTransaction) {
+        List<RequestDTO> rejected = new ArrayList<>();
+        DataIntegrityViolationException[] cause = new DataIntegrityViolationException[1];
+        transaction.executeWithoutResult(status -> {
+            hitWriter.writeEach(hits, (hit, e) -> {
+                rejected.add(hit);
+                cause[0] = e;
+            });
+            inTransaction.run();
+        });
+        if (!rejected.isEmpty()) {
+            add(rejected, cause[0]);
+        }
+    }
+
+    public synchronized void add(List<RequestDTO> hits, Throwable cause) {
+        quarantined.increment(hits.size());
+        log.error("Quarantined {} hits that could not be stored ({}): {}", hits.size(), cause.getMessage(), hits);
+        try {
+            journal().append(hits);
+        } catch (IOException | RuntimeException e) {
+            log.error("Failed to write {} quarantined hits to {}: {}", hits.size(), dir, e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public synchronized void close() {
+        if (journal != null) {
+            journal.close();
+        }
+    }
+
+    private HitJournal journal() throws IOException {
+        if (journal == null) {
+            HitJournal opened = new HitJournal(dir, segmentBytes, true);
+            opened.open(null, (hit, position) -> { });
+            journal = opened;
+        }
+        return journal;
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.interceptor.TransactionAspectSupport;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import ru.practicum.RequestDTO;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.RollupRepository;
+
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.function.BiConsumer;
+
+/**
+ * Writes hits to {@code requests}, enriched with the region of their IP, and the rollup tables.
+ * Sketches and the result cache are updated only once the surrounding transaction commits.
+ */
+@Component
+@RequiredArgsConstructor
+public class HitWriter {
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchService sketchService;
+    private final ApplicationCache appCache;
+    private final UriDictionary uriDictionary;
+    private final StatsCache statsCache;
+    private final TopUriService topUriService;
+    private final HotWindow hotWindow;
+    private final RegionService regionService;
+
+    @Transactional
+    public void write(List<RequestDTO> requestDtos) {
+        if (requestDtos.isEmpty()) return;
+        insert(requestDtos);
+    }
+
+    /**
+     * Writes the hits one at a time under savepoints of a single transaction and passes those the database
+     * rejects as invalid to {@code onRejected}. Any other failure rolls back every hit, so writing the same
+     * hits again after it stores none of them twice.
+     */
+    @Transactional
+    public void writeEach(List<RequestDTO> requestDtos, BiConsumer<RequestDTO, DataIntegrityViolationException> onRejected) {
+        TransactionStatus status = TransactionAspectSupport.currentTransactionStatus();
+        for (RequestDTO requestDto : requestDtos) {
+            Object savepoint = status.createSavepoint();
+            try {
+                insert(Collections.singletonList(requestDto));
+                status.releaseSavepoint(savepoint);
+            } catch (DataIntegrityViolationException e) {
+                status.rollbackToSavepoint(savepoint);
+                onRejected.accept(requestDto, e);
+            }
+        }
+    }
+
+    private void insert(List<RequestDTO> requestDtos) {
+        Map<String, Integer> appIds = new HashMap<>();
+        Map<String, Integer> uriIds = new HashMap<>();
+        for (RequestDTO requestDto : requestDtos) {
+            appIds.computeIfAbsent(requestDto.getApp(), appCache::resolve);
+            uriIds.computeIfAbsent(requestDto.getUri(), uriDictionary::resolve);
+        }
+
+        hitJdbcRepository.insertAll(requestDtos, appIds, uriIds, regionService::regionOf);
+        rollupRepository.addAll(requestDtos, appIds, uriIds);
+        afterCommit(() -> {
+            sketchService.addAll(requestDtos, appIds, uriIds);
+            statsCache.onHits(requestDtos);
+            topUriService.addAll(requestDtos);
+            hotWindow.addAll(requestDtos, appIds, uriIds);
+        });
+    }
+
+    private static void afterCommit(Runnable action) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            action.run();
+            return;
+        }
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                action.run();
+            }
+        });
+    }
+}
@@ -0,0 +1,229 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.hot.HitColumns;
+import ru.practicum.repository.StatStreamRepository;
+import ru.practicum.trending.IntCountMap;
+import ru.practicum.validation.IpAddressValidator;
+
+import javax.annotation.PostConstruct;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Set;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * Raw hits of the last {@code stats.hot.window-hours} kept in memory in {@link HitColumns}, one per
+ * {@code stats.hot.bucket-seconds} bucket, so that recent windows are counted without the database.
+ * <p>
+ * The store is filled from {@code requests} on startup and then fed with every committed hit. It covers
+ * the time from which it holds every stored hit; buckets leaving the window, or the oldest ones once
+ * {@code stats.hot.max-hits} is exceeded, are dropped and the covered time moves forward with them.
+ * Only hits written by this process are seen, so it must be disabled when several servers share a database.
+ */
+@Slf4j
+@Component
+public class HotWindow {
+    private final NavigableMap<Long, HitColumns> buckets = new ConcurrentSkipListMap<>();
+    private final StatStreamRepository statStreamRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ApplicationCache appCache;
+    private final UriDictionary uriDictionary;
+    private final boolean enabled;
+    private final long windowSeconds;
+    private final long bucketSeconds;
+    private final long maxHits;
+    private final Counter served;
+    private final Counter fallbacks;
+    private long size;
+    private volatile long coveredFrom = Long.MAX_VALUE;
+
+    public HotWindow(StatStreamRepository statStreamRepository, PlatformTransactionManager transactionManager,
+                     ApplicationCache appCache, UriDictionary uriDictionary, MeterRegistry meterRegistry,
+                     @Value("${stats.hot.enabled:true}") boolean enabled,
+                     @Value("${stats.hot.window-hours:24}") long windowHours,
+                     @Value("${stats.hot.bucket-seconds:60}") long bucketSeconds,
+                     @Value("${stats.hot.max-hits:2000000}") long maxHits) {
+        this.statStreamRepository = statStreamRepository;
+        this.transactionManager = transactionManager;
+        this.appCache = appCache;
+        this.uriDictionary = uriDictionary;
+        this.enabled = enabled;
+        this.windowSeconds = windowHours * 3600;
+        this.bucketSeconds = bucketSeconds;
+        this.maxHits = maxHits;
+        this.served = meterRegistry.counter("stats.hot.served");
+        this.fallbacks = meterRegistry.counter("stats.hot.fallbacks");
+        Gauge.builder("stats.hot.size", this, HotWindow::size).register(meterRegistry);
+        Gauge.builder("stats.hot.covered.seconds", this, HotWindow::coveredSeconds).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public synchronized void load() {
+        if (!enabled) return;
+
+        long from = Math.floorDiv(now() - windowSeconds, bucketSeconds) * bucketSeconds;
+        coveredFrom = from;
+        TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+        transaction.setReadOnly(true);
+        transaction.executeWithoutResult(status -> statStreamRepository.streamRawHits(toTime(from),
+                (appId, uriId, ip, timestamp) -> add(appId, uriId, ip, timestamp)));
+        evict();
+        log.info("Loaded {} recent hits into the hot window", size());
+    }
+
+    public synchronized void addAll(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        if (!enabled) return;
+
+        for (RequestDTO hit : hits) {
+            add(appIds.get(hit.getApp()), uriIds.get(hit.getUri()), hit.getIp(), hit.getTimestamp());
+        }
+        evict();
+    }
+
+    /**
+     * Whether every hit since {@code from} is held in memory; answers are counted as served or fallbacks.
+     */
+    public boolean covers(LocalDateTime from) {
+        if (enabled && toEpochSecond(from) >= coveredFrom) {
+            served.increment();
+            return true;
+        }
+        fallbacks.increment();
+        return false;
+    }
+
+    /**
+     * Hits, or distinct IPs with {@code unique}, per (app, uri) in {@code [from, to)} optionally restricted
+     * to {@code uriIds} and to one {@code ip}, most hit first. The window must be {@linkplain #covers covered}.
+     */
+    public List<RequestOutDTO> count(LocalDateTime from, LocalDateTime to, List<Integer> uriIds, String ip,
+                                     boolean unique) {
+        long fromSecond = toEpochSecond(from);
+        long toSecond = toEpochSecond(to);
+        boolean[] uriFilter = uriIds == null ? null : toFilter(uriIds);
+        long ipHash = ip == null ? 0 : hash(ip);
+
+        List<IntCountMap> hits = new ArrayList<>();
+        Map<Long, Set<Long>> ips = new HashMap<>();
+        for (Map.Entry<Long, HitColumns> bucket
+                : buckets.subMap(Math.floorDiv(fromSecond, bucketSeconds), true,
+                Math.floorDiv(toSecond - 1, bucketSeconds), true).entrySet()) {
+            long base = bucket.getKey() * bucketSeconds;
+            bucket.getValue().forEach((second, appId, uriId, ipOfHit) -> {
+                long time = base + second;
+                if (time < fromSecond || time >= toSecond) return;
+                if (uriFilter != null && (uriId >= uriFilter.length || !uriFilter[uriId])) return;
+                if (ip != null && ipOfHit != ipHash) return;
+                if (unique) {
+                    ips.computeIfAbsent(((long) appId << 32) | uriId, key -> new HashSet<>()).add(ipOfHit);
+                } else {
+                    while (hits.size() <= appId) {
+                        hits.add(null);
+                    }
+                    if (hits.get(appId) == null) {
+                        hits.set(appId, new IntCountMap(64));
+                    }
+                    hits.get(appId).add(uriId, 1);
+                }
+            });
+        }
+
+        List<RequestOutDTO> result = new ArrayList<>();
+        if (unique) {
+            ips.forEach((key, set) -> result.add(
+                    new RequestOutDTO(appCache.getName((int) (key >>> 32)), uriDictionary.getUri(key.intValue()), (long) set.size())));
+        } else {
+            for (int appId = 0; appId < hits.size(); appId++) {
+                if (hits.get(appId) == null) continue;
+                String app = appCache.getName(appId);
+                hits.get(appId).forEach((uriId, count) -> result.add(new RequestOutDTO(app, uriDictionary.getUri(uriId), count)));
+            }
+        }
+        result.sort(Comparator.comparing(RequestOutDTO::getHits).reversed());
+        return result;
+    }
+
+    public synchronized long size() {
+        return size;
+    }
+
+    private double coveredSeconds() {
+        long from = coveredFrom;
+        return from == Long.MAX_VALUE ? 0 : Math.max(0, now() - from);
+    }
+
+    private void add(int appId, int uriId, String ip, LocalDateTime timestamp) {
+        long second = toEpochSecond(timestamp);
+        if (second < coveredFrom) return;
+
+        long bucket = Math.floorDiv(second, bucketSeconds);
+        buckets.computeIfAbsent(bucket, key -> new HitColumns())
+                .add((int) (second - bucket * bucketSeconds), appId, uriId, hash(ip));
+        size++;
+    }
+
+    private void evict() {
+        long oldest = Math.floorDiv(now() - windowSeconds, bucketSeconds);
+        while (!buckets.isEmpty() && (buckets.firstKey() < oldest || size > maxHits)) {
+            Map.Entry<Long, HitColumns> bucket = buckets.pollFirstEntry();
+            size -= bucket.getValue().size();
+            coveredFrom = Math.max(coveredFrom, (bucket.getKey() + 1) * bucketSeconds);
+        }
+    }
+
+    private static boolean[] toFilter(List<Integer> uriIds) {
+        int max = uriIds.stream().mapToInt(Integer::intValue).max().orElse(-1);
+        boolean[] filter = new boolean[max + 1];
+        uriIds.forEach(id -> filter[id] = true);
+        return filter;
+    }
+
+    /**
+     * Hash of the binary address, so that every spelling of an address, e.g. {@code ::1} as stored by
+     * PostgreSQL and {@code 0:0:0:0:0:0:0:1} as sent by a client, gets the same hash.
+     */
+    private static long hash(String ip) {
+        byte[] address = IpAddressValidator.toBytes(ip);
+        if (address == null) {
+            address = ip.getBytes(StandardCharsets.UTF_8);
+        }
+        long h = 0xcbf29ce484222325L;
+        for (byte b : address) {
+            h = (h ^ (b & 0xff)) * 0x100000001b3L;
+        }
+        h ^= h >>> 33;
+        h *= 0xff51afd7ed558ccdL;
+        h ^= h >>> 33;
+        return h;
+    }
+
+    private static long now() {
+        return toEpochSecond(LocalDateTime.now());
+    }
+
+    private static long toEpochSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+
+    private static LocalDateTime toTime(long epochSecond) {
+        return LocalDateTime.ofEpochSecond(epochSecond, 0, ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,245 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import ru.practicum.RequestDTO;
+import ru.practicum.journal.HitJournal;
+import ru.practicum.repository.JournalCheckpointRepository;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import java.io.IOException;
+import java.nio.file.Paths;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Deque;
+import java.util.List;
+import java.util.concurrent.atomic.AtomicLong;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Function;
+
+/**
+ * Acknowledges hits once they are appended to the {@link HitJournal} and loads them into the
+ * database in the background.
+ * <p>
+ * Appended hits stay in memory until they are drained, at most {@code stats.journal.max-pending-hits} of them:
+ * past that hits are refused with {@code 503} until drains catch up, which also bounds the journal on disk.
+ * Queries add the {@link PendingHits} counts of the hits not drained yet. A drain writes a batch together with the
+ * journal checkpoint in one transaction and removes the batch from memory while holding the write side of
+ * {@code drainLock}, queries hold its read side, so they see every hit exactly once.
+ * <p>
+ * When the database rejects a batch as invalid its hits are written one at a time, still in one transaction
+ * with the checkpoint, and the rejected ones go to the {@link HitQuarantine}, so that drains do not stop at a
+ * bad hit and a failure in between writes nothing twice.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "journal")
+public class JournalHitIngestor implements HitIngestor {
+    private final Deque<Batch> pending = new ArrayDeque<>();
+    private final PendingHits pendingCounts = new PendingHits();
+    private final ReadWriteLock drainLock = new ReentrantReadWriteLock();
+    private final ReentrantLock drainerLock = new ReentrantLock();
+    private final AtomicLong pendingHits = new AtomicLong();
+    private final AtomicLong drainedHits = new AtomicLong();
+
+    private final HitJournal journal;
+    private final HitWriter hitWriter;
+    private final HitQuarantine quarantine;
+    private final JournalCheckpointRepository checkpointRepository;
+    private final TransactionTemplate requiresNew;
+    private final StatsCache statsCache;
+    private final int drainBatchSize;
+    private final long maxPendingHits;
+    private final Counter rejected;
+    private long checkpointSegment;
+
+    public JournalHitIngestor(HitWriter hitWriter,
+                              HitQuarantine quarantine,
+                              JournalCheckpointRepository checkpointRepository,
+                              PlatformTransactionManager transactionManager,
+                              StatsCache statsCache,
+                              MeterRegistry meterRegistry,
+                              @Value("${stats.journal.dir:journal}") String dir,
+                              @Value("${stats.journal.segment-bytes:67108864}") int segmentBytes,
+                              @Value("${stats.journal.force:false}") boolean force,
+                              @Value("${stats.journal.drain-batch-size:5000}") int drainBatchSize,
+                              @Value("${stats.journal.max-pending-hits:1000000}") long maxPendingHits) throws IOException {
+        this.journal = new HitJournal(Paths.get(dir), segmentBytes, force);
+        this.hitWriter = hitWriter;
+        this.quarantine = quarantine;
+        this.checkpointRepository = checkpointRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.statsCache = statsCache;
+        this.drainBatchSize = drainBatchSize;
+        this.maxPendingHits = maxPendingHits;
+        this.rejected = meterRegistry.counter("stats.journal.rejected");
+        Gauge.builder("stats.journal.pending", pendingHits, AtomicLong::get).register(meterRegistry);
+        FunctionCounter.builder("stats.journal.drained", drainedHits, AtomicLong::get).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void open() throws IOException {
+        HitJournal.Position checkpoint = checkpointRepository.find().orElse(null);
+        checkpointSegment = checkpoint == null ? 0 : checkpoint.getSegment();
+
+        List<RequestDTO> replayed = new ArrayList<>();
+        HitJournal.Position[] last = new HitJournal.Position[1];
+        journal.open(checkpoint, (hit, position) -> {
+            replayed.add(hit);
+            last[0] = position;
+            if (replayed.size() == drainBatchSize) {
+                addPending(new ArrayList<>(replayed), position);
+                replayed.clear();
+            }
+        });
+        if (!replayed.isEmpty()) {
+            addPending(replayed, last[0]);
+        }
+        log.info("Replayed {} hits from the journal", pendingHits.get());
+    }
+
+    @Override
+    public void ingest(List<RequestDTO> hits) {
+        if (hits.size() > maxPendingHits) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Too many hits in one request.");
+        }
+        synchronized (pending) {
+            if (pendingHits.get() + hits.size() > maxPendingHits) {
+                rejected.increment();
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Hit journal backlog is full.");
+            }
+            addPending(hits, journal.append(hits));
+        }
+        statsCache.onHits(hits);
+    }
+
+    @Override
+    public <T> T query(Function<PendingHits, T> query) {
+        drainLock.readLock().lock();
+        try {
+            return query.apply(pendingCounts);
+        } finally {
+            drainLock.readLock().unlock();
+        }
+    }
+
+    @Override
+    public void drain() {
+        HitJournal.Position target;
+        synchronized (pending) {
+            Batch last = pending.peekLast();
+            if (last == null) return;
+            target = last.end;
+        }
+
+        drainerLock.lock();
+        try {
+            boolean more = true;
+            while (more) {
+                more = drainNext(target);
+            }
+        } finally {
+            drainerLock.unlock();
+        }
+    }
+
+    @Scheduled(fixedDelayString = "${stats.journal.drain-interval-ms:200}")
+    public void flush() {
+        try {
+            drain();
+        } catch (RuntimeException e) {
+            log.warn("Failed to drain the hit journal: {}", e.getMessage());
+        }
+    }
+
+    @PreDestroy
+    public void close() {
+        flush();
+        journal.close();
+    }
+
+    /**
+     * Loads the oldest pending batches into the database, stops after the batch ending at {@code target}.
+     */
+    private boolean drainNext(HitJournal.Position target) {
+        List<Batch> batches = new ArrayList<>();
+        List<RequestDTO> hits = new ArrayList<>();
+        synchronized (pending) {
+            for (Batch batch : pending) {
+                if (batch.end.compareTo(target) > 0) break;
+                if (!batches.isEmpty() && hits.size() + batch.hits.size() > drainBatchSize) break;
+                batches.add(batch);
+                hits.addAll(batch.hits);
+            }
+        }
+        if (batches.isEmpty()) return false;
+        HitJournal.Position end = batches.get(batches.size() - 1).end;
+
+        drainLock.writeLock().lock();
+        try {
+            try {
+                requiresNew.executeWithoutResult(status -> {
+                    hitWriter.write(hits);
+                    checkpointRepository.save(end);
+                });
+            } catch (DataIntegrityViolationException e) {
+                log.warn("Database rejected a batch of {} journaled hits, writing them one by one: {}",
+                        hits.size(), e.getMessage());
+                quarantine.writeEach(hits, () -> checkpointRepository.save(end));
+            }
+            synchronized (pending) {
+                for (int i = 0; i < batches.size(); i++) {
+                    pending.removeFirst();
+                }
+            }
+            pendingCounts.remove(hits);
+        } finally {
+            drainLock.writeLock().unlock();
+        }
+        pendingHits.addAndGet(-hits.size());
+        drainedHits.addAndGet(hits.size());
+
+        if (end.getSegment() > checkpointSegment) {
+            checkpointSegment = end.getSegment();
+            try {
+                journal.deleteSegmentsBefore(checkpointSegment);
+            } catch (IOException e) {
+                log.warn("Failed to delete drained journal segments: {}", e.getMessage());
+            }
+        }
+        return end.compareTo(target) < 0;
+    }
+
+    private void addPending(List<RequestDTO> hits, HitJournal.Position end) {
+        pending.addLast(new Batch(hits, end));
+        pendingCounts.add(hits);
+        pendingHits.addAndGet(hits.size());
+    }
+
+    private static class Batch {
+        private final List<RequestDTO> hits;
+        private final HitJournal.Position end;
+
+        Batch(List<RequestDTO> hits, HitJournal.Position end) {
+            this.hits = hits;
+            this.end = end;
+        }
+    }
+}
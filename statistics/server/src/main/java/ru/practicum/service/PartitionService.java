@@ -0,0 +1,124 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.repository.PartitionRepository;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.time.temporal.ChronoUnit;
+import java.util.HashSet;
+import java.util.Set;
+
+/**
+ * Keeps {@code requests} partitioned by day or by month: partitions are created ahead of time
+ * and raw partitions older than the retention period are dropped, expired rows of the default
+ * partition are deleted. Past that cutoff only the hour rollups and the unique visitor sketches
+ * remain, so hit and unique counts stay available while queries that need individual hits
+ * (per IP, per region, exact unique counts) are refused or answered from the sketches by
+ * {@link StatService}.
+ */
+@Slf4j
+@Service
+public class PartitionService {
+    private static final String PREFIX = "requests_p";
+
+    private final PartitionRepository partitionRepository;
+    private final ChronoUnit granularity;
+    private final DateTimeFormatter suffixFormat;
+    private final int createAhead;
+    private final int rawRetentionDays;
+    private final int minuteRetentionDays;
+
+    public PartitionService(PartitionRepository partitionRepository,
+                            @Value("${stats.partition.granularity:DAYS}") ChronoUnit granularity,
+                            @Value("${stats.partition.create-ahead:3}") int createAhead,
+                            @Value("${stats.retention.raw-days:0}") int rawRetentionDays,
+                            @Value("${stats.retention.minute-days:0}") int minuteRetentionDays) {
+        if (granularity != ChronoUnit.DAYS && granularity != ChronoUnit.MONTHS) {
+            throw new IllegalArgumentException("Partition granularity must be DAYS or MONTHS.");
+        }
+        if (rawRetentionDays > 0 && minuteRetentionDays > 0 && rawRetentionDays < minuteRetentionDays) {
+            // minute series fall back to the raw hits where the minute rollups have expired
+            throw new IllegalArgumentException("stats.retention.raw-days must not be less than stats.retention.minute-days.");
+        }
+        this.partitionRepository = partitionRepository;
+        this.granularity = granularity;
+        this.suffixFormat = DateTimeFormatter.ofPattern(granularity == ChronoUnit.DAYS ? "yyyyMMdd" : "yyyyMM");
+        this.createAhead = createAhead;
+        this.rawRetentionDays = rawRetentionDays;
+        this.minuteRetentionDays = minuteRetentionDays;
+    }
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void onStartup() {
+        maintain();
+    }
+
+    @Scheduled(cron = "${stats.partition.cron:0 5 0 * * *}")
+    public void maintain() {
+        try {
+            createPartitions();
+            applyRetention();
+        } catch (DataAccessException e) {
+            log.error("Partition maintenance failed: {}", e.getMessage());
+        }
+    }
+
+    private void createPartitions() {
+        Set<String> existing = new HashSet<>(partitionRepository.findPartitionNames());
+        LocalDate first = periodStart(LocalDate.now());
+        for (int i = 0; i <= createAhead; i++) {
+            LocalDate from = first.plus(i, granularity);
+            String name = PREFIX + from.format(suffixFormat);
+            if (!existing.contains(name)) {
+                partitionRepository.createPartition(name, from.atStartOfDay(), from.plus(1, granularity).atStartOfDay());
+                log.info("Created partition {}", name);
+            }
+        }
+    }
+
+    private void applyRetention() {
+        if (rawRetentionDays > 0) {
+            LocalDate cutoff = LocalDate.now().minusDays(rawRetentionDays);
+            for (String name : partitionRepository.findPartitionNames()) {
+                LocalDate from = parsePartitionStart(name);
+                if (from != null && !from.plus(1, granularity).isAfter(cutoff)) {
+                    partitionRepository.dropPartition(name);
+                    log.info("Dropped partition {} older than {} days", name, rawRetentionDays);
+                }
+            }
+            int deleted = partitionRepository.deleteDefaultHitsBefore(cutoff.atStartOfDay());
+            log.info("Deleted {} hits of the default partition older than {}", deleted, cutoff);
+        }
+
+        if (minuteRetentionDays > 0) {
+            LocalDateTime cutoff = LocalDate.now().minusDays(minuteRetentionDays).atStartOfDay();
+            int deleted = partitionRepository.deleteMinuteRollupsBefore(cutoff);
+            log.info("Deleted {} minute rollups older than {}", deleted, cutoff);
+        }
+    }
+
+    private LocalDate periodStart(LocalDate date) {
+        return granularity == ChronoUnit.DAYS ? date : date.withDayOfMonth(1);
+    }
+
+    private LocalDate parsePartitionStart(String name) {
+        if (!name.startsWith(PREFIX)) return null;
+        String suffix = name.substring(PREFIX.length());
+        try {
+            return granularity == ChronoUnit.DAYS
+                    ? LocalDate.parse(suffix, suffixFormat)
+                    : LocalDate.parse(suffix + "01", DateTimeFormatter.ofPattern("yyyyMMdd"));
+        } catch (DateTimeParseException e) {
+            return null;
+        }
+    }
+}
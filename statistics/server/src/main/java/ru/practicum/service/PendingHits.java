@@ -0,0 +1,73 @@
+package ru.practicum.service;
+
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+
+/**
+ * Running hit counts per second and (app, uri) of the hits accepted but not yet written to the database.
+ * Ingestors add hits when they accept them and remove them once they are stored, so a query adds the
+ * counts of its window instead of going over the hits themselves.
+ */
+public class PendingHits {
+    public static final PendingHits EMPTY = new PendingHits();
+
+    private final NavigableMap<Long, Map<List<String>, Long>> seconds = new TreeMap<>();
+
+    synchronized void add(List<RequestDTO> hits) {
+        update(hits, 1);
+    }
+
+    synchronized void remove(List<RequestDTO> hits) {
+        update(hits, -1);
+    }
+
+    /**
+     * Hits per (app, uri) in {@code [from, to)} whose uri passes {@code uriMatcher}, all when it is {@code null}.
+     */
+    public synchronized List<RequestOutDTO> count(LocalDateTime from, LocalDateTime to, Predicate<String> uriMatcher) {
+        if (seconds.isEmpty()) return Collections.emptyList();
+
+        Map<List<String>, Long> hits = new HashMap<>();
+        for (Map<List<String>, Long> second : seconds.subMap(toSecond(from), true, toSecond(to), false).values()) {
+            second.forEach((key, count) -> {
+                if (uriMatcher == null || uriMatcher.test(key.get(1))) {
+                    hits.merge(key, count, Long::sum);
+                }
+            });
+        }
+
+        List<RequestOutDTO> result = new ArrayList<>(hits.size());
+        hits.forEach((key, count) -> result.add(new RequestOutDTO(key.get(0), key.get(1), count)));
+        return result;
+    }
+
+    private void update(List<RequestDTO> hits, long delta) {
+        for (RequestDTO hit : hits) {
+            long second = toSecond(hit.getTimestamp());
+            Map<List<String>, Long> counts = seconds.computeIfAbsent(second, key -> new HashMap<>());
+            counts.merge(Arrays.asList(hit.getApp(), hit.getUri()), delta, (left, right) -> {
+                long sum = left + right;
+                return sum == 0 ? null : sum;
+            });
+            if (counts.isEmpty()) {
+                seconds.remove(second);
+            }
+        }
+    }
+
+    private static long toSecond(LocalDateTime time) {
+        return time.toEpochSecond(ZoneOffset.UTC);
+    }
+}
@@ -0,0 +1,216 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Tags;
+import io.r2dbc.spi.R2dbcException;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataAccessException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLException;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.EnumMap;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.Semaphore;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicBoolean;
+import java.util.function.Supplier;
+
+/**
+ * Limits on stats queries: the length of the window per query class and the number of queries of a class
+ * running at once. Statements are bounded by {@code spring.jdbc.template.query-timeout} and the JPA query
+ * timeout. Windows that are too long are answered with 400, queries that find no free slot or time out with 503.
+ * A timeout is recognized by SQLSTATE {@code 57014}, which Spring translates differently depending on the path.
+ */
+@Component
+public class QueryGuard {
+    private static final String QUERY_CANCELED = "57014";
+
+    private final MeterRegistry meterRegistry;
+    private final boolean enabled;
+    private final long maxRangeDays;
+    private final long uniqueMaxRangeDays;
+    private final long acquireTimeoutMs;
+    private final Map<QueryClass, Semaphore> permits = new EnumMap<>(QueryClass.class);
+
+    public QueryGuard(MeterRegistry meterRegistry,
+                      @Value("${stats.guard.enabled:true}") boolean enabled,
+                      @Value("${stats.guard.max-range-days:3660}") long maxRangeDays,
+                      @Value("${stats.guard.unique-max-range-days:366}") long uniqueMaxRangeDays,
+                      @Value("${stats.guard.acquire-timeout-ms:200}") long acquireTimeoutMs,
+                      @Value("${stats.guard.concurrency.hits:16}") int hits,
+                      @Value("${stats.guard.concurrency.hits-by-uri:32}") int hitsByUri,
+                      @Value("${stats.guard.concurrency.unique:4}") int unique,
+                      @Value("${stats.guard.concurrency.unique-by-uri:8}") int uniqueByUri) {
+        this.meterRegistry = meterRegistry;
+        this.enabled = enabled;
+        this.maxRangeDays = maxRangeDays;
+        this.uniqueMaxRangeDays = uniqueMaxRangeDays;
+        this.acquireTimeoutMs = acquireTimeoutMs;
+        permits.put(QueryClass.HITS, new Semaphore(hits));
+        permits.put(QueryClass.HITS_BY_URI, new Semaphore(hitsByUri));
+        permits.put(QueryClass.UNIQUE, new Semaphore(unique));
+        permits.put(QueryClass.UNIQUE_BY_URI, new Semaphore(uniqueByUri));
+        for (QueryClass queryClass : QueryClass.values()) {
+            meterRegistry.gauge("stats.guard.available", Tags.of("class", queryClass.getTag()),
+                    permits.get(queryClass), Semaphore::availablePermits);
+        }
+    }
+
+    /**
+     * Rejects windows too long for the query class; rejections are counted.
+     *
+     * @throws ResponseStatusException 400 when the window is longer than the limit of the class
+     */
+    public void checkRange(QueryClass queryClass, LocalDateTime start, LocalDateTime end) {
+        if (!enabled) return;
+
+        long maxDays = queryClass.isUnique() ? uniqueMaxRangeDays : maxRangeDays;
+        if (maxDays <= 0 || Duration.between(start, end).compareTo(Duration.ofDays(maxDays)) <= 0) return;
+        reject(queryClass, "range");
+        throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "window longer than " + maxDays + " days");
+    }
+
+    /**
+     * Runs the query once a slot of its class is free, within {@code stats.guard.acquire-timeout-ms}.
+     *
+     * @throws ResponseStatusException 503 when no slot frees up in time or the statement times out
+     */
+    public <T> T execute(QueryClass queryClass, Supplier<T> query) {
+        Permit permit = acquire(queryClass);
+        try {
+            return permit.run(query);
+        } finally {
+            permit.close();
+        }
+    }
+
+    /**
+     * Takes a slot of the class for a query that runs later, such as a streamed response whose status has
+     * to be decided before the body is written. The slot is held until the permit is closed.
+     *
+     * @throws ResponseStatusException 503 when no slot frees up in time
+     */
+    public Permit acquire(QueryClass queryClass) {
+        return acquire(queryClass, acquireTimeoutMs);
+    }
+
+    /**
+     * Takes a slot of the class without waiting, for callers that must not block such as the reactive runtime.
+     *
+     * @throws ResponseStatusException 503 when no slot is free
+     */
+    public Permit tryAcquire(QueryClass queryClass) {
+        return acquire(queryClass, 0);
+    }
+
+    private Permit acquire(QueryClass queryClass, long timeoutMs) {
+        if (!enabled) return new Permit(queryClass, null);
+
+        Semaphore semaphore = permits.get(queryClass);
+        try {
+            if (!semaphore.tryAcquire(timeoutMs, TimeUnit.MILLISECONDS)) {
+                reject(queryClass, "concurrency");
+                throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Too many concurrent stats queries.");
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Interrupted while waiting for a query slot.");
+        }
+        return new Permit(queryClass, semaphore);
+    }
+
+    private static boolean isTimeout(DataAccessException e) {
+        if (e instanceof QueryTimeoutException) return true;
+        for (Throwable cause = e.getCause(); cause != null; cause = cause.getCause()) {
+            if (cause instanceof SQLException && QUERY_CANCELED.equals(((SQLException) cause).getSQLState())) {
+                return true;
+            }
+            if (cause instanceof R2dbcException && QUERY_CANCELED.equals(((R2dbcException) cause).getSqlState())) {
+                return true;
+            }
+        }
+        return false;
+    }
+
+    private void reject(QueryClass queryClass, String reason) {
+        meterRegistry.counter("stats.guard.rejected", "class", queryClass.getTag(), "reason", reason).increment();
+    }
+
+    /**
+     * A held query slot; closing it more than once releases the slot once.
+     */
+    public final class Permit implements AutoCloseable {
+        private final QueryClass queryClass;
+        private final Semaphore semaphore;
+        private final AtomicBoolean closed = new AtomicBoolean();
+
+        private Permit(QueryClass queryClass, Semaphore semaphore) {
+            this.queryClass = queryClass;
+            this.semaphore = semaphore;
+        }
+
+        /**
+         * Runs a query under the slot.
+         *
+         * @throws ResponseStatusException 503 when the statement times out
+         */
+        public <T> T run(Supplier<T> query) {
+            try {
+                return query.get();
+            } catch (RuntimeException e) {
+                throw translate(e);
+            }
+        }
+
+        /**
+         * The error to answer with for a failed query: 503 for a statement timeout, the error itself otherwise.
+         */
+        public RuntimeException translate(RuntimeException e) {
+            if (!enabled || !(e instanceof DataAccessException) || !isTimeout((DataAccessException) e)) return e;
+            meterRegistry.counter("stats.guard.timeouts", "class", queryClass.getTag()).increment();
+            return new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Stats query timed out.", e);
+        }
+
+        @Override
+        public void close() {
+            if (semaphore != null && closed.compareAndSet(false, true)) {
+                semaphore.release();
+            }
+        }
+    }
+
+    public enum QueryClass {
+        HITS(false),
+        HITS_BY_URI(false),
+        UNIQUE(true),
+        UNIQUE_BY_URI(true);
+
+        private final boolean unique;
+
+        QueryClass(boolean unique) {
+            this.unique = unique;
+        }
+
+        public static QueryClass of(boolean unique, List<String> uris) {
+            boolean byUri = uris != null && !uris.isEmpty();
+            if (unique) {
+                return byUri ? UNIQUE_BY_URI : UNIQUE;
+            }
+            return byUri ? HITS_BY_URI : HITS;
+        }
+
+        public boolean isUnique() {
+            return unique;
+        }
+
+        public String getTag() {
+            return name().toLowerCase().replace('_', '-');
+        }
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.service;
+
+import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Profile;
+import org.springframework.http.ResponseEntity;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.reactive.TransactionalOperator;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Mono;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.repository.ReactiveHitRepository;
+import ru.practicum.repository.StatQueries;
+import ru.practicum.validation.IpAddressValidator;
+
+import java.time.LocalDate;
+import java.time.LocalDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.Collections;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.function.Function;
+
+/**
+ * Counterpart of {@link StatService} for the reactive runtime: the same tables and response
+ * semantics, served over R2DBC without blocking request threads.
+ * <p>
+ * Unique counts are always exact here, the sketch merge of {@link StatService} reads sketches
+ * through blocking JDBC. Hits still update the in-memory sketches so both runtimes can share a database.
+ * Range limits and query slots come from {@link QueryGuard}; slots are taken without waiting, so a busy
+ * class is answered with 503 at once. URI patterns, {@code aggregate} and {@code groupBy} are not supported
+ * and are answered with 400 rather than ignored.
+ */
+@Service
+@Profile("reactive")
+@RequiredArgsConstructor
+public class ReactiveStatService {
+    private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
+    private static final String GROUP_BY_URI = "uri";
+    private final ReactiveHitRepository hitRepository;
+    private final TransactionalOperator transactionalOperator;
+    private final SketchService sketchService;
+    private final HitDeduplicator hitDeduplicator;
+    private final RegionService regionService;
+    private final QueryGuard queryGuard;
+    private final Map<String, Integer> appIds = new ConcurrentHashMap<>();
+    private final Map<String, Integer> uriIds = new ConcurrentHashMap<>();
+
+    @Value("${stats.retention.raw-days:0}")
+    private int rawRetentionDays;
+
+    public Mono<Void> addRequests(List<RequestDTO> hits) {
+        List<RequestDTO> requestDtos = hitDeduplicator.filter(hits);
+        if (requestDtos.isEmpty()) return Mono.empty();
+
+        return Mono.zip(resolveAll(requestDtos, RequestDTO::getApp, this::resolveAppId),
+                        resolveAll(requestDtos, RequestDTO::getUri, this::resolveUriId))
+                .flatMap(ids -> hitRepository.insertAll(requestDtos, ids.getT1(), ids.getT2(), regionService::regionOf)
+                        .then(hitRepository.addRollups(requestDtos, ids.getT1(), ids.getT2()))
+                        .as(transactionalOperator::transactional)
+                        .doOnSuccess(ignored -> sketchService.addAll(requestDtos, ids.getT1(), ids.getT2())))
+                .doOnError(e -> hitDeduplicator.forget(requestDtos));
+    }
+
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getRequestsWithViews(String start, String end, List<String> uris,
+                                                                        Boolean unique, Boolean aggregate,
+                                                                        String groupBy) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+            if (startDT.isEqual(endDT) || startDT.isAfter(endDT)) return Mono.just(ResponseEntity.badRequest().build());
+        } catch (DateTimeParseException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (aggregate || (groupBy != null && !GROUP_BY_URI.equalsIgnoreCase(groupBy)) || hasPattern(uris)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        // unique counts are exact over the raw hits only
+        if (unique && startDT.isBefore(rawCutoff())) return Mono.just(ResponseEntity.badRequest().build());
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(unique, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
+
+        return guarded(queryClass, findUriIds(uris)
+                .flatMap(ids -> {
+                    if (ids.isPresent() && ids.get().isEmpty()) return Mono.just(Collections.<RequestOutDTO>emptyList());
+                    StatQueries.Query query = unique
+                            ? StatQueries.rawHits(startDT, endDT.plusSeconds(1), ids.orElse(null), true, null, null)
+                            : StatQueries.hits(WindowPlan.of(startDT, endDT.plusSeconds(1)), ids.orElse(null), null);
+                    return hitRepository.query(query).collectList();
+                }))
+                .map(result -> ResponseEntity.ok().body(result));
+    }
+
+    public Mono<ResponseEntity<List<RequestOutDTO>>> getRequestsWithViewsByIp(String start, String end, List<String> uris,
+                                                                            Boolean unique, String ip) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+        } catch (DateTimeParseException e) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        if (ip == null || IpAddressValidator.toBytes(ip) == null || hasPattern(uris)) {
+            return Mono.just(ResponseEntity.badRequest().build());
+        }
+        // per IP counts only exist in the raw hits
+        if (startDT.isBefore(rawCutoff())) return Mono.just(ResponseEntity.badRequest().build());
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(unique, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
+
+        return guarded(queryClass, findUriIds(uris)
+                .flatMap(ids -> {
+                    if (ids.isPresent() && ids.get().isEmpty()) return Mono.just(Collections.<RequestOutDTO>emptyList());
+                    return hitRepository.query(StatQueries.rawHits(startDT, endDT.plusSeconds(1), ids.orElse(null),
+                            unique, ip, null)).collectList();
+                }))
+                .map(result -> ResponseEntity.ok().body(result));
+    }
+
+    /**
+     * Runs the query under a slot of its class, taken when the query is subscribed and released when it ends.
+     */
+    private <T> Mono<T> guarded(QueryGuard.QueryClass queryClass, Mono<T> query) {
+        return Mono.using(() -> queryGuard.tryAcquire(queryClass),
+                permit -> query.onErrorMap(RuntimeException.class, permit::translate),
+                QueryGuard.Permit::close);
+    }
+
+    private static boolean hasPattern(List<String> uris) {
+        return uris != null && uris.stream().anyMatch(UriPattern::isPattern);
+    }
+
+    /**
+     * Start of the raw hits still kept, {@link LocalDateTime#MIN} without raw retention.
+     */
+    private LocalDateTime rawCutoff() {
+        return rawRetentionDays > 0 ? LocalDate.now().minusDays(rawRetentionDays).atStartOfDay() : LocalDateTime.MIN;
+    }
+
+    private Mono<Optional<List<Integer>>> findUriIds(List<String> uris) {
+        if (uris == null || uris.isEmpty()) return Mono.just(Optional.empty());
+        return hitRepository.findUriIds(uris).map(Optional::of);
+    }
+
+    private Mono<Integer> resolveAppId(String name) {
+        Integer id = appIds.get(name);
+        if (id != null) return Mono.just(id);
+        return hitRepository.resolveAppId(name)
+                .doOnNext(appId -> appIds.put(name, appId));
+    }
+
+    private Mono<Integer> resolveUriId(String uri) {
+        Integer id = uriIds.get(uri);
+        if (id != null) return Mono.just(id);
+        return hitRepository.resolveUriId(uri)
+                .doOnNext(uriId -> uriIds.put(uri, uriId));
+    }
+
+    private static Mono<Map<String, Integer>> resolveAll(List<RequestDTO> requestDtos,
+                                                         Function<RequestDTO, String> name,
+                                                         Function<String, Mono<Integer>> resolver) {
+        return Flux.fromIterable(requestDtos)
+                .map(name)
+                .distinct()
+                .flatMap(value -> resolver.apply(value).map(id -> Map.entry(value, id)))
+                .collectMap(Map.Entry::getKey, Map.Entry::getValue);
+    }
+}
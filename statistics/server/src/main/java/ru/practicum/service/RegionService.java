@@ -0,0 +1,50 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.region.IpRangeIndex;
+
+import javax.annotation.PostConstruct;
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Path;
+
+/**
+ * Region of a visitor IP, looked up when hits are written. Regions come from the IP range file at
+ * {@code stats.region.database} (see {@link IpRangeIndex#load}) loaded on startup; without it no hit
+ * has a region.
+ */
+@Slf4j
+@Service
+public class RegionService {
+    public static final String UNKNOWN = "unknown";
+
+    private final String database;
+    private volatile IpRangeIndex index = IpRangeIndex.EMPTY;
+
+    public RegionService(@Value("${stats.region.database:}") String database, MeterRegistry meterRegistry) {
+        this.database = database;
+        Gauge.builder("stats.region.ranges", this, service -> service.index.size()).register(meterRegistry);
+    }
+
+    @PostConstruct
+    public void load() {
+        if (database.isBlank()) return;
+        try {
+            index = IpRangeIndex.load(Path.of(database));
+        } catch (IOException e) {
+            throw new UncheckedIOException("Failed to load the region database " + database, e);
+        }
+        log.info("Loaded {} IP ranges of {} regions from {}", index.size(), index.getRegionCount(), database);
+    }
+
+    /**
+     * @return the region of {@code ip}, {@code null} when it is unknown
+     */
+    public String regionOf(String ip) {
+        return index.find(ip);
+    }
+}
@@ -0,0 +1,175 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.micrometer.core.instrument.Timer;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.stereotype.Component;
+import org.springframework.web.server.ResponseStatusException;
+import ru.practicum.RequestDTO;
+import ru.practicum.ring.HitRingBuffer;
+import ru.practicum.ring.WaitStrategy;
+
+import javax.annotation.PreDestroy;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.function.Function;
+
+/**
+ * Hands hits from request threads to a few consumer threads through a {@link HitRingBuffer}.
+ * Consumers drop malformed hits and persist the rest in batches through {@link HitWriter}; batches that
+ * still fail after a few attempts, and hits the database refuses, go to the {@link HitQuarantine}.
+ * <p>
+ * A hit is acknowledged once it is published. The hits of a request are published all together or not
+ * at all: when the ring has no room for them for {@code offer-timeout-ms} the request is rejected with
+ * {@code 503} and can be retried without duplicates. Queries first wait until the hits published before
+ * them are stored.
+ */
+@Slf4j
+@Component
+@ConditionalOnProperty(name = "stats.ingest.mode", havingValue = "ring")
+public class RingHitIngestor implements HitIngestor {
+    private static final int WRITE_ATTEMPTS = 3;
+
+    private final HitRingBuffer ring;
+    private final HitWriter hitWriter;
+    private final HitQuarantine quarantine;
+    private final StatsCache statsCache;
+    private final int batchSize;
+    private final long offerTimeoutNanos;
+    private final List<Thread> consumers = new ArrayList<>();
+    private volatile boolean running = true;
+
+    private final Counter published;
+    private final Counter rejected;
+    private final Counter dropped;
+    private final Counter failed;
+    private final Timer latency;
+
+    public RingHitIngestor(HitWriter hitWriter,
+                           HitQuarantine quarantine,
+                           StatsCache statsCache,
+                           MeterRegistry meterRegistry,
+                           @Value("${stats.ring.capacity:65536}") int capacity,
+                           @Value("${stats.ring.consumers:2}") int consumerCount,
+                           @Value("${stats.ring.batch-size:500}") int batchSize,
+                           @Value("${stats.ring.wait-strategy:SLEEPING}") WaitStrategy waitStrategy,
+                           @Value("${stats.ring.offer-timeout-ms:100}") long offerTimeoutMs) {
+        this.ring = new HitRingBuffer(capacity, waitStrategy);
+        this.hitWriter = hitWriter;
+        this.quarantine = quarantine;
+        this.statsCache = statsCache;
+        this.batchSize = batchSize;
+        this.offerTimeoutNanos = TimeUnit.MILLISECONDS.toNanos(offerTimeoutMs);
+        this.published = meterRegistry.counter("stats.ring.published");
+        this.rejected = meterRegistry.counter("stats.ring.rejected");
+        this.dropped = meterRegistry.counter("stats.ring.dropped");
+        this.failed = meterRegistry.counter("stats.ring.failed");
+        this.latency = Timer.builder("stats.ring.latency")
+                .description("Time from publishing a hit to its commit")
+                .publishPercentiles(0.5, 0.99)
+                .register(meterRegistry);
+        Gauge.builder("stats.ring.depth", ring, HitRingBuffer::size).register(meterRegistry);
+
+        for (int i = 0; i < consumerCount; i++) {
+            Thread consumer = new Thread(this::consume, "stats-ring-consumer-" + i);
+            consumer.setDaemon(true);
+            consumers.add(consumer);
+        }
+        consumers.forEach(Thread::start);
+    }
+
+    @Override
+    public void ingest(List<RequestDTO> hits) {
+        if (hits.size() > ring.getCapacity()) {
+            throw new ResponseStatusException(HttpStatus.PAYLOAD_TOO_LARGE, "Too many hits in one request.");
+        }
+        if (!ring.offerAll(hits, offerTimeoutNanos)) {
+            rejected.increment();
+            throw new ResponseStatusException(HttpStatus.SERVICE_UNAVAILABLE, "Hit ingestion queue is full.");
+        }
+        published.increment(hits.size());
+        statsCache.onHits(hits);
+    }
+
+    @Override
+    public <T> T query(Function<PendingHits, T> query) {
+        drain();
+        return query.apply(PendingHits.EMPTY);
+    }
+
+    @Override
+    public void drain() {
+        ring.awaitConsumed(ring.getPublished());
+    }
+
+    @PreDestroy
+    public void close() throws InterruptedException {
+        drain();
+        running = false;
+        for (Thread consumer : consumers) {
+            consumer.join(TimeUnit.SECONDS.toMillis(5));
+        }
+    }
+
+    private void consume() {
+        HitRingBuffer.Reader reader = ring.newReader();
+        List<RequestDTO> batch = new ArrayList<>(batchSize);
+        long[] publishedAt = new long[batchSize];
+
+        while (running) {
+            try {
+                if (reader.poll(batch, publishedAt, batchSize) == 0 && batch.isEmpty()) {
+                    reader.await();
+                    continue;
+                }
+                if (batch.size() < batchSize && reader.poll(batch, publishedAt, batchSize - batch.size()) > 0) {
+                    continue;
+                }
+
+                write(batch, publishedAt);
+            } catch (Throwable e) {
+                // a dead consumer would never release its hits and drain() would wait for it forever
+                log.error("Ring consumer failed on {} hits", batch.size(), e);
+                if (!batch.isEmpty()) quarantine.add(new ArrayList<>(batch), e);
+            }
+            batch.clear();
+            reader.release();
+        }
+    }
+
+    private void write(List<RequestDTO> batch, long[] publishedAt) {
+        int size = batch.size();
+        batch.removeIf(hit -> hit == null || hit.getApp() == null || hit.getUri() == null
+                || hit.getIp() == null || hit.getTimestamp() == null);
+        dropped.increment(size - batch.size());
+
+        for (int attempt = 1; attempt <= WRITE_ATTEMPTS; attempt++) {
+            try {
+                hitWriter.write(batch);
+                long now = System.nanoTime();
+                for (int i = 0; i < size; i++) {
+                    latency.record(now - publishedAt[i], TimeUnit.NANOSECONDS);
+                }
+                return;
+            } catch (DataIntegrityViolationException e) {
+                // retrying the batch would fail the same way, store the hits the database accepts
+                quarantine.writeEach(batch);
+                return;
+            } catch (RuntimeException e) {
+                if (attempt == WRITE_ATTEMPTS) {
+                    failed.increment(batch.size());
+                    quarantine.add(new ArrayList<>(batch), e);
+                } else {
+                    log.debug("Retrying to store {} hits: {}", batch.size(), e.getMessage());
+                }
+            }
+        }
+    }
+}
@@ -0,0 +1,218 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.RequestDTO;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.validation.IpAddressValidator;
+
+import javax.annotation.PreDestroy;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Maintains hourly HyperLogLog sketches of visitor IPs per (app, uri).
+ * <p>
+ * Incoming hits update in-memory sketches which are merged into {@code uri_sketches} on a schedule.
+ * Readers merge the stored and the in-memory sketches; a HyperLogLog union is idempotent, so a sketch
+ * that is both pending and already flushed is never counted twice. Readers copy the pending sketches before
+ * reading the stored ones, a sketch flushed in between is then found in one or the other.
+ * <p>
+ * IPs are hashed in their binary form, see {@link #hashIp}, so that the sketches agree with each other and with
+ * the distinct IPs read back from {@code requests} however the addresses were written.
+ */
+@Slf4j
+@Service
+public class SketchService {
+    private final Map<SketchKey, PendingSketch> pending = new ConcurrentHashMap<>();
+    private final SketchRepository sketchRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int precision;
+
+    public SketchService(SketchRepository sketchRepository,
+                         PlatformTransactionManager transactionManager,
+                         @Value("${stats.unique.relative-error:0.02}") double relativeError) {
+        this.sketchRepository = sketchRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.precision = HyperLogLog.precisionFor(relativeError);
+    }
+
+    public void addAll(List<RequestDTO> hits, Map<String, Integer> appIds, Map<String, Integer> uriIds) {
+        for (RequestDTO hit : hits) {
+            SketchKey key = new SketchKey(appIds.get(hit.getApp()), uriIds.get(hit.getUri()),
+                    hit.getTimestamp().truncatedTo(ChronoUnit.HOURS));
+            long hash = hashIp(hit.getIp());
+            // added under the map lock of the key, so that flush() cannot remove the sketch in between
+            pending.compute(key, (k, sketch) -> {
+                PendingSketch current = sketch != null ? sketch : new PendingSketch(hit.getApp(), hit.getUri(), precision);
+                current.add(hash);
+                return current;
+            });
+        }
+    }
+
+    /**
+     * Sketch hash of the binary address, so that every spelling of an address, e.g. {@code 2001:DB8::1} as sent
+     * by a client and {@code 2001:db8::1} as printed by PostgreSQL, is counted as one visitor.
+     */
+    public static long hashIp(String ip) {
+        byte[] address = IpAddressValidator.toBytes(ip);
+        return HyperLogLog.hash(address != null ? address : ip.getBytes(StandardCharsets.UTF_8));
+    }
+
+    /**
+     * Merged sketches per (app, uri) for the hour buckets in {@code [from, to)}.
+     */
+    public Map<List<String>, HyperLogLog> findSketches(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        Map<SketchKey, PendingSketch> inMemory = snapshotPending(from, to, uriIds);
+        Map<List<String>, HyperLogLog> result = new HashMap<>();
+
+        sketchRepository.forEachInRange(from, to, uriIds, (app, uri, bucket, bytes) ->
+                merge(result, app, uri, HyperLogLog.fromBytes(bytes)));
+
+        inMemory.values().forEach(sketch -> merge(result, sketch.app, sketch.uri, sketch.sketch));
+        return result;
+    }
+
+    /**
+     * Merged sketches per (app, uri) and {@code unit}-wide bucket for the hour buckets in {@code [from, to)}.
+     */
+    public Map<List<String>, Map<LocalDateTime, HyperLogLog>> findSketchSeries(LocalDateTime from, LocalDateTime to,
+                                                                              List<Integer> uriIds, ChronoUnit unit) {
+        Map<SketchKey, PendingSketch> inMemory = snapshotPending(from, to, uriIds);
+        Map<List<String>, Map<LocalDateTime, HyperLogLog>> result = new HashMap<>();
+
+        sketchRepository.forEachInRange(from, to, uriIds, (app, uri, bucket, bytes) ->
+                merge(result.computeIfAbsent(Arrays.asList(app, uri), key -> new HashMap<>()),
+                        bucket.truncatedTo(unit), HyperLogLog.fromBytes(bytes)));
+
+        inMemory.forEach((key, sketch) ->
+                merge(result.computeIfAbsent(Arrays.asList(sketch.app, sketch.uri), k -> new HashMap<>()),
+                        key.bucket.truncatedTo(unit), sketch.sketch));
+        return result;
+    }
+
+    public HyperLogLog newSketch() {
+        return new HyperLogLog(precision);
+    }
+
+    @Scheduled(fixedDelayString = "${stats.unique.flush-interval-ms:10000}")
+    public void flush() {
+        pending.forEach((key, sketch) -> {
+            long version = sketch.getVersion();
+            HyperLogLog snapshot = sketch.snapshot();
+            try {
+                transactionTemplate.executeWithoutResult(status -> {
+                    byte[] stored = sketchRepository.findForUpdate(key.appId, key.uriId, key.bucket);
+                    if (stored != null) {
+                        snapshot.merge(HyperLogLog.fromBytes(stored));
+                    }
+                    sketchRepository.save(key.appId, key.uriId, key.bucket, snapshot.toBytes());
+                });
+            } catch (RuntimeException e) {
+                log.warn("Failed to flush sketch for uri id {} at {}: {}", key.uriId, key.bucket, e.getMessage());
+                return;
+            }
+            pending.computeIfPresent(key, (k, current) -> current.getVersion() == version ? null : current);
+        });
+    }
+
+    @PreDestroy
+    public void shutdown() {
+        flush();
+    }
+
+    /**
+     * Copies of the pending sketches of the hour buckets in {@code [from, to)}.
+     */
+    private Map<SketchKey, PendingSketch> snapshotPending(LocalDateTime from, LocalDateTime to, List<Integer> uriIds) {
+        Set<Integer> uriIdSet = uriIds == null ? null : new HashSet<>(uriIds);
+        Map<SketchKey, PendingSketch> copies = new HashMap<>();
+        pending.forEach((key, sketch) -> {
+            if (!key.bucket.isBefore(from) && key.bucket.isBefore(to) && (uriIdSet == null || uriIdSet.contains(key.uriId))) {
+                copies.put(key, new PendingSketch(sketch.app, sketch.uri, sketch.snapshot()));
+            }
+        });
+        return copies;
+    }
+
+    private static void merge(Map<List<String>, HyperLogLog> result, String app, String uri, HyperLogLog sketch) {
+        merge(result, Arrays.asList(app, uri), sketch);
+    }
+
+    private static <K> void merge(Map<K, HyperLogLog> result, K key, HyperLogLog sketch) {
+        result.merge(key, sketch, (left, right) -> {
+            left.merge(right);
+            return left;
+        });
+    }
+
+    private static class PendingSketch {
+        private final String app;
+        private final String uri;
+        private final HyperLogLog sketch;
+        private long version;
+
+        PendingSketch(String app, String uri, int precision) {
+            this(app, uri, new HyperLogLog(precision));
+        }
+
+        PendingSketch(String app, String uri, HyperLogLog sketch) {
+            this.app = app;
+            this.uri = uri;
+            this.sketch = sketch;
+        }
+
+        synchronized void add(long hash) {
+            sketch.addHash(hash);
+            version++;
+        }
+
+        synchronized long getVersion() {
+            return version;
+        }
+
+        synchronized HyperLogLog snapshot() {
+            return sketch.copy();
+        }
+    }
+
+    private static class SketchKey {
+        private final int appId;
+        private final int uriId;
+        private final LocalDateTime bucket;
+
+        SketchKey(int appId, int uriId, LocalDateTime bucket) {
+            this.appId = appId;
+            this.uriId = uriId;
+            this.bucket = bucket;
+        }
+
+        @Override
+        public boolean equals(Object o) {
+            if (this == o) return true;
+            if (!(o instanceof SketchKey)) return false;
+            SketchKey that = (SketchKey) o;
+            return appId == that.appId && uriId == that.uriId && bucket.equals(that.bucket);
+        }
+
+        @Override
+        public int hashCode() {
+            return Objects.hash(appId, uriId, bucket);
+        }
+    }
+}
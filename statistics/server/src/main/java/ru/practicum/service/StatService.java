@@ -1,44 +1,125 @@
 package ru.practicum.service;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
+import com.fasterxml.jackson.databind.SequenceWriter;
 import lombok.RequiredArgsConstructor;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
+import org.springframework.jdbc.core.RowCallbackHandler;
 import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
 import org.springframework.transaction.annotation.Transactional;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.server.ResponseStatusException;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 import ru.practicum.RequestDTO;
 import ru.practicum.RequestOutDTO;
-import ru.practicum.mapper.StatMapper;
-import ru.practicum.model.Application;
-import ru.practicum.model.Request;
-import ru.practicum.repository.ApplicationRepository;
-import ru.practicum.repository.RequestRepository;
+import ru.practicum.RequestSeriesDTO;
+import ru.practicum.SeriesPointDTO;
+import ru.practicum.TopRequestDTO;
+import ru.practicum.UniqueSketchDTO;
+import ru.practicum.repository.HitJdbcRepository;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.repository.StatStreamRepository;
+import ru.practicum.sketch.HyperLogLog;
+import ru.practicum.validation.IpAddressValidator;
 
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.time.LocalDate;
 import java.time.LocalDateTime;
 import java.time.format.DateTimeFormatter;
 import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
 import java.util.List;
-import java.util.Optional;
+import java.util.Map;
+import java.util.Set;
+import java.util.TreeMap;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
 
 @Service
 @RequiredArgsConstructor
 public class StatService {
     private static final DateTimeFormatter DTF = DateTimeFormatter.ofPattern("yyyy-MM-dd HH:mm:ss");
-    private final RequestRepository requestRepository;
-    private final ApplicationRepository appRepository;
-    private final StatMapper mapper;
+    private static final String GROUP_BY_URI = "uri";
+    private static final String GROUP_BY_REGION = "region";
+    private final HitJdbcRepository hitJdbcRepository;
+    private final RollupRepository rollupRepository;
+    private final SketchService sketchService;
+    private final UriDictionary uriDictionary;
+    private final StatStreamRepository statStreamRepository;
+    private final PlatformTransactionManager transactionManager;
+    private final ObjectMapper objectMapper;
+    private final StatsCache statsCache;
+    private final HitIngestor hitIngestor;
+    private final TrendingService trendingService;
+    private final TopUriService topUriService;
+    private final HitDeduplicator hitDeduplicator;
+    private final HotWindow hotWindow;
+    private final QueryGuard queryGuard;
+
+    @Value("${stats.unique.exact-max-hours:6}")
+    private long uniqueExactMaxHours;
+
+    @Value("${stats.series.max-points:10000}")
+    private long seriesMaxPoints;
+
+    @Value("${stats.retention.minute-days:0}")
+    private int minuteRetentionDays;
+
+    @Value("${stats.retention.raw-days:0}")
+    private int rawRetentionDays;
+
+    @Value("${stats.trending.max-limit:1000}")
+    private int trendingMaxLimit;
+
+    @Value("${stats.uris.max-filter-ids:1000}")
+    private int maxUriFilterIds;
 
-    @Transactional
     public void addRequest(RequestDTO requestDto) {
-        Optional<Application> optionalApp = appRepository.findByName(requestDto.getApp());
+        addRequests(Collections.singletonList(requestDto));
+    }
 
-        Application app = optionalApp.orElseGet(() -> appRepository.save(new Application(requestDto.getApp())));
+    public void addRequests(List<RequestDTO> requestDtos) {
+        List<RequestDTO> hits = hitDeduplicator.filter(requestDtos);
+        if (hits.isEmpty()) return;
+        try {
+            hitIngestor.ingest(hits);
+        } catch (RuntimeException e) {
+            hitDeduplicator.forget(hits);
+            throw e;
+        }
+        trendingService.record(hits);
+    }
 
-        Request request = mapper.toRequest(requestDto);
-        request.setApp(app);
-        requestRepository.save(request);
+    public ResponseEntity<List<RequestOutDTO>> getTrending(Long minutes, Integer limit, String uriPrefix) {
+        if (minutes <= 0 || minutes > trendingService.getWindowMinutes() || limit <= 0 || limit > trendingMaxLimit) {
+            return ResponseEntity.badRequest().build();
+        }
+        return ResponseEntity.ok().body(trendingService.findTrending(minutes, limit, uriPrefix));
     }
 
+    /**
+     * Hits per (app, uri) in {@code [start, end]}. Entries of {@code uris} may be {@link UriPattern}s; with
+     * {@code aggregate} the rows matching each entry are summed into one row per app carrying the entry as
+     * its uri. Unique visitors are not additive across URIs, so they cannot be aggregated.
+     * <p>
+     * With {@code groupBy=region} the rows are split further by the region of the visitors, counted from the
+     * raw hits since neither the rollups nor the hot window keep regions, so windows starting before the
+     * raw retention cutoff are refused. Short unique windows are counted exactly over the raw hits while
+     * they are kept and estimated from the sketches after that.
+     */
     @Transactional(readOnly = true)
-    public ResponseEntity<List<RequestOutDTO>> getRequestsWithViews(String start, String end, List<String> uris, Boolean unique) {
+    public ResponseEntity<List<RequestOutDTO>> getRequestsWithViews(String start, String end, List<String> uris,
+                                                                    Boolean unique, Boolean aggregate, String groupBy) {
 
         LocalDateTime startDT;
         LocalDateTime endDT;
@@ -49,18 +130,218 @@ public class StatService {
         } catch (DateTimeParseException e) {
             return ResponseEntity.badRequest().build();
         }
+        if (aggregate && (unique || uris == null || uris.isEmpty())) return ResponseEntity.badRequest().build();
+        boolean byRegion = GROUP_BY_REGION.equalsIgnoreCase(groupBy);
+        if (groupBy != null && !byRegion && !GROUP_BY_URI.equalsIgnoreCase(groupBy)) return ResponseEntity.badRequest().build();
+        if (byRegion && (aggregate || startDT.isBefore(rawCutoff()))) return ResponseEntity.badRequest().build();
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(unique, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
 
-        if (unique) {
-            if (uris == null || uris.isEmpty()) {
-                return ResponseEntity.ok().body(requestRepository.getUniqueIpRequestsWithoutUri(startDT, endDT));
+        if (byRegion) {
+            return ResponseEntity.ok().body(queryGuard.execute(queryClass, () -> {
+                hitIngestor.drain();
+                List<Integer> uriIds = uriDictionary.findAll(uriDictionary.expand(uris));
+                if (uriIds != null && uriIds.isEmpty()) return Collections.<RequestOutDTO>emptyList();
+                return hitJdbcRepository.countByRegion(startDT, endDT.plusSeconds(1), uriIds, unique);
+            }));
+        }
+
+        List<RequestOutDTO> result = statsCache.get(startDT, endDT, uris, unique, null, (from, to) -> queryGuard.execute(queryClass, () -> {
+            if (unique) {
+                hitIngestor.drain();
+                return findRequestsWithViews(from, to, uriDictionary.expand(uris), true);
             }
-            return ResponseEntity.ok().body(requestRepository.getUniqueIpRequestsWithUri(startDT, endDT, uris));
-        } else {
-            if (uris == null || uris.isEmpty()) {
-                return ResponseEntity.ok().body(requestRepository.getAllRequestsWithoutUri(startDT, endDT));
+            return hitIngestor.query(pending -> withPending(
+                    findRequestsWithViews(from, to, uriDictionary.expand(uris), false), pending, from, to, uris));
+        }));
+        return ResponseEntity.ok().body(aggregate ? sumByEntry(result, uris) : result);
+    }
+
+    /**
+     * Same aggregation as {@link #getRequestsWithViews} written as newline-delimited JSON while the
+     * rows are read from a database cursor, so memory use does not depend on the number of URIs.
+     */
+    public ResponseEntity<StreamingResponseBody> streamRequestsWithViews(String start, String end, List<String> uris,
+                                                                         Boolean unique, Integer limit) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+            if (startDT.isEqual(endDT) || startDT.isAfter(endDT)) return ResponseEntity.badRequest().build();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (limit != null && limit <= 0) return ResponseEntity.badRequest().build();
+        if (unique && startDT.isBefore(rawCutoff())) return ResponseEntity.badRequest().build();
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(unique, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
+        // the status is sent before the body runs, so the slot is taken here and held until the body is written
+        QueryGuard.Permit permit = queryGuard.acquire(queryClass);
+        List<Integer> uriIds;
+        try {
+            hitIngestor.drain();
+            uriIds = uriDictionary.findAll(uriDictionary.expand(uris));
+        } catch (RuntimeException e) {
+            permit.close();
+            throw e;
+        }
+        ResponseEntity.BodyBuilder response = ResponseEntity.ok().contentType(MediaType.APPLICATION_NDJSON);
+        if (uriIds != null && uriIds.isEmpty()) {
+            permit.close();
+            return response.body(out -> { });
+        }
+
+        return response.body(out -> {
+            try {
+                SequenceWriter writer = objectMapper.writer().withRootValueSeparator("\n").writeValues(out);
+                RowCallbackHandler handler = rs -> {
+                    try {
+                        writer.write(new RequestOutDTO(rs.getString("app"), rs.getString("uri"), rs.getLong("hits")));
+                    } catch (IOException e) {
+                        throw new UncheckedIOException(e);
+                    }
+                };
+
+                TransactionTemplate transaction = new TransactionTemplate(transactionManager);
+                transaction.setReadOnly(true);
+                permit.run(() -> transaction.execute(status -> {
+                    if (unique) {
+                        statStreamRepository.streamUniqueHits(startDT, endDT.plusSeconds(1), uriIds, limit, handler);
+                    } else {
+                        statStreamRepository.streamHits(WindowPlan.of(startDT, endDT.plusSeconds(1)), uriIds, limit, handler);
+                    }
+                    return null;
+                }));
+                writer.flush();
+            } finally {
+                permit.close();
             }
-            return ResponseEntity.ok().body(requestRepository.getAllRequestsWithUri(startDT, endDT, uris));
+        });
+    }
+
+    /**
+     * Hit and unique visitor counts of every (app, uri) per {@code bucket} over the buckets that intersect
+     * {@code [start, end]}. Hits come from the rollups, falling back to raw hits where minute rollups have
+     * expired. Unique counts are exact per minute and estimated from the hourly sketches for hours and days;
+     * points whose visitors are not kept any more, such as minutes older than the raw hits, carry none.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<RequestSeriesDTO>> getSeries(String start, String end, List<String> uris, String bucket) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        TimeBucket timeBucket;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+            if (startDT.isEqual(endDT) || startDT.isAfter(endDT)) return ResponseEntity.badRequest().build();
+            timeBucket = TimeBucket.valueOf(bucket.toUpperCase());
+        } catch (DateTimeParseException | IllegalArgumentException e) {
+            return ResponseEntity.badRequest().build();
         }
+
+        LocalDateTime from = timeBucket.truncate(startDT);
+        LocalDateTime to = timeBucket.truncate(endDT).plus(1, timeBucket.getUnit());
+        if (timeBucket.getUnit().between(from, to) > seriesMaxPoints) {
+            throw new ResponseStatusException(HttpStatus.BAD_REQUEST, "window longer than " + seriesMaxPoints + " buckets");
+        }
+
+        // every point carries a visitor count, so the series runs as a unique query
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(true, uris);
+        return ResponseEntity.ok().body(queryGuard.execute(queryClass, () -> {
+            List<Integer> uriIds = uriDictionary.findAll(uriDictionary.expand(uris));
+            if (uriIds != null && uriIds.isEmpty()) return Collections.<RequestSeriesDTO>emptyList();
+            hitIngestor.drain();
+
+            Map<List<String>, Map<LocalDateTime, long[]>> points = new HashMap<>();
+            RollupRepository.SeriesConsumer hits = (app, uri, time, count) -> point(points, app, uri, time)[0] += count;
+            RollupRepository.SeriesConsumer uniqueHits = (app, uri, time, count) -> point(points, app, uri, time)[1] = count;
+
+            if (timeBucket == TimeBucket.MINUTE) {
+                LocalDateTime rolledUpFrom = from;
+                if (minuteRetentionDays > 0) {
+                    LocalDateTime cutoff = LocalDate.now().minusDays(minuteRetentionDays).atStartOfDay();
+                    rolledUpFrom = cutoff.isAfter(from) ? (cutoff.isBefore(to) ? cutoff : to) : from;
+                }
+                if (from.isBefore(rolledUpFrom)) {
+                    hitJdbcRepository.countSeries(timeBucket.getField(), false, from, rolledUpFrom, uriIds, hits);
+                }
+                if (rolledUpFrom.isBefore(to)) {
+                    rollupRepository.countSeries(RollupRepository.MINUTE_TABLE, timeBucket.getField(), rolledUpFrom, to,
+                            uriIds, hits);
+                }
+                LocalDateTime cutoff = rawCutoff();
+                LocalDateTime rawFrom = cutoff.isAfter(from) ? (cutoff.isBefore(to) ? cutoff : to) : from;
+                if (rawFrom.isBefore(to)) {
+                    hitJdbcRepository.countSeries(timeBucket.getField(), true, rawFrom, to, uriIds, uniqueHits);
+                }
+            } else {
+                rollupRepository.countSeries(RollupRepository.HOUR_TABLE, timeBucket.getField(), from, to, uriIds, hits);
+                sketchService.findSketchSeries(from, to, uriIds, timeBucket.getUnit()).forEach((key, sketches) ->
+                        sketches.forEach((time, sketch) ->
+                                uniqueHits.accept(key.get(0), key.get(1), time, sketch.estimate())));
+            }
+
+            List<RequestSeriesDTO> result = new ArrayList<>();
+            points.forEach((key, series) -> {
+                List<SeriesPointDTO> seriesPoints = new ArrayList<>();
+                long total = 0;
+                for (Map.Entry<LocalDateTime, long[]> entry : series.entrySet()) {
+                    long unique = entry.getValue()[1];
+                    seriesPoints.add(new SeriesPointDTO(entry.getKey(), entry.getValue()[0], unique < 0 ? null : unique));
+                    total += entry.getValue()[0];
+                }
+                result.add(new RequestSeriesDTO(key.get(0), key.get(1), total, seriesPoints));
+            });
+            result.sort(Comparator.comparing(RequestSeriesDTO::getHits).reversed());
+            return result;
+        }));
+    }
+
+    public ResponseEntity<List<TopRequestDTO>> getTop(String start, String end, Integer k) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+            if (startDT.isAfter(endDT)) return ResponseEntity.badRequest().build();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        if (k <= 0 || k > topUriService.getCapacity()) return ResponseEntity.badRequest().build();
+
+        hitIngestor.drain();
+        return ResponseEntity.ok().body(topUriService.findTop(startDT, endDT, k));
+    }
+
+    /**
+     * Visitor sketches per (app, uri) in {@code [start, end]}, for coordinators that merge unique counts
+     * of several servers.
+     */
+    @Transactional(readOnly = true)
+    public ResponseEntity<List<UniqueSketchDTO>> getUniqueSketches(String start, String end, List<String> uris) {
+        LocalDateTime startDT;
+        LocalDateTime endDT;
+        try {
+            startDT = LocalDateTime.parse(start, DTF);
+            endDT = LocalDateTime.parse(end, DTF);
+            if (startDT.isEqual(endDT) || startDT.isAfter(endDT)) return ResponseEntity.badRequest().build();
+        } catch (DateTimeParseException e) {
+            return ResponseEntity.badRequest().build();
+        }
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(true, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
+
+        List<UniqueSketchDTO> result = queryGuard.execute(queryClass, () -> {
+            List<Integer> uriIds = uriDictionary.findAll(uriDictionary.expand(uris));
+            if (uriIds != null && uriIds.isEmpty()) return Collections.<UniqueSketchDTO>emptyList();
+            hitIngestor.drain();
+            return findUniqueSketches(startDT, endDT, uriIds).entrySet().stream()
+                    .map(entry -> new UniqueSketchDTO(entry.getKey().get(0), entry.getKey().get(1),
+                            entry.getValue().toBytes()))
+                    .collect(Collectors.toList());
+        });
+        return ResponseEntity.ok().body(result);
     }
 
     public ResponseEntity<List<RequestOutDTO>> getRequestsWithViewsByIp(String start, String end, List<String> uris, Boolean unique, String ip) {
@@ -73,17 +354,169 @@ public class StatService {
         } catch (DateTimeParseException e) {
             return ResponseEntity.badRequest().build();
         }
+        if (ip == null || IpAddressValidator.toBytes(ip) == null) return ResponseEntity.badRequest().build();
+        // per IP counts only exist in the raw hits
+        if (startDT.isBefore(rawCutoff())) return ResponseEntity.badRequest().build();
+        QueryGuard.QueryClass queryClass = QueryGuard.QueryClass.of(unique, uris);
+        queryGuard.checkRange(queryClass, startDT, endDT);
 
-        if (unique) {
-            if (uris == null || uris.isEmpty()) {
-                return ResponseEntity.ok().body(requestRepository.getUniqueIpRequestsWithoutUriByIp(startDT, endDT, ip));
-            }
-            return ResponseEntity.ok().body(requestRepository.getUniqueIpRequestsWithUriByIp(startDT, endDT, uris, ip));
-        } else {
-            if (uris == null || uris.isEmpty()) {
-                return ResponseEntity.ok().body(requestRepository.getAllRequestsWithoutUriByIp(startDT, endDT, ip));
+        // pending hits are counted without their IPs, so per IP counts wait for them to be stored
+        return ResponseEntity.ok().body(statsCache.get(startDT, endDT, uris, unique, ip, (from, to) -> queryGuard.execute(queryClass, () -> {
+            hitIngestor.drain();
+            return findRequestsWithViewsByIp(from, to, uriDictionary.expand(uris), unique, ip);
+        })));
+    }
+
+    private List<RequestOutDTO> findRequestsWithViews(LocalDateTime startDT, LocalDateTime endDT, List<String> uris, Boolean unique) {
+        if (uris != null && uris.isEmpty()) return Collections.emptyList();
+        List<Integer> uriIds = uriDictionary.findAll(uris);
+        if (uriIds != null && uriIds.isEmpty()) return Collections.emptyList();
+
+        if (hotWindow.covers(startDT)) {
+            return hotWindow.count(startDT, endDT.plusSeconds(1), uriIds, null, unique);
+        }
+        if (uriIds != null && uriIds.size() > maxUriFilterIds) {
+            // scanning the whole window is cheaper than a huge IN list, matching rows are kept in one pass
+            return keepUris(countStored(startDT, endDT, null, unique), uris);
+        }
+        return countStored(startDT, endDT, uriIds, unique);
+    }
+
+    private List<RequestOutDTO> countStored(LocalDateTime startDT, LocalDateTime endDT, List<Integer> uriIds, boolean unique) {
+        if (unique && !startDT.plusHours(uniqueExactMaxHours).isBefore(endDT) && !startDT.isBefore(rawCutoff())) {
+            return hitJdbcRepository.countRawHits(startDT, endDT.plusSeconds(1), uriIds, true, null);
+        }
+        return unique ? estimateUniqueHits(startDT, endDT, uriIds) : countHits(startDT, endDT, uriIds);
+    }
+
+    private List<RequestOutDTO> findRequestsWithViewsByIp(LocalDateTime startDT, LocalDateTime endDT, List<String> uris,
+                                                          Boolean unique, String ip) {
+        if (uris != null && uris.isEmpty()) return Collections.emptyList();
+        List<Integer> uriIds = uriDictionary.findAll(uris);
+        if (uriIds != null && uriIds.isEmpty()) return Collections.emptyList();
+
+        if (hotWindow.covers(startDT)) {
+            return hotWindow.count(startDT, endDT.plusSeconds(1), uriIds, ip, unique);
+        }
+        if (uriIds != null && uriIds.size() > maxUriFilterIds) {
+            return keepUris(hitJdbcRepository.countRawHits(startDT, endDT.plusSeconds(1), null, unique, ip), uris);
+        }
+        return hitJdbcRepository.countRawHits(startDT, endDT.plusSeconds(1), uriIds, unique, ip);
+    }
+
+    /**
+     * Start of the raw hits still kept, {@link LocalDateTime#MIN} without raw retention.
+     */
+    private LocalDateTime rawCutoff() {
+        return rawRetentionDays > 0 ? LocalDate.now().minusDays(rawRetentionDays).atStartOfDay() : LocalDateTime.MIN;
+    }
+
+    private static List<RequestOutDTO> keepUris(List<RequestOutDTO> rows, List<String> uris) {
+        Set<String> uriSet = new HashSet<>(uris);
+        return rows.stream()
+                .filter(row -> uriSet.contains(row.getUri()))
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Non-unique hit counts for {@code [start, end]}: hour and minute aligned parts of the window
+     * come from the rollup tables, only the unaligned edges are counted over raw hits.
+     */
+    private List<RequestOutDTO> countHits(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        WindowPlan plan = WindowPlan.of(start, end.plusSeconds(1));
+
+        List<List<RequestOutDTO>> parts = new ArrayList<>();
+        for (WindowPlan.Range range : plan.getHours()) {
+            parts.add(rollupRepository.countHits(RollupRepository.HOUR_TABLE, range.getFrom(), range.getTo(), uriIds));
+        }
+        for (WindowPlan.Range range : plan.getMinutes()) {
+            parts.add(rollupRepository.countHits(RollupRepository.MINUTE_TABLE, range.getFrom(), range.getTo(), uriIds));
+        }
+        for (WindowPlan.Range range : plan.getRaw()) {
+            parts.add(hitJdbcRepository.countHits(range.getFrom(), range.getTo(), uriIds));
+        }
+        return sumByAppAndUri(parts);
+    }
+
+    /**
+     * Unique visitor counts for {@code [start, end]} estimated by merging the hourly sketches.
+     */
+    private List<RequestOutDTO> estimateUniqueHits(LocalDateTime start, LocalDateTime end, List<Integer> uriIds) {
+        return findUniqueSketches(start, end, uriIds).entrySet().stream()
+                .map(entry -> new RequestOutDTO(entry.getKey().get(0), entry.getKey().get(1), entry.getValue().estimate()))
+                .sorted(Comparator.comparing(RequestOutDTO::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    /**
+     * Visitor sketches per (app, uri) for {@code [start, end]}: the stored hourly sketches merged, with the
+     * IPs from the parts of the window that are not hour aligned added to them.
+     */
+    private Map<List<String>, HyperLogLog> findUniqueSketches(LocalDateTime start, LocalDateTime end,
+                                                              List<Integer> uriIds) {
+        WindowPlan plan = WindowPlan.of(start, end.plusSeconds(1));
+
+        Map<List<String>, HyperLogLog> sketches = new HashMap<>();
+        for (WindowPlan.Range range : plan.getHours()) {
+            sketchService.findSketches(range.getFrom(), range.getTo(), uriIds).forEach((key, sketch) ->
+                    sketches.merge(key, sketch, (left, right) -> {
+                        left.merge(right);
+                        return left;
+                    }));
+        }
+
+        List<WindowPlan.Range> edges = new ArrayList<>(plan.getMinutes());
+        edges.addAll(plan.getRaw());
+        for (WindowPlan.Range range : edges) {
+            hitJdbcRepository.forEachDistinctIp(range.getFrom(), range.getTo(), uriIds, (app, uri, ip) ->
+                    sketches.computeIfAbsent(Arrays.asList(app, uri), key -> sketchService.newSketch())
+                            .addHash(SketchService.hashIp(ip)));
+        }
+        return sketches;
+    }
+
+    private static long[] point(Map<List<String>, Map<LocalDateTime, long[]>> points, String app, String uri,
+                                LocalDateTime time) {
+        return points.computeIfAbsent(Arrays.asList(app, uri), key -> new TreeMap<>())
+                .computeIfAbsent(time, key -> new long[]{0, -1});
+    }
+
+    /**
+     * Adds the hits accepted but not yet written to the database that fall into {@code [start, end]}.
+     */
+    private static List<RequestOutDTO> withPending(List<RequestOutDTO> stored, PendingHits pending,
+                                                   LocalDateTime start, LocalDateTime end, List<String> uris) {
+        List<RequestOutDTO> fresh = pending.count(start, end.plusSeconds(1), UriPattern.matcher(uris));
+        if (fresh.isEmpty()) return stored;
+        return sumByAppAndUri(Arrays.asList(stored, fresh));
+    }
+
+    /**
+     * Sums the rows matching each of {@code uris} into one row per app and entry.
+     */
+    private static List<RequestOutDTO> sumByEntry(List<RequestOutDTO> rows, List<String> uris) {
+        List<RequestOutDTO> sums = new ArrayList<>();
+        for (String entry : uris) {
+            Predicate<String> matcher = UriPattern.matcher(Collections.singletonList(entry));
+            sums.addAll(rows.stream()
+                    .filter(row -> matcher.test(row.getUri()))
+                    .map(row -> new RequestOutDTO(row.getApp(), entry, row.getHits()))
+                    .collect(Collectors.toList()));
+        }
+        return sumByAppAndUri(Collections.singletonList(sums));
+    }
+
+    private static List<RequestOutDTO> sumByAppAndUri(List<List<RequestOutDTO>> parts) {
+        Map<List<String>, Long> hits = new HashMap<>();
+        for (List<RequestOutDTO> part : parts) {
+            for (RequestOutDTO row : part) {
+                hits.merge(Arrays.asList(row.getApp(), row.getUri()), row.getHits(), Long::sum);
             }
-            return ResponseEntity.ok().body(requestRepository.getAllRequestsWithUriByIp(startDT, endDT, uris, ip));
         }
+
+        return hits.entrySet().stream()
+                .map(entry -> new RequestOutDTO(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .sorted(Comparator.comparing(RequestOutDTO::getHits).reversed())
+                .collect(Collectors.toList());
     }
 }
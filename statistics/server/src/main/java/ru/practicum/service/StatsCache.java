@@ -0,0 +1,234 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import lombok.AllArgsConstructor;
+import lombok.EqualsAndHashCode;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.TreeSet;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.function.BinaryOperator;
+import java.util.function.Supplier;
+import java.util.stream.Collectors;
+
+/**
+ * Size-bounded LRU cache of /stats and /statsByIp results.
+ * <p>
+ * A window is split at {@code stats.cache.bucket-seconds} boundaries: the aligned interior is cached, keyed by
+ * its buckets, so nearby windows such as the sliding hour of a first-view check share it, and only the ragged
+ * edges are counted on every request. Hit counts of the parts add up; unique counts of a single IP are 0 or 1
+ * per (app, uri) and combine by maximum. Unique counts over all IPs do not combine, so those are cached for the
+ * exact window. Every ingested hit marks its bucket as modified and an entry is only served while none of the
+ * buckets it covers changed after its computation started.
+ */
+@Component
+public class StatsCache {
+    private final Map<Key, Entry> entries;
+    private final NavigableMap<Long, Long> modifiedBuckets = new ConcurrentSkipListMap<>();
+    private final long bucketSeconds;
+    private final long ttlNanos;
+    private final boolean enabled;
+
+    private final Counter hits;
+    private final Counter misses;
+    private final Counter invalidations;
+    private final Counter evictions;
+
+    public StatsCache(MeterRegistry meterRegistry,
+                      @Value("${stats.cache.enabled:true}") boolean enabled,
+                      @Value("${stats.cache.max-entries:10000}") int maxEntries,
+                      @Value("${stats.cache.bucket-seconds:60}") long bucketSeconds,
+                      @Value("${stats.cache.ttl-seconds:600}") long ttlSeconds) {
+        this.enabled = enabled;
+        this.bucketSeconds = bucketSeconds;
+        this.ttlNanos = ttlSeconds * 1_000_000_000L;
+        this.hits = meterRegistry.counter("stats.cache.hits");
+        this.misses = meterRegistry.counter("stats.cache.misses");
+        this.invalidations = meterRegistry.counter("stats.cache.invalidations");
+        this.evictions = meterRegistry.counter("stats.cache.evictions");
+        this.entries = new LinkedHashMap<>(16, 0.75f, true) {
+            @Override
+            protected boolean removeEldestEntry(Map.Entry<Key, Entry> eldest) {
+                if (size() > maxEntries) {
+                    evictions.increment();
+                    return true;
+                }
+                return false;
+            }
+        };
+        Gauge.builder("stats.cache.size", this, StatsCache::size).register(meterRegistry);
+        Gauge.builder("stats.cache.hit.ratio", this, StatsCache::hitRatio).register(meterRegistry);
+    }
+
+    /**
+     * Returns the result for the window {@code [start, end]}, with the cached parts of it taken from the cache
+     * and the others computed by {@code loader}.
+     */
+    public List<RequestOutDTO> get(LocalDateTime start, LocalDateTime end, List<String> uris,
+                                   boolean unique, String ip, RangeLoader loader) {
+        if (!enabled) {
+            return loader.load(start, end);
+        }
+
+        LocalDateTime to = end.plusSeconds(1);
+        if (unique && ip == null) {
+            return cached(new Key(start, to, normalize(uris), true, null), () -> loader.load(start, end));
+        }
+
+        LocalDateTime interiorFrom = toTime(ceilBucket(start));
+        LocalDateTime interiorTo = toTime(bucketOf(to));
+        if (!interiorFrom.isBefore(interiorTo)) {
+            return loader.load(start, end);
+        }
+
+        List<List<RequestOutDTO>> parts = new ArrayList<>(3);
+        if (start.isBefore(interiorFrom)) {
+            parts.add(loader.load(start, interiorFrom.minusSeconds(1)));
+        }
+        parts.add(cached(new Key(interiorFrom, interiorTo, normalize(uris), unique, ip),
+                () -> loader.load(interiorFrom, interiorTo.minusSeconds(1))));
+        if (interiorTo.isBefore(to)) {
+            parts.add(loader.load(interiorTo, end));
+        }
+        return parts.size() == 1 ? parts.get(0) : combine(parts, unique ? Math::max : Long::sum);
+    }
+
+    private List<RequestOutDTO> cached(Key key, Supplier<List<RequestOutDTO>> loader) {
+        Entry entry;
+        synchronized (entries) {
+            entry = entries.get(key);
+        }
+        if (entry != null) {
+            if (isFresh(key, entry)) {
+                hits.increment();
+                return entry.result;
+            }
+            invalidations.increment();
+            synchronized (entries) {
+                entries.remove(key, entry);
+            }
+        }
+
+        misses.increment();
+        long computedAt = System.nanoTime();
+        List<RequestOutDTO> result = Collections.unmodifiableList(new ArrayList<>(loader.get()));
+        synchronized (entries) {
+            entries.put(key, new Entry(result, computedAt));
+        }
+        return result;
+    }
+
+    /**
+     * Marks the buckets of freshly stored hits as modified.
+     */
+    public void onHits(List<RequestDTO> requestDtos) {
+        if (!enabled) return;
+
+        long now = System.nanoTime();
+        for (RequestDTO requestDto : requestDtos) {
+            modifiedBuckets.merge(bucketOf(requestDto.getTimestamp()), now, Math::max);
+        }
+    }
+
+    /**
+     * Forgets modifications older than the ttl, every entry computed before them has expired anyway.
+     */
+    @Scheduled(fixedDelayString = "${stats.cache.prune-interval-ms:60000}")
+    public void pruneModifiedBuckets() {
+        long now = System.nanoTime();
+        modifiedBuckets.values().removeIf(modifiedAt -> now - modifiedAt > ttlNanos);
+    }
+
+    public int size() {
+        synchronized (entries) {
+            return entries.size();
+        }
+    }
+
+    public double hitRatio() {
+        double total = hits.count() + misses.count();
+        return total == 0 ? 0 : hits.count() / total;
+    }
+
+    private boolean isFresh(Key key, Entry entry) {
+        if (System.nanoTime() - entry.computedAt > ttlNanos) {
+            return false;
+        }
+        for (Long modifiedAt : modifiedBuckets.subMap(bucketOf(key.from), true, bucketOf(key.to.minusSeconds(1)), true).values()) {
+            if (modifiedAt - entry.computedAt >= 0) {
+                return false;
+            }
+        }
+        return true;
+    }
+
+    private long bucketOf(LocalDateTime time) {
+        return Math.floorDiv(time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    private long ceilBucket(LocalDateTime time) {
+        return -Math.floorDiv(-time.toEpochSecond(ZoneOffset.UTC), bucketSeconds);
+    }
+
+    private LocalDateTime toTime(long bucket) {
+        return LocalDateTime.ofEpochSecond(bucket * bucketSeconds, 0, ZoneOffset.UTC);
+    }
+
+    private static List<RequestOutDTO> combine(List<List<RequestOutDTO>> parts, BinaryOperator<Long> combiner) {
+        Map<List<String>, Long> hits = new HashMap<>();
+        for (List<RequestOutDTO> part : parts) {
+            for (RequestOutDTO row : part) {
+                hits.merge(Arrays.asList(row.getApp(), row.getUri()), row.getHits(), combiner);
+            }
+        }
+        return hits.entrySet().stream()
+                .map(entry -> new RequestOutDTO(entry.getKey().get(0), entry.getKey().get(1), entry.getValue()))
+                .sorted(Comparator.comparing(RequestOutDTO::getHits).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static List<String> normalize(List<String> uris) {
+        if (uris == null || uris.isEmpty()) return null;
+        return new ArrayList<>(new TreeSet<>(uris));
+    }
+
+    /**
+     * Counts the hits of {@code [start, end]}, both ends inclusive.
+     */
+    public interface RangeLoader {
+        List<RequestOutDTO> load(LocalDateTime start, LocalDateTime end);
+    }
+
+    @EqualsAndHashCode
+    @AllArgsConstructor
+    private static class Key {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+        private final List<String> uris;
+        private final boolean unique;
+        private final String ip;
+    }
+
+    @AllArgsConstructor
+    private static class Entry {
+        private final List<RequestOutDTO> result;
+        private final long computedAt;
+    }
+}
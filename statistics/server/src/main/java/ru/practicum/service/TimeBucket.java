@@ -0,0 +1,33 @@
+package ru.practicum.service;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+
+/**
+ * Bucket width of a time series; {@code field} is the matching PostgreSQL {@code date_trunc} field.
+ */
+public enum TimeBucket {
+    MINUTE(ChronoUnit.MINUTES, "minute"),
+    HOUR(ChronoUnit.HOURS, "hour"),
+    DAY(ChronoUnit.DAYS, "day");
+
+    private final ChronoUnit unit;
+    private final String field;
+
+    TimeBucket(ChronoUnit unit, String field) {
+        this.unit = unit;
+        this.field = field;
+    }
+
+    public ChronoUnit getUnit() {
+        return unit;
+    }
+
+    public String getField() {
+        return field;
+    }
+
+    public LocalDateTime truncate(LocalDateTime time) {
+        return time.truncatedTo(unit);
+    }
+}
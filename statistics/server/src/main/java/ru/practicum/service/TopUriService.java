@@ -0,0 +1,94 @@
+package ru.practicum.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import ru.practicum.RequestDTO;
+import ru.practicum.TopRequestDTO;
+import ru.practicum.repository.RollupRepository;
+import ru.practicum.sketch.SpaceSaving;
+
+import javax.annotation.PostConstruct;
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+import java.util.stream.Collectors;
+
+/**
+ * Hourly Space-Saving summaries of the most hit (app, uri) pairs, kept for {@code stats.top.retention-hours}.
+ * Memory is bounded by {@code capacity} counters per hour whatever the number of distinct URIs.
+ * The summaries are rebuilt from {@code requests_hour} on startup.
+ */
+@Slf4j
+@Service
+public class TopUriService {
+    private final NavigableMap<LocalDateTime, SpaceSaving<List<String>>> summaries = new ConcurrentSkipListMap<>();
+    private final RollupRepository rollupRepository;
+    private final int capacity;
+    private final long retentionHours;
+
+    public TopUriService(RollupRepository rollupRepository,
+                         @Value("${stats.top.capacity:1000}") int capacity,
+                         @Value("${stats.top.retention-hours:168}") long retentionHours) {
+        this.rollupRepository = rollupRepository;
+        this.capacity = capacity;
+        this.retentionHours = retentionHours;
+    }
+
+    @PostConstruct
+    public void rebuild() {
+        LocalDateTime to = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS).plusHours(1);
+        rollupRepository.countSeries(RollupRepository.HOUR_TABLE, TimeBucket.HOUR.getField(), to.minusHours(retentionHours),
+                to, null, (app, uri, bucket, hits) -> add(app, uri, bucket, hits));
+        log.info("Rebuilt top URI summaries for {} hours", summaries.size());
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    /**
+     * Counts the hits of the retained hours up to the next one; hits from further in the past or the future
+     * are left out, they would otherwise each create a summary nobody ever expires.
+     */
+    public void addAll(List<RequestDTO> hits) {
+        LocalDateTime hour = LocalDateTime.now().truncatedTo(ChronoUnit.HOURS);
+        LocalDateTime oldest = hour.minusHours(retentionHours);
+        LocalDateTime newest = hour.plusHours(1);
+        for (RequestDTO hit : hits) {
+            LocalDateTime bucket = hit.getTimestamp().truncatedTo(ChronoUnit.HOURS);
+            if (!bucket.isBefore(oldest) && !bucket.isAfter(newest)) {
+                add(hit.getApp(), hit.getUri(), bucket, 1);
+            }
+        }
+        summaries.headMap(oldest).clear();
+    }
+
+    /**
+     * The {@code k} pairs with the most hits in the hours that intersect {@code [start, end]}.
+     */
+    public List<TopRequestDTO> findTop(LocalDateTime start, LocalDateTime end, int k) {
+        SpaceSaving<List<String>> merged = new SpaceSaving<>(capacity);
+        for (Map.Entry<LocalDateTime, SpaceSaving<List<String>>> entry
+                : summaries.subMap(start.truncatedTo(ChronoUnit.HOURS), true, end, true).entrySet()) {
+            synchronized (entry.getValue()) {
+                merged = merged.merge(entry.getValue());
+            }
+        }
+
+        return merged.top(k).stream()
+                .map(top -> new TopRequestDTO(top.getKey().get(0), top.getKey().get(1), top.getCount(), top.getError()))
+                .collect(Collectors.toList());
+    }
+
+    private void add(String app, String uri, LocalDateTime bucket, long hits) {
+        SpaceSaving<List<String>> summary = summaries.computeIfAbsent(bucket, key -> new SpaceSaving<>(capacity));
+        synchronized (summary) {
+            summary.add(Arrays.asList(app, uri), hits);
+        }
+    }
+}
@@ -0,0 +1,131 @@
+package ru.practicum.service;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.trending.IntCountMap;
+import ru.practicum.trending.SlidingWindowCounter;
+
+import java.time.LocalDateTime;
+import java.time.ZoneOffset;
+import java.util.ArrayDeque;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.Comparator;
+import java.util.Deque;
+import java.util.List;
+import java.util.Map;
+import java.util.PriorityQueue;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+
+/**
+ * Most hit (app, uri) pairs over the last minutes, counted in memory as hits arrive.
+ * Pairs get local int ids so the sliding window counts are kept in primitive maps; ids of pairs without
+ * hits in the window are recycled periodically, so memory follows the pairs active within the window.
+ */
+@Service
+public class TrendingService {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final List<String[]> keys = new ArrayList<>();
+    private final Deque<Integer> freeIds = new ArrayDeque<>();
+    // ids are handed out and resolved under the read lock, recycled under the write lock
+    private final ReadWriteLock lock = new ReentrantReadWriteLock();
+    private final SlidingWindowCounter counter;
+
+    public TrendingService(@Value("${stats.trending.bucket-seconds:10}") long bucketSeconds,
+                           @Value("${stats.trending.window-minutes:60}") long windowMinutes,
+                           @Value("${stats.trending.expected-uris:256}") int expectedUris) {
+        this.counter = new SlidingWindowCounter((int) (windowMinutes * 60 / bucketSeconds), bucketSeconds, expectedUris);
+    }
+
+    public void record(List<RequestDTO> hits) {
+        long now = LocalDateTime.now().toEpochSecond(ZoneOffset.UTC);
+        lock.readLock().lock();
+        try {
+            for (RequestDTO hit : hits) {
+                counter.add(idOf(hit.getApp(), hit.getUri()), hit.getTimestamp().toEpochSecond(ZoneOffset.UTC), now);
+            }
+        } finally {
+            lock.readLock().unlock();
+        }
+    }
+
+    /**
+     * Frees the ids of the pairs that have no hits left in the window.
+     */
+    @Scheduled(fixedDelayString = "${stats.trending.recycle-interval-ms:60000}")
+    public void recycleIds() {
+        lock.writeLock().lock();
+        try {
+            IntCountMap active = counter.sum(counter.getWindowSeconds(), LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+            ids.values().removeIf(id -> {
+                if (active.get(id) > 0) return false;
+                keys.set(id, null);
+                freeIds.push(id);
+                return true;
+            });
+        } finally {
+            lock.writeLock().unlock();
+        }
+    }
+
+    int getIdCount() {
+        return ids.size();
+    }
+
+    public long getWindowMinutes() {
+        return counter.getWindowSeconds() / 60;
+    }
+
+    /**
+     * Up to {@code limit} pairs with the most hits during the last {@code minutes}, optionally only
+     * URIs starting with {@code uriPrefix}.
+     */
+    public List<RequestOutDTO> findTrending(long minutes, int limit, String uriPrefix) {
+        PriorityQueue<RequestOutDTO> top = new PriorityQueue<>(Comparator.comparing(RequestOutDTO::getHits));
+        lock.readLock().lock();
+        try {
+            IntCountMap counts = counter.sum(minutes * 60, LocalDateTime.now().toEpochSecond(ZoneOffset.UTC));
+            counts.forEach((id, hits) -> {
+                String[] key = keyOf(id);
+                if (uriPrefix != null && !key[1].startsWith(uriPrefix)) return;
+                if (top.size() < limit) {
+                    top.add(new RequestOutDTO(key[0], key[1], hits));
+                } else if (top.peek().getHits() < hits) {
+                    top.poll();
+                    top.add(new RequestOutDTO(key[0], key[1], hits));
+                }
+            });
+        } finally {
+            lock.readLock().unlock();
+        }
+
+        List<RequestOutDTO> result = new ArrayList<>(top);
+        result.sort(Comparator.comparing(RequestOutDTO::getHits).reversed());
+        return result;
+    }
+
+    private int idOf(String app, String uri) {
+        return ids.computeIfAbsent(app + '\n' + uri, key -> {
+            synchronized (keys) {
+                Integer id = freeIds.poll();
+                if (id != null) {
+                    keys.set(id, new String[]{app, uri});
+                    return id;
+                }
+                keys.add(new String[]{app, uri});
+                return keys.size() - 1;
+            }
+        });
+    }
+
+    private String[] keyOf(int id) {
+        synchronized (keys) {
+            return keys.get(id);
+        }
+    }
+}
@@ -0,0 +1,148 @@
+package ru.practicum.service;
+
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import ru.practicum.model.UriEntry;
+import ru.practicum.repository.UriEntryRepository;
+
+import javax.annotation.PostConstruct;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.NavigableMap;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ConcurrentSkipListMap;
+
+/**
+ * In-memory copy of the {@code uris} dictionary. Hits and rollups reference URIs by their
+ * integer id; new URIs are registered in a separate transaction, like applications.
+ * URIs are also kept in order, so {@link UriPattern}s are resolved by a prefix range scan.
+ */
+@Component
+public class UriDictionary {
+    private final Map<String, Integer> ids = new ConcurrentHashMap<>();
+    private final Map<Integer, String> uris = new ConcurrentHashMap<>();
+    private final NavigableMap<String, Integer> sorted = new ConcurrentSkipListMap<>();
+    private final UriEntryRepository uriRepository;
+    private final TransactionTemplate requiresNew;
+
+    public UriDictionary(UriEntryRepository uriRepository, PlatformTransactionManager transactionManager) {
+        this.uriRepository = uriRepository;
+        this.requiresNew = new TransactionTemplate(transactionManager);
+        this.requiresNew.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    @PostConstruct
+    public void load() {
+        uriRepository.findAll().forEach(this::remember);
+    }
+
+    public Integer resolve(String uri) {
+        Integer id = ids.get(uri);
+        if (id != null) {
+            return id;
+        }
+        return ids.computeIfAbsent(uri, this::findOrCreate);
+    }
+
+    /**
+     * Id of an already known URI, URIs that were never hit are not registered.
+     */
+    public Optional<Integer> find(String uri) {
+        Integer id = ids.get(uri);
+        if (id != null) {
+            return Optional.of(id);
+        }
+        return uriRepository.findByUri(uri).map(entry -> {
+            remember(entry);
+            return entry.getId();
+        });
+    }
+
+    /**
+     * Ids of the known URIs among the given ones and matching the given patterns,
+     * {@code null} stands for all URIs.
+     */
+    public List<Integer> findAll(List<String> uris) {
+        if (uris == null) return null;
+
+        Set<Integer> result = new LinkedHashSet<>(uris.size());
+        for (String uri : uris) {
+            if (UriPattern.isPattern(uri)) {
+                findMatching(UriPattern.of(uri)).forEach((matched, id) -> result.add(id));
+            } else {
+                find(uri).ifPresent(result::add);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * The given URIs with patterns replaced by the known URIs they match, {@code null} stands for all URIs.
+     */
+    public List<String> expand(List<String> uris) {
+        if (uris == null || uris.isEmpty()) return null;
+
+        Set<String> result = new LinkedHashSet<>(uris.size());
+        for (String uri : uris) {
+            if (UriPattern.isPattern(uri)) {
+                result.addAll(findMatching(UriPattern.of(uri)).keySet());
+            } else {
+                result.add(uri);
+            }
+        }
+        return new ArrayList<>(result);
+    }
+
+    /**
+     * Known URIs matching the pattern with their ids, in URI order.
+     */
+    public Map<String, Integer> findMatching(UriPattern pattern) {
+        Map<String, Integer> result = new LinkedHashMap<>();
+        sorted.subMap(pattern.getPrefix(), true, pattern.getPrefix() + Character.MAX_VALUE, false)
+                .forEach((uri, id) -> {
+                    if (pattern.matches(uri)) {
+                        result.put(uri, id);
+                    }
+                });
+        return result;
+    }
+
+    public String getUri(int id) {
+        String uri = uris.get(id);
+        if (uri != null) {
+            return uri;
+        }
+        return uriRepository.findById(id).map(entry -> {
+            remember(entry);
+            return entry.getUri();
+        }).orElse(null);
+    }
+
+    private Integer findOrCreate(String uri) {
+        UriEntry entry;
+        try {
+            entry = requiresNew.execute(status -> uriRepository.findByUri(uri)
+                    .orElseGet(() -> uriRepository.save(new UriEntry(uri))));
+        } catch (DataIntegrityViolationException e) {
+            // another server or thread created it in the meantime, URIs are unique
+            entry = requiresNew.execute(status -> uriRepository.findByUri(uri).orElseThrow(() -> e));
+        }
+        uris.put(entry.getId(), entry.getUri());
+        sorted.put(entry.getUri(), entry.getId());
+        return entry.getId();
+    }
+
+    private void remember(UriEntry entry) {
+        ids.put(entry.getUri(), entry.getId());
+        uris.put(entry.getId(), entry.getUri());
+        sorted.put(entry.getUri(), entry.getId());
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.service;
+
+import java.util.ArrayList;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.function.Predicate;
+import java.util.regex.Pattern;
+
+/**
+ * URI glob where {@code *} matches any run of characters, e.g. {@code /events/*}. Matching URIs are found
+ * by a range scan of the dictionary over the literal prefix before the first {@code *}.
+ */
+public class UriPattern {
+    private static final char WILDCARD = '*';
+
+    private final String glob;
+    private final String prefix;
+    private final Pattern regex;
+
+    private UriPattern(String glob) {
+        int wildcard = glob.indexOf(WILDCARD);
+        this.glob = glob;
+        this.prefix = glob.substring(0, wildcard);
+        this.regex = wildcard == glob.length() - 1 ? null : toRegex(glob);
+    }
+
+    public static boolean isPattern(String uri) {
+        return uri.indexOf(WILDCARD) >= 0;
+    }
+
+    public static UriPattern of(String glob) {
+        if (!isPattern(glob)) {
+            throw new IllegalArgumentException("Not a URI pattern: " + glob);
+        }
+        return new UriPattern(glob);
+    }
+
+    /**
+     * Predicate accepting the given URIs and the URIs matching the given patterns,
+     * {@code null} when the list does not restrict URIs.
+     */
+    public static Predicate<String> matcher(List<String> uris) {
+        if (uris == null || uris.isEmpty()) return null;
+
+        Set<String> literals = new HashSet<>();
+        List<UriPattern> patterns = new ArrayList<>();
+        for (String uri : uris) {
+            if (isPattern(uri)) {
+                patterns.add(of(uri));
+            } else {
+                literals.add(uri);
+            }
+        }
+        return uri -> literals.contains(uri) || patterns.stream().anyMatch(pattern -> pattern.matches(uri));
+    }
+
+    public String getGlob() {
+        return glob;
+    }
+
+    public String getPrefix() {
+        return prefix;
+    }
+
+    public boolean matches(String uri) {
+        if (!uri.startsWith(prefix)) return false;
+        return regex == null || regex.matcher(uri).matches();
+    }
+
+    private static Pattern toRegex(String glob) {
+        StringBuilder regex = new StringBuilder();
+        int from = 0;
+        for (int wildcard = glob.indexOf(WILDCARD); wildcard >= 0; wildcard = glob.indexOf(WILDCARD, from)) {
+            if (wildcard > from) {
+                regex.append(Pattern.quote(glob.substring(from, wildcard)));
+            }
+            regex.append(".*");
+            from = wildcard + 1;
+        }
+        if (from < glob.length()) {
+            regex.append(Pattern.quote(glob.substring(from)));
+        }
+        return Pattern.compile(regex.toString(), Pattern.DOTALL);
+    }
+}
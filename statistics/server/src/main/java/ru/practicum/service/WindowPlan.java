@@ -0,0 +1,70 @@
+package ru.practicum.service;
+
+import lombok.Getter;
+
+import java.time.LocalDateTime;
+import java.time.temporal.ChronoUnit;
+import java.util.ArrayList;
+import java.util.List;
+
+/**
+ * Splits a half-open time window into the parts that can be answered from hour and minute
+ * rollups and the unaligned edges that still have to be read from raw hits.
+ */
+@Getter
+public class WindowPlan {
+    private final List<Range> raw = new ArrayList<>();
+    private final List<Range> minutes = new ArrayList<>();
+    private final List<Range> hours = new ArrayList<>();
+
+    private WindowPlan() {
+    }
+
+    public static WindowPlan of(LocalDateTime from, LocalDateTime to) {
+        WindowPlan plan = new WindowPlan();
+
+        LocalDateTime minuteFrom = ceil(from, ChronoUnit.MINUTES);
+        LocalDateTime minuteTo = to.truncatedTo(ChronoUnit.MINUTES);
+        if (!minuteFrom.isBefore(minuteTo)) {
+            plan.raw.add(new Range(from, to));
+            return plan;
+        }
+
+        plan.addRaw(from, minuteFrom);
+        LocalDateTime hourFrom = ceil(minuteFrom, ChronoUnit.HOURS);
+        LocalDateTime hourTo = minuteTo.truncatedTo(ChronoUnit.HOURS);
+        if (hourFrom.isBefore(hourTo)) {
+            plan.addMinutes(minuteFrom, hourFrom);
+            plan.hours.add(new Range(hourFrom, hourTo));
+            plan.addMinutes(hourTo, minuteTo);
+        } else {
+            plan.addMinutes(minuteFrom, minuteTo);
+        }
+        plan.addRaw(minuteTo, to);
+        return plan;
+    }
+
+    private void addRaw(LocalDateTime from, LocalDateTime to) {
+        if (from.isBefore(to)) raw.add(new Range(from, to));
+    }
+
+    private void addMinutes(LocalDateTime from, LocalDateTime to) {
+        if (from.isBefore(to)) minutes.add(new Range(from, to));
+    }
+
+    private static LocalDateTime ceil(LocalDateTime time, ChronoUnit unit) {
+        LocalDateTime truncated = time.truncatedTo(unit);
+        return truncated.isEqual(time) ? time : truncated.plus(1, unit);
+    }
+
+    @Getter
+    public static class Range {
+        private final LocalDateTime from;
+        private final LocalDateTime to;
+
+        public Range(LocalDateTime from, LocalDateTime to) {
+            this.from = from;
+            this.to = to;
+        }
+    }
+}
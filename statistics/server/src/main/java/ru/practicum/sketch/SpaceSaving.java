@@ -0,0 +1,182 @@
+package ru.practicum.sketch;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+/**
+ * Space-Saving heavy hitters summary (Metwally et al.) with a fixed number of counters.
+ * <p>
+ * The count of a tracked key never underestimates its true count and overestimates it by at most
+ * its {@code error}, which itself is bounded by {@code total / capacity}. Summaries merge by adding the
+ * counts of shared keys and the smallest count of the other summary to keys missing from it.
+ */
+public class SpaceSaving<K> {
+    private final int capacity;
+    private final Map<K, Counter<K>> counters;
+    private final Counter<K>[] heap;
+    private int size;
+
+    @SuppressWarnings("unchecked")
+    public SpaceSaving(int capacity) {
+        if (capacity <= 0) {
+            throw new IllegalArgumentException("Capacity must be positive.");
+        }
+        this.capacity = capacity;
+        this.counters = new HashMap<>(capacity * 2);
+        this.heap = new Counter[capacity];
+    }
+
+    public int getCapacity() {
+        return capacity;
+    }
+
+    public void add(K key, long weight) {
+        Counter<K> counter = counters.get(key);
+        if (counter != null) {
+            counter.count += weight;
+            siftDown(counter.index);
+            return;
+        }
+
+        if (size < capacity) {
+            counter = new Counter<>(key, weight, 0);
+            counter.index = size;
+            heap[size++] = counter;
+            counters.put(key, counter);
+            siftUp(counter.index);
+            return;
+        }
+
+        Counter<K> min = heap[0];
+        counters.remove(min.key);
+        min.key = key;
+        min.error = min.count;
+        min.count += weight;
+        counters.put(key, min);
+        siftDown(0);
+    }
+
+    /**
+     * Upper bound of the count of any key that is not tracked.
+     */
+    public long getMinCount() {
+        return size < capacity ? 0 : heap[0].count;
+    }
+
+    public SpaceSaving<K> merge(SpaceSaving<K> other) {
+        long minThis = getMinCount();
+        long minOther = other.getMinCount();
+
+        Map<K, Counter<K>> combined = new HashMap<>();
+        for (int i = 0; i < size; i++) {
+            Counter<K> counter = heap[i];
+            Counter<K> match = other.counters.get(counter.key);
+            combined.put(counter.key, match == null
+                    ? new Counter<>(counter.key, counter.count + minOther, counter.error + minOther)
+                    : new Counter<>(counter.key, counter.count + match.count, counter.error + match.error));
+        }
+        for (int i = 0; i < other.size; i++) {
+            Counter<K> counter = other.heap[i];
+            if (!combined.containsKey(counter.key)) {
+                combined.put(counter.key, new Counter<>(counter.key, counter.count + minThis, counter.error + minThis));
+            }
+        }
+
+        int mergedCapacity = Math.max(capacity, other.capacity);
+        SpaceSaving<K> merged = new SpaceSaving<>(mergedCapacity);
+        combined.values().stream()
+                .sorted(Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed())
+                .limit(mergedCapacity)
+                .forEach(counter -> {
+                    counter.index = merged.size;
+                    merged.heap[merged.size++] = counter;
+                    merged.counters.put(counter.key, counter);
+                });
+        for (int i = merged.size / 2 - 1; i >= 0; i--) {
+            merged.siftDown(i);
+        }
+        return merged;
+    }
+
+    /**
+     * Up to {@code k} tracked keys with the highest counts.
+     */
+    public List<Entry<K>> top(int k) {
+        return Arrays.stream(heap, 0, size)
+                .sorted(Comparator.comparingLong((Counter<K> counter) -> counter.count).reversed())
+                .limit(k)
+                .map(counter -> new Entry<>(counter.key, counter.count, counter.error))
+                .collect(Collectors.toCollection(ArrayList::new));
+    }
+
+    private void siftUp(int index) {
+        Counter<K> counter = heap[index];
+        while (index > 0) {
+            int parent = (index - 1) / 2;
+            if (heap[parent].count <= counter.count) break;
+            place(heap[parent], index);
+            index = parent;
+        }
+        place(counter, index);
+    }
+
+    private void siftDown(int index) {
+        Counter<K> counter = heap[index];
+        while (true) {
+            int child = 2 * index + 1;
+            if (child >= size) break;
+            if (child + 1 < size && heap[child + 1].count < heap[child].count) child++;
+            if (counter.count <= heap[child].count) break;
+            place(heap[child], index);
+            index = child;
+        }
+        place(counter, index);
+    }
+
+    private void place(Counter<K> counter, int index) {
+        heap[index] = counter;
+        counter.index = index;
+    }
+
+    private static class Counter<K> {
+        private K key;
+        private long count;
+        private long error;
+        private int index;
+
+        Counter(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+    }
+
+    public static class Entry<K> {
+        private final K key;
+        private final long count;
+        private final long error;
+
+        Entry(K key, long count, long error) {
+            this.key = key;
+            this.count = count;
+            this.error = error;
+        }
+
+        public K getKey() {
+            return key;
+        }
+
+        public long getCount() {
+            return count;
+        }
+
+        public long getError() {
+            return error;
+        }
+    }
+}
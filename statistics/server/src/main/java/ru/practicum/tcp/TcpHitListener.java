@@ -0,0 +1,219 @@
+package ru.practicum.tcp;
+
+import io.micrometer.core.instrument.Counter;
+import io.micrometer.core.instrument.MeterRegistry;
+import io.netty.buffer.ByteBuf;
+import io.netty.channel.ChannelOption;
+import io.netty.handler.codec.LengthFieldBasedFrameDecoder;
+import lombok.extern.slf4j.Slf4j;
+import org.reactivestreams.Publisher;
+import org.reactivestreams.Subscription;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.context.annotation.Profile;
+import org.springframework.stereotype.Component;
+import reactor.core.Disposable;
+import reactor.core.publisher.BaseSubscriber;
+import reactor.core.publisher.Flux;
+import reactor.core.publisher.Sinks;
+import reactor.core.scheduler.Schedulers;
+import reactor.netty.DisposableServer;
+import reactor.netty.NettyInbound;
+import reactor.netty.NettyOutbound;
+import reactor.netty.tcp.TcpServer;
+import ru.practicum.RequestDTO;
+import ru.practicum.journal.HitCodec;
+import ru.practicum.service.StatService;
+
+import javax.annotation.PostConstruct;
+import javax.annotation.PreDestroy;
+import javax.validation.Validator;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+
+/**
+ * Binary ingestion endpoint over persistent TCP connections.
+ * <p>
+ * A client sends frames {@code [length][payload]} with the payload encoded by {@link HitCodec} and may
+ * pipeline any number of them without waiting. Hits are ingested through {@link StatService#addRequests}
+ * in batches; after every batch the server answers with the total number of frames of the connection
+ * processed so far as an 8-byte long. Invalid hits are counted and skipped, a malformed frame closes
+ * the connection.
+ * <p>
+ * A connection holds at most {@code batch-size} hits that are not stored yet: frames are only requested
+ * from the socket as earlier batches are stored, so a client outrunning the database is slowed down by TCP
+ * flow control. A batch is stored as a whole or not at all and only stored batches are acknowledged, a
+ * client resending the hits after the last acknowledged count duplicates nothing unless an acknowledgement
+ * itself is lost.
+ */
+@Slf4j
+@Component
+@Profile("!reactive")
+@ConditionalOnProperty(name = "stats.tcp.enabled", havingValue = "true")
+public class TcpHitListener {
+    private final StatService statService;
+    private final Validator validator;
+    private final String host;
+    private final int port;
+    private final int maxFrameBytes;
+    private final int batchSize;
+    private final Duration flushInterval;
+    private final Counter received;
+    private final Counter rejected;
+    private DisposableServer server;
+
+    public TcpHitListener(StatService statService, Validator validator, MeterRegistry meterRegistry,
+                          @Value("${stats.tcp.host:0.0.0.0}") String host,
+                          @Value("${stats.tcp.port:9091}") int port,
+                          @Value("${stats.tcp.max-frame-bytes:262144}") int maxFrameBytes,
+                          @Value("${stats.tcp.batch-size:500}") int batchSize,
+                          @Value("${stats.tcp.flush-interval-ms:20}") long flushIntervalMs) {
+        this.statService = statService;
+        this.validator = validator;
+        this.host = host;
+        this.port = port;
+        this.maxFrameBytes = maxFrameBytes;
+        this.batchSize = batchSize;
+        this.flushInterval = Duration.ofMillis(flushIntervalMs);
+        this.received = meterRegistry.counter("stats.tcp.received");
+        this.rejected = meterRegistry.counter("stats.tcp.rejected");
+    }
+
+    @PostConstruct
+    public void start() {
+        server = TcpServer.create()
+                .host(host)
+                .port(port)
+                .childOption(ChannelOption.TCP_NODELAY, true)
+                .doOnConnection(connection -> connection.addHandlerLast(
+                        new LengthFieldBasedFrameDecoder(maxFrameBytes, 0, Integer.BYTES, 0, Integer.BYTES)))
+                .handle(this::handle)
+                .bindNow();
+        log.info("Accepting hits over TCP on {}:{}", host, server.port());
+    }
+
+    int getBoundPort() {
+        return server.port();
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (server != null) {
+            server.disposeNow();
+        }
+    }
+
+    private Publisher<Void> handle(NettyInbound inbound, NettyOutbound outbound) {
+        HitBatcher batcher = new HitBatcher();
+        inbound.receive()
+                .map(frame -> HitCodec.decode(frame.nioBuffer()))
+                .subscribe(batcher);
+        Flux<ByteBuf> acks = batcher.acks.asFlux()
+                .map(processed -> outbound.alloc().buffer(Long.BYTES).writeLong(processed))
+                .doOnError(e -> log.warn("Closing a TCP hit connection: {}", e.toString()));
+        return outbound.send(acks, ack -> true);
+    }
+
+    private int ingest(List<RequestDTO> batch) {
+        List<RequestDTO> valid = batch.stream()
+                .filter(hit -> validator.validate(hit).isEmpty())
+                .collect(Collectors.toList());
+        statService.addRequests(valid);
+        received.increment(batch.size());
+        rejected.increment(batch.size() - valid.size());
+        return batch.size();
+    }
+
+    /**
+     * Collects the hits of one connection into batches of {@code batchSize}, or fewer once the oldest hit has
+     * waited {@code flushInterval}, stores one batch at a time and requests as many frames as it stored.
+     */
+    private class HitBatcher extends BaseSubscriber<RequestDTO> {
+        private final Sinks.Many<Long> acks = Sinks.many().unicast().onBackpressureBuffer();
+        private List<RequestDTO> batch = new ArrayList<>();
+        private Disposable flushTimer;
+        private boolean storing;
+        private boolean completed;
+        private long processed;
+
+        @Override
+        protected void hookOnSubscribe(Subscription subscription) {
+            request(batchSize);
+        }
+
+        @Override
+        protected synchronized void hookOnNext(RequestDTO hit) {
+            batch.add(hit);
+            if (batch.size() >= batchSize) {
+                flush();
+            } else if (flushTimer == null) {
+                flushTimer = Schedulers.parallel().schedule(this::onFlushTimer,
+                        flushInterval.toNanos(), TimeUnit.NANOSECONDS);
+            }
+        }
+
+        @Override
+        protected synchronized void hookOnComplete() {
+            completed = true;
+            flush();
+            completeIfDone();
+        }
+
+        @Override
+        protected synchronized void hookOnError(Throwable e) {
+            cancelFlushTimer();
+            acks.tryEmitError(e);
+        }
+
+        private synchronized void onFlushTimer() {
+            flushTimer = null;
+            flush();
+        }
+
+        private void flush() {
+            if (storing || batch.isEmpty()) return;
+            cancelFlushTimer();
+            List<RequestDTO> full = batch;
+            batch = new ArrayList<>();
+            storing = true;
+            Schedulers.boundedElastic().schedule(() -> store(full));
+        }
+
+        private void store(List<RequestDTO> full) {
+            int count;
+            try {
+                count = ingest(full);
+            } catch (RuntimeException e) {
+                cancel();
+                acks.tryEmitError(e);
+                return;
+            }
+            synchronized (this) {
+                storing = false;
+                processed += count;
+                acks.tryEmitNext(processed);
+                if (!completed) {
+                    request(count);
+                }
+                flush();
+                completeIfDone();
+            }
+        }
+
+        private void completeIfDone() {
+            if (completed && !storing && batch.isEmpty()) {
+                acks.tryEmitComplete();
+            }
+        }
+
+        private void cancelFlushTimer() {
+            if (flushTimer != null) {
+                flushTimer.dispose();
+                flushTimer = null;
+            }
+        }
+    }
+}
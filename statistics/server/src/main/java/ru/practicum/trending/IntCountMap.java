@@ -0,0 +1,101 @@
+package ru.practicum.trending;
+
+import java.util.Arrays;
+
+/**
+ * Open-addressing map from non-negative {@code int} keys to {@code long} counts, without boxing.
+ * Not thread-safe.
+ */
+public class IntCountMap {
+    private static final int EMPTY = -1;
+    private static final float LOAD_FACTOR = 0.5f;
+
+    private int[] keys;
+    private long[] counts;
+    private int size;
+
+    public IntCountMap(int expectedSize) {
+        int capacity = Integer.highestOneBit(Math.max(4, (int) (expectedSize / LOAD_FACTOR)) - 1) << 1;
+        this.keys = new int[capacity];
+        this.counts = new long[capacity];
+        Arrays.fill(keys, EMPTY);
+    }
+
+    public void add(int key, long delta) {
+        if (key < 0) {
+            throw new IllegalArgumentException("Key must not be negative: " + key);
+        }
+        int index = indexOf(keys, key);
+        if (keys[index] == EMPTY) {
+            keys[index] = key;
+            if (++size > keys.length * LOAD_FACTOR) {
+                counts[index] = delta;
+                resize();
+                return;
+            }
+        }
+        counts[index] += delta;
+    }
+
+    public long get(int key) {
+        int index = indexOf(keys, key);
+        return keys[index] == EMPTY ? 0 : counts[index];
+    }
+
+    public int size() {
+        return size;
+    }
+
+    public void forEach(IntLongConsumer consumer) {
+        for (int i = 0; i < keys.length; i++) {
+            if (keys[i] != EMPTY) {
+                consumer.accept(keys[i], counts[i]);
+            }
+        }
+    }
+
+    public void addAll(IntCountMap other) {
+        other.forEach(this::add);
+    }
+
+    public void clear() {
+        if (size == 0) return;
+        Arrays.fill(keys, EMPTY);
+        Arrays.fill(counts, 0);
+        size = 0;
+    }
+
+    private void resize() {
+        int[] oldKeys = keys;
+        long[] oldCounts = counts;
+        keys = new int[oldKeys.length * 2];
+        counts = new long[oldKeys.length * 2];
+        Arrays.fill(keys, EMPTY);
+        for (int i = 0; i < oldKeys.length; i++) {
+            if (oldKeys[i] != EMPTY) {
+                int index = indexOf(keys, oldKeys[i]);
+                keys[index] = oldKeys[i];
+                counts[index] = oldCounts[i];
+            }
+        }
+    }
+
+    private static int indexOf(int[] keys, int key) {
+        int mask = keys.length - 1;
+        int index = mix(key) & mask;
+        while (keys[index] != EMPTY && keys[index] != key) {
+            index = (index + 1) & mask;
+        }
+        return index;
+    }
+
+    private static int mix(int key) {
+        int h = key * 0x9E3779B9;
+        return h ^ (h >>> 16);
+    }
+
+    @FunctionalInterface
+    public interface IntLongConsumer {
+        void accept(int key, long value);
+    }
+}
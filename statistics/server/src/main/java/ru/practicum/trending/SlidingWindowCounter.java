@@ -0,0 +1,68 @@
+package ru.practicum.trending;
+
+/**
+ * Hit counts per key over a sliding time window, kept in a ring of fixed-width time buckets.
+ * <p>
+ * A bucket is reused once its time slot leaves the window, so memory depends on the number of keys
+ * active within the window only. Each bucket has its own lock; writers of different buckets do not contend.
+ */
+public class SlidingWindowCounter {
+    private final long bucketSeconds;
+    private final IntCountMap[] buckets;
+    private final long[] bucketIds;
+
+    public SlidingWindowCounter(int bucketCount, long bucketSeconds, int expectedKeys) {
+        this.bucketSeconds = bucketSeconds;
+        this.buckets = new IntCountMap[bucketCount];
+        this.bucketIds = new long[bucketCount];
+        for (int i = 0; i < bucketCount; i++) {
+            buckets[i] = new IntCountMap(expectedKeys);
+            bucketIds[i] = Long.MIN_VALUE;
+        }
+    }
+
+    public long getWindowSeconds() {
+        return bucketSeconds * buckets.length;
+    }
+
+    /**
+     * Counts a hit of {@code key} at {@code epochSecond}; hits outside the window ending at {@code nowEpochSecond}
+     * are ignored.
+     */
+    public boolean add(int key, long epochSecond, long nowEpochSecond) {
+        long id = Math.floorDiv(epochSecond, bucketSeconds);
+        long current = Math.floorDiv(nowEpochSecond, bucketSeconds);
+        if (id > current || id <= current - buckets.length) return false;
+
+        int slot = (int) Math.floorMod(id, (long) buckets.length);
+        synchronized (buckets[slot]) {
+            if (bucketIds[slot] < id) {
+                buckets[slot].clear();
+                bucketIds[slot] = id;
+            } else if (bucketIds[slot] > id) {
+                return false;
+            }
+            buckets[slot].add(key, 1);
+        }
+        return true;
+    }
+
+    /**
+     * Sums the buckets of the last {@code seconds} (rounded up to whole buckets) ending at {@code nowEpochSecond}.
+     */
+    public IntCountMap sum(long seconds, long nowEpochSecond) {
+        long current = Math.floorDiv(nowEpochSecond, bucketSeconds);
+        long count = Math.min(buckets.length, (seconds + bucketSeconds - 1) / bucketSeconds);
+
+        IntCountMap result = new IntCountMap(buckets[(int) Math.floorMod(current, (long) buckets.length)].size());
+        for (long id = current; id > current - count; id--) {
+            int slot = (int) Math.floorMod(id, (long) buckets.length);
+            synchronized (buckets[slot]) {
+                if (bucketIds[slot] == id) {
+                    result.addAll(buckets[slot]);
+                }
+            }
+        }
+        return result;
+    }
+}
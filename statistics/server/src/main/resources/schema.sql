@@ -1,14 +0,0 @@
-DROP TABLE IF EXISTS apps, requests CASCADE;
-
-CREATE TABLE IF NOT EXISTS application (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    name varchar(512) NOT NULL
-    );
-
-CREATE TABLE IF NOT EXISTS requests (
-    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
-    app_id BIGINT REFERENCES application(id) ON DELETE CASCADE,
-    uri varchar(512) NOT NULL,
-    ip varchar(15) NOT NULL,
-    time_stamp TIMESTAMP WITHOUT TIME ZONE
-    );
\ No newline at end of file
@@ -0,0 +1,62 @@
+DROP TABLE IF EXISTS apps, requests, requests_minute, requests_hour, uri_sketches, uris CASCADE;
+
+CREATE TABLE IF NOT EXISTS application (
+    id BIGINT GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    name varchar(512) NOT NULL
+    );
+
+CREATE UNIQUE INDEX IF NOT EXISTS application_name_idx ON application (name);
+
+CREATE TABLE IF NOT EXISTS uris (
+    id INTEGER GENERATED BY DEFAULT AS IDENTITY PRIMARY KEY,
+    uri varchar(512) NOT NULL UNIQUE
+    );
+
+CREATE TABLE IF NOT EXISTS requests (
+    id BIGSERIAL,
+    app_id BIGINT REFERENCES application(id) ON DELETE CASCADE,
+    uri_id INTEGER NOT NULL REFERENCES uris(id) ON DELETE CASCADE,
+    ip INET NOT NULL,
+    region varchar(64),
+    time_stamp TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    PRIMARY KEY (id, time_stamp)
+    ) PARTITION BY RANGE (time_stamp);
+
+CREATE TABLE IF NOT EXISTS requests_default PARTITION OF requests DEFAULT;
+CREATE INDEX IF NOT EXISTS requests_time_stamp_idx ON requests (time_stamp);
+
+CREATE TABLE IF NOT EXISTS requests_minute (
+    app_id BIGINT NOT NULL REFERENCES application(id) ON DELETE CASCADE,
+    uri_id INTEGER NOT NULL REFERENCES uris(id) ON DELETE CASCADE,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+    );
+
+CREATE INDEX IF NOT EXISTS requests_minute_bucket_idx ON requests_minute (bucket);
+
+CREATE TABLE IF NOT EXISTS requests_hour (
+    app_id BIGINT NOT NULL REFERENCES application(id) ON DELETE CASCADE,
+    uri_id INTEGER NOT NULL REFERENCES uris(id) ON DELETE CASCADE,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    hits BIGINT NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+    );
+
+CREATE INDEX IF NOT EXISTS requests_hour_bucket_idx ON requests_hour (bucket);
+
+CREATE TABLE IF NOT EXISTS uri_sketches (
+    app_id BIGINT NOT NULL REFERENCES application(id) ON DELETE CASCADE,
+    uri_id INTEGER NOT NULL REFERENCES uris(id) ON DELETE CASCADE,
+    bucket TIMESTAMP WITHOUT TIME ZONE NOT NULL,
+    sketch BYTEA NOT NULL,
+    PRIMARY KEY (app_id, uri_id, bucket)
+    );
+
+CREATE INDEX IF NOT EXISTS uri_sketches_bucket_idx ON uri_sketches (bucket);
+
+CREATE TABLE IF NOT EXISTS journal_checkpoint (
+    id SMALLINT PRIMARY KEY,
+    segment BIGINT NOT NULL,
+    position INTEGER NOT NULL
+    );
@@ -0,0 +1,103 @@
+package ru.practicum.dedup;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashSet;
+import java.util.Random;
+import java.util.Set;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class LongHashSetTest {
+
+    @Test
+    void addsAndFindsValues() {
+        LongHashSet set = new LongHashSet(8);
+
+        assertThat(set.add(42)).isTrue();
+        assertThat(set.add(42)).isFalse();
+        assertThat(set.add(-7)).isTrue();
+
+        assertThat(set.contains(42)).isTrue();
+        assertThat(set.contains(-7)).isTrue();
+        assertThat(set.contains(43)).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void stopsStoringWhenFull() {
+        LongHashSet set = new LongHashSet(2);
+        set.add(1);
+        set.add(2);
+
+        assertThat(set.isFull()).isTrue();
+        assertThat(set.add(3)).isTrue();
+        assertThat(set.contains(3)).isFalse();
+        assertThat(set.size()).isEqualTo(2);
+    }
+
+    @Test
+    void removeKeepsProbeChainsThatWrapAround() {
+        // 16 slots: 15, 31 and 47 share the last slot as home and wrap to the start, 16 and 32 live there
+        LongHashSet set = new LongHashSet(8);
+        long[] values = {15, 31, 47, 16, 32};
+        for (long value : values) {
+            set.add(value);
+        }
+
+        assertThat(set.remove(15)).isTrue();
+        assertThat(set.remove(15)).isFalse();
+
+        assertThat(set.contains(15)).isFalse();
+        for (int i = 1; i < values.length; i++) {
+            assertThat(set.contains(values[i])).as("contains %d", values[i]).isTrue();
+        }
+        assertThat(set.remove(16)).isTrue();
+        assertThat(set.contains(31)).isTrue();
+        assertThat(set.contains(47)).isTrue();
+        assertThat(set.contains(32)).isTrue();
+        assertThat(set.size()).isEqualTo(3);
+    }
+
+    @Test
+    void behavesLikeHashSetUnderRandomAddsAndRemoves() {
+        LongHashSet set = new LongHashSet(64);
+        Set<Long> expected = new HashSet<>();
+        Random random = new Random(7);
+
+        for (int i = 0; i < 100_000; i++) {
+            // a small range keeps the table crowded and the probe chains long
+            long value = 1 + random.nextInt(200) * 16L;
+            if (random.nextBoolean()) {
+                if (expected.size() < 64 || expected.contains(value)) {
+                    assertThat(set.add(value)).isEqualTo(expected.add(value));
+                }
+            } else {
+                assertThat(set.remove(value)).isEqualTo(expected.remove(value));
+            }
+            assertThat(set.size()).isEqualTo(expected.size());
+        }
+        for (long value = 1; value < 200 * 16; value += 16) {
+            assertThat(set.contains(value)).isEqualTo(expected.contains(value));
+        }
+    }
+
+    @Test
+    void clearEmptiesTheSet() {
+        LongHashSet set = new LongHashSet(4);
+        set.add(1);
+        set.add(2);
+
+        set.clear();
+
+        assertThat(set.size()).isZero();
+        assertThat(set.contains(1)).isFalse();
+        assertThat(set.add(1)).isTrue();
+    }
+
+    @Test
+    void rejectsZero() {
+        assertThatThrownBy(() -> new LongHashSet(4).add(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,86 @@
+package ru.practicum.embedded;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.ObjectProvider;
+import org.springframework.mock.env.MockEnvironment;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThatCode;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.Mockito.mock;
+
+class EmbeddedStatisticsConfigTest {
+    private static final String HOST_URL = "jdbc:postgresql://db:5432/ewm";
+
+    @Test
+    @SuppressWarnings("unchecked")
+    void refusesToStartOnTheHostDatabase() {
+        MockEnvironment environment = new MockEnvironment()
+                .withProperty("spring.datasource.url", HOST_URL)
+                .withProperty("stats.embedded.spring.datasource.url", HOST_URL);
+
+        assertThatThrownBy(() -> new EmbeddedStatisticsConfig().statisticsClient(environment,
+                mock(ObjectProvider.class))).isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("stats.embedded.spring.datasource.url");
+    }
+
+    @Test
+    void refusesTheHostDatabaseSpelledDifferently() {
+        assertRefused(host(HOST_URL), server("JDBC:POSTGRESQL://DB:5432/EWM?ssl=false"));
+        assertRefused(host(HOST_URL + "?currentSchema=public"), server(HOST_URL));
+        assertRefused(host(HOST_URL + "?currentSchema=ewm,public"), server(HOST_URL + "?currentSchema=ewm"));
+    }
+
+    @Test
+    void refusesTheHostSchemaSelectedByHikari() {
+        MockEnvironment environment = host(HOST_URL).withProperty("spring.datasource.hikari.schema", "stats");
+        Map<String, Object> properties = server(HOST_URL + "?currentSchema=stats");
+
+        assertRefused(environment, properties);
+    }
+
+    @Test
+    void acceptsAnotherDatabaseOrSchema() {
+        assertAccepted(host(HOST_URL), server("jdbc:postgresql://db:5432/stats"));
+        assertAccepted(host(HOST_URL), server(HOST_URL + "?currentSchema=stats"));
+        assertAccepted(host(HOST_URL + "?currentSchema=stats%2Cpublic"), server(HOST_URL));
+
+        Map<String, Object> properties = server(HOST_URL);
+        properties.put("spring.datasource.hikari.schema", "stats");
+        assertAccepted(host(HOST_URL), properties);
+    }
+
+    @Test
+    void acceptsAHostWithoutDatabase() {
+        assertAccepted(new MockEnvironment(), server(HOST_URL));
+    }
+
+    @Test
+    void requiresTheServerDatabase() {
+        assertThatThrownBy(() -> EmbeddedStatisticsConfig.checkSeparateDatabase(host(HOST_URL), new HashMap<>()))
+                .isInstanceOf(IllegalStateException.class)
+                .hasMessageContaining("must be set");
+    }
+
+    private static void assertRefused(MockEnvironment environment, Map<String, Object> properties) {
+        assertThatThrownBy(() -> EmbeddedStatisticsConfig.checkSeparateDatabase(environment, properties))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static void assertAccepted(MockEnvironment environment, Map<String, Object> properties) {
+        assertThatCode(() -> EmbeddedStatisticsConfig.checkSeparateDatabase(environment, properties))
+                .doesNotThrowAnyException();
+    }
+
+    private static MockEnvironment host(String url) {
+        return new MockEnvironment().withProperty("spring.datasource.url", url);
+    }
+
+    private static Map<String, Object> server(String url) {
+        Map<String, Object> properties = new HashMap<>();
+        properties.put("spring.datasource.url", url);
+        return properties;
+    }
+}
@@ -0,0 +1,153 @@
+package ru.practicum.region;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+import org.junit.jupiter.params.provider.ValueSource;
+
+import java.io.IOException;
+import java.lang.management.ManagementFactory;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.junit.jupiter.api.Assumptions.assumeTrue;
+
+class IpRangeIndexTest {
+    private static final String RANGES = String.join("\n",
+            "# start,end,region",
+            "0.0.0.0,0.255.255.255,zero",
+            "",
+            "10.0.0.0,10.0.0.255,north",
+            "10.0.2.0, 10.0.2.255 , south",
+            "10.0.3.0,10.0.3.0,north",
+            "128.0.0.0,128.0.0.255,upper",
+            "255.255.255.0,255.255.255.255,top");
+
+    @TempDir
+    Path dir;
+
+    @ParameterizedTest
+    @CsvSource({
+            "0.0.0.0, zero",
+            "0.255.255.255, zero",
+            "1.0.0.0, ",
+            "10.0.0.0, north",
+            "10.0.0.255, north",
+            "10.0.1.0, ",
+            "10.0.1.255, ",
+            "10.0.2.0, south",
+            "10.0.2.128, south",
+            "10.0.3.0, north",
+            "10.0.3.1, ",
+            "127.255.255.255, ",
+            "128.0.0.0, upper",
+            "128.0.1.0, ",
+            "255.255.255.255, top",
+            "::ffff:10.0.2.1, south",
+            "::FFFF:10.0.0.1, north",
+    })
+    void findsRegionOfRange(String ip, String region) throws IOException {
+        IpRangeIndex index = load(RANGES);
+
+        assertThat(index.find(ip)).isEqualTo(region);
+        assertThat(index.size()).isEqualTo(6);
+        assertThat(index.getRegionCount()).isEqualTo(5);
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"", "10.0.0", "10.0.0.1.", "10.0.0.256", "10.0.0.0001", "10..0.1", ".10.0.0.1",
+            "10.0.0.-1", "10.0.0.1 ", "::1", "2001:db8::10.0.0.1", "::10.0.0.1", "::ffff:", "ffff:10.0.0.1"})
+    void findsNoRegionOfMalformedOrIpv6Address(String ip) throws IOException {
+        assertThat(load(RANGES).find(ip)).isNull();
+    }
+
+    @Test
+    void findsNothingInEmptyIndex() throws IOException {
+        assertThat(IpRangeIndex.EMPTY.find("10.0.0.1")).isNull();
+        assertThat(load("# nothing yet").find("10.0.0.1")).isNull();
+        assertThat(load(RANGES).find(null)).isNull();
+    }
+
+    @ParameterizedTest
+    @ValueSource(strings = {"10.0.0.0,10.0.0.255", "10.0.0.0,10.0.0.255,", "10.0.0.0,9.0.0.0,north",
+            "10.0.0.0,10.0.0.256,north", "::1,::2,north", "10.0.0.0,10.0.0.255,north,extra"})
+    void rejectsMalformedLine(String line) {
+        assertThatThrownBy(() -> load("# header\n" + line))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(":2:");
+    }
+
+    @Test
+    void rejectsOverlappingRanges() {
+        assertThatThrownBy(() -> load("10.0.0.0,10.0.0.255,north\n10.0.0.255,10.0.1.255,south"))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining("10.0.0.255");
+    }
+
+    @Test
+    void rejectsRegionLongerThanColumn() throws IOException {
+        assertThat(load("10.0.0.0,10.0.0.255," + "r".repeat(64)).find("10.0.0.1")).hasSize(64);
+        assertThatThrownBy(() -> load("10.0.0.0,10.0.0.255," + "r".repeat(65)))
+                .isInstanceOf(IllegalArgumentException.class)
+                .hasMessageContaining(":1:");
+    }
+
+    @Test
+    void looksUpLargeIndexWithoutAllocating() throws IOException {
+        // 200k ranges of 256 addresses every 512 addresses from 1.0.0.0
+        StringBuilder ranges = new StringBuilder();
+        for (int i = 0; i < 200_000; i++) {
+            long start = (1L << 24) + i * 512L;
+            ranges.append(format(start)).append(',').append(format(start + 255)).append(",region-").append(i % 100).append('\n');
+        }
+        IpRangeIndex index = load(ranges.toString());
+        List<String> ips = new ArrayList<>();
+        for (int i = 0; i < 4096; i++) {
+            ips.add(format((1L << 24) + (i * 7919L % 200_000) * 512 + (i % 2 == 0 ? 17 : 300)));
+        }
+        assertThat(index.find(ips.get(0))).isEqualTo("region-0");
+        assertThat(index.find(ips.get(1))).isNull();
+
+        int lookups = 2_000_000;
+        // warm-up, so that the measured loop runs compiled
+        for (int i = 0; i < lookups; i++) {
+            index.find(ips.get(i & 4095));
+        }
+
+        java.lang.management.ThreadMXBean threads = ManagementFactory.getThreadMXBean();
+        assumeTrue(threads instanceof com.sun.management.ThreadMXBean);
+        com.sun.management.ThreadMXBean allocations = (com.sun.management.ThreadMXBean) threads;
+        assumeTrue(allocations.isThreadAllocatedMemorySupported() && allocations.isThreadAllocatedMemoryEnabled());
+        long thread = Thread.currentThread().getId();
+        long start = System.nanoTime();
+        long allocatedBefore = allocations.getThreadAllocatedBytes(thread);
+        int found = 0;
+        for (int i = 0; i < lookups; i++) {
+            found += index.find(ips.get(i & 4095)) != null ? 1 : 0;
+        }
+        long allocated = allocations.getThreadAllocatedBytes(thread) - allocatedBefore;
+        long averageNanos = (System.nanoTime() - start) / lookups;
+
+        // every other address falls into a gap
+        assertThat(found).isEqualTo(lookups / 2);
+        // a single allocation per lookup would be at least 16 bytes each
+        assertThat(allocated).isLessThan(lookups);
+        // loose bound, a binary search over 200k ranges takes well under a microsecond
+        assertThat(averageNanos).isLessThan(2_000);
+    }
+
+    private IpRangeIndex load(String content) throws IOException {
+        Path file = dir.resolve("regions.csv");
+        Files.writeString(file, content);
+        return IpRangeIndex.load(file);
+    }
+
+    private static String format(long address) {
+        return (address >>> 24) + "." + (address >>> 16 & 0xff) + "." + (address >>> 8 & 0xff) + "." + (address & 0xff);
+    }
+}
@@ -0,0 +1,94 @@
+package ru.practicum.repository;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.ArgumentCaptor;
+import org.springframework.jdbc.core.JdbcTemplate;
+import ru.practicum.service.WindowPlan;
+
+import javax.sql.DataSource;
+import java.sql.Connection;
+import java.sql.PreparedStatement;
+import java.sql.ResultSet;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class StatStreamRepositoryTest {
+    private static final LocalDateTime FROM = LocalDateTime.of(2026, 1, 1, 10, 17, 42);
+    private static final LocalDateTime TO = LocalDateTime.of(2026, 1, 1, 14, 5, 9);
+
+    private final DataSource dataSource = mock(DataSource.class);
+    private final Connection connection = mock(Connection.class);
+    private final PreparedStatement statement = mock(PreparedStatement.class);
+    private final ResultSet resultSet = mock(ResultSet.class);
+    private StatStreamRepository repository;
+
+    @BeforeEach
+    void setUp() throws Exception {
+        when(dataSource.getConnection()).thenReturn(connection);
+        when(connection.prepareStatement(anyString())).thenReturn(statement);
+        when(statement.executeQuery()).thenReturn(resultSet);
+        when(resultSet.next()).thenReturn(true, true, false);
+        when(resultSet.getString("uri")).thenReturn("/events/1", "/events/2");
+
+        JdbcTemplate jdbcTemplate = new JdbcTemplate(dataSource);
+        jdbcTemplate.setQueryTimeout(30);
+        repository = new StatStreamRepository(jdbcTemplate, 250);
+    }
+
+    @Test
+    void handsRowsOutAsTheCursorReadsThem() throws Exception {
+        List<String> uris = new ArrayList<>();
+
+        repository.streamHits(WindowPlan.of(FROM, TO), null, null, rs -> uris.add(rs.getString("uri")));
+
+        assertThat(uris).containsExactly("/events/1", "/events/2");
+        verify(statement).setFetchSize(250);
+        verify(statement).setQueryTimeout(30);
+    }
+
+    @Test
+    void pushesTheLimitIntoTheStatement() throws Exception {
+        repository.streamHits(WindowPlan.of(FROM, TO), List.of(1, 2), 5, rs -> { });
+
+        String sql = preparedSql();
+        assertThat(sql).endsWith("LIMIT ?");
+        // every part of the plan is filtered by the URIs before the rows are summed
+        assertThat(sql.split("r\\.uri_id IN \\(\\?, \\?\\)", -1)).hasSize(6);
+        assertThat(sql.split(" UNION ALL ", -1)).hasSize(5);
+        verify(statement).setObject(anyInt(), eq(5));
+    }
+
+    @Test
+    void pushesTheLimitIntoTheUniqueStatement() throws Exception {
+        repository.streamUniqueHits(FROM, TO, null, 5, rs -> { });
+
+        String sql = preparedSql();
+        assertThat(sql).contains("COUNT(DISTINCT r.ip)").endsWith("LIMIT ?");
+        verify(statement).setObject(anyInt(), eq(5));
+    }
+
+    @Test
+    void readsEveryRowWithoutALimit() throws Exception {
+        repository.streamUniqueHits(FROM, TO, null, null, rs -> { });
+
+        assertThat(preparedSql()).doesNotContain("LIMIT");
+        verify(statement, never()).setObject(anyInt(), eq(5));
+    }
+
+    private String preparedSql() throws Exception {
+        ArgumentCaptor<String> sql = ArgumentCaptor.forClass(String.class);
+        verify(connection).prepareStatement(sql.capture());
+        return sql.getValue().trim();
+    }
+}
@@ -0,0 +1,177 @@
+package ru.practicum.ring;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.TimeUnit;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class HitRingBufferTest {
+    private static final long TIMEOUT = TimeUnit.MILLISECONDS.toNanos(10);
+
+    @Test
+    void keepsOrderAcrossManyLaps() {
+        HitRingBuffer ring = new HitRingBuffer(4, WaitStrategy.BUSY_SPIN);
+        HitRingBuffer.Reader reader = ring.newReader();
+        List<RequestDTO> batch = new ArrayList<>();
+        long[] times = new long[4];
+
+        List<String> received = new ArrayList<>();
+        for (int i = 0; i < 100; i += 3) {
+            for (int j = i; j < i + 3; j++) {
+                assertThat(ring.offer(hit(j), TIMEOUT)).isTrue();
+            }
+            assertThat(reader.poll(batch, times, 4)).isEqualTo(3);
+            batch.forEach(hit -> received.add(hit.getUri()));
+            batch.clear();
+            reader.release();
+        }
+
+        assertThat(received).containsExactlyElementsOf(uris(0, 102));
+        assertThat(ring.getPublished()).isEqualTo(102);
+        assertThat(ring.size()).isZero();
+    }
+
+    @Test
+    void offerTimesOutWhenFull() {
+        HitRingBuffer ring = new HitRingBuffer(4, WaitStrategy.SLEEPING);
+        for (int i = 0; i < 4; i++) {
+            assertThat(ring.offer(hit(i), TIMEOUT)).isTrue();
+        }
+
+        assertThat(ring.offer(hit(4), TIMEOUT)).isFalse();
+        assertThat(ring.size()).isEqualTo(4);
+    }
+
+    @Test
+    void offerAllPublishesAllOrNothing() {
+        HitRingBuffer ring = new HitRingBuffer(8, WaitStrategy.SLEEPING);
+        HitRingBuffer.Reader reader = ring.newReader();
+        assertThat(ring.offerAll(hits(0, 6), TIMEOUT)).isTrue();
+
+        assertThat(ring.offerAll(hits(6, 9), TIMEOUT)).isFalse();
+        assertThat(ring.getPublished()).isEqualTo(6);
+
+        List<RequestDTO> batch = new ArrayList<>();
+        long[] times = new long[9];
+        reader.poll(batch, times, 1);
+        assertThat(ring.offerAll(hits(6, 9), TIMEOUT)).isTrue();
+
+        reader.poll(batch, times, 8);
+        assertThat(batch).extracting(RequestDTO::getUri).containsExactlyElementsOf(uris(0, 9));
+    }
+
+    @Test
+    void offerAllRejectsBatchesLargerThanTheRing() {
+        HitRingBuffer ring = new HitRingBuffer(4, WaitStrategy.SLEEPING);
+
+        assertThatThrownBy(() -> ring.offerAll(hits(0, 5), TIMEOUT)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void awaitConsumedWaitsForRelease() throws Exception {
+        HitRingBuffer ring = new HitRingBuffer(8, WaitStrategy.SLEEPING);
+        HitRingBuffer.Reader reader = ring.newReader();
+        ring.offerAll(hits(0, 3), TIMEOUT);
+        List<RequestDTO> batch = new ArrayList<>();
+        reader.poll(batch, new long[8], 8);
+
+        CompletableFuture<Void> consumed = CompletableFuture.runAsync(() -> ring.awaitConsumed(ring.getPublished()));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(consumed).isNotDone();
+
+        reader.release();
+        consumed.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void awaitConsumedWaitsForUntakenHits() throws Exception {
+        HitRingBuffer ring = new HitRingBuffer(8, WaitStrategy.SLEEPING);
+        HitRingBuffer.Reader reader = ring.newReader();
+        ring.offer(hit(0), TIMEOUT);
+
+        CompletableFuture<Void> consumed = CompletableFuture.runAsync(() -> ring.awaitConsumed(ring.getPublished()));
+        TimeUnit.MILLISECONDS.sleep(100);
+        assertThat(consumed).isNotDone();
+
+        reader.poll(new ArrayList<>(), new long[1], 1);
+        reader.release();
+        consumed.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    void deliversEveryHitOnceWithConcurrentProducersAndConsumers() throws Exception {
+        HitRingBuffer ring = new HitRingBuffer(64, WaitStrategy.SLEEPING);
+        int producers = 4;
+        int perProducer = 20_000;
+        ConcurrentHashMap<String, Integer> received = new ConcurrentHashMap<>();
+        List<Thread> consumers = new ArrayList<>();
+        for (int c = 0; c < 2; c++) {
+            HitRingBuffer.Reader reader = ring.newReader();
+            Thread consumer = new Thread(() -> {
+                List<RequestDTO> batch = new ArrayList<>();
+                long[] times = new long[16];
+                while (!Thread.currentThread().isInterrupted()) {
+                    if (reader.poll(batch, times, 16) == 0) {
+                        reader.await();
+                        continue;
+                    }
+                    batch.forEach(hit -> received.merge(hit.getUri(), 1, Integer::sum));
+                    batch.clear();
+                    reader.release();
+                }
+            });
+            consumer.setDaemon(true);
+            consumer.start();
+            consumers.add(consumer);
+        }
+
+        List<CompletableFuture<Void>> published = IntStream.range(0, producers)
+                .mapToObj(p -> CompletableFuture.runAsync(() -> {
+                    int next = p * perProducer;
+                    int end = next + perProducer;
+                    while (next < end) {
+                        int size = Math.min(1 + next % 7, end - next);
+                        if (ring.offerAll(hits(next, next + size), TIMEOUT)) {
+                            next += size;
+                        }
+                    }
+                }))
+                .collect(Collectors.toList());
+        CompletableFuture.allOf(published.toArray(new CompletableFuture[0])).get(30, TimeUnit.SECONDS);
+        ring.awaitConsumed(ring.getPublished());
+        consumers.forEach(Thread::interrupt);
+
+        assertThat(received).hasSize(producers * perProducer);
+        assertThat(received.values()).containsOnly(1);
+        assertThat(ring.getPublished()).isEqualTo(producers * perProducer);
+    }
+
+    @Test
+    void rejectsCapacityThatIsNotAPowerOfTwo() {
+        assertThatThrownBy(() -> new HitRingBuffer(6, WaitStrategy.SLEEPING)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    private static RequestDTO hit(int i) {
+        RequestDTO hit = new RequestDTO();
+        hit.setUri("/events/" + i);
+        return hit;
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        return IntStream.range(from, to).mapToObj(HitRingBufferTest::hit).collect(Collectors.toList());
+    }
+
+    private static List<String> uris(int from, int to) {
+        return Arrays.asList(IntStream.range(from, to).mapToObj(i -> "/events/" + i).toArray(String[]::new));
+    }
+}
@@ -0,0 +1,88 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class HitDeduplicatorTest {
+    private static final LocalDateTime TIME = LocalDateTime.of(2026, 1, 1, 12, 0, 0);
+
+    @Test
+    void dropsHitsOfTheSameVisitorAndSecond() {
+        HitDeduplicator deduplicator = deduplicator(10, 100);
+        RequestDTO hit = hit("10.0.0.1", TIME);
+
+        List<RequestDTO> first = deduplicator.filter(Arrays.asList(hit, hit("10.0.0.1", TIME),
+                hit("10.0.0.2", TIME), hit("10.0.0.1", TIME.plusSeconds(1))));
+
+        assertThat(first).hasSize(3);
+        assertThat(deduplicator.filter(Collections.singletonList(hit))).isEmpty();
+    }
+
+    @Test
+    void forgottenHitsAreAcceptedAgain() {
+        HitDeduplicator deduplicator = deduplicator(10, 100);
+        List<RequestDTO> hits = Arrays.asList(hit("10.0.0.1", TIME), hit("10.0.0.2", TIME));
+        deduplicator.filter(hits);
+
+        deduplicator.forget(hits);
+
+        assertThat(deduplicator.filter(hits)).hasSize(2);
+        assertThat(deduplicator.size()).isEqualTo(2);
+    }
+
+    @Test
+    void remembersTheFullGenerationUntilTheNextOneFills() {
+        HitDeduplicator deduplicator = deduplicator(10, 4);
+        List<RequestDTO> first = hits(0, 4);
+        List<RequestDTO> second = hits(4, 8);
+
+        assertThat(deduplicator.filter(first)).hasSize(4);
+        assertThat(deduplicator.filter(first)).isEmpty();
+
+        assertThat(deduplicator.filter(second)).hasSize(4);
+        assertThat(deduplicator.filter(first)).hasSize(4);
+        assertThat(deduplicator.size()).isLessThanOrEqualTo(8);
+    }
+
+    @Test
+    void forgetsHitsOnceTheWindowElapsed() {
+        HitDeduplicator deduplicator = deduplicator(0, 100);
+        List<RequestDTO> hits = hits(0, 3);
+
+        deduplicator.filter(hits);
+
+        assertThat(deduplicator.filter(hits)).hasSize(3);
+    }
+
+    @Test
+    void passesEverythingWhenDisabled() {
+        HitDeduplicator deduplicator = new HitDeduplicator(new SimpleMeterRegistry(), false, 10, 100);
+        RequestDTO hit = hit("10.0.0.1", TIME);
+
+        assertThat(deduplicator.filter(Arrays.asList(hit, hit))).hasSize(2);
+    }
+
+    private static HitDeduplicator deduplicator(long windowSeconds, int maxEntries) {
+        return new HitDeduplicator(new SimpleMeterRegistry(), true, windowSeconds, maxEntries);
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        RequestDTO[] hits = new RequestDTO[to - from];
+        for (int i = from; i < to; i++) {
+            hits[i - from] = hit("10.0.0." + i, TIME);
+        }
+        return Arrays.asList(hits);
+    }
+
+    private static RequestDTO hit(String ip, LocalDateTime timestamp) {
+        return new RequestDTO(null, "ewm-main-service", "/events/1", ip, timestamp);
+    }
+}
@@ -0,0 +1,133 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+import ru.practicum.repository.StatStreamRepository;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class HotWindowTest {
+    private static final String APP = "ewm-main-service";
+    private static final Map<String, Integer> APP_IDS = Map.of(APP, 1);
+
+    private final StatStreamRepository repository = mock(StatStreamRepository.class);
+    private final ApplicationCache appCache = mock(ApplicationCache.class);
+    private final UriDictionary uriDictionary = mock(UriDictionary.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final LocalDateTime now = LocalDateTime.now();
+
+    @BeforeEach
+    void setUp() {
+        when(appCache.getName(1)).thenReturn(APP);
+        when(uriDictionary.getUri(anyInt())).thenAnswer(invocation -> "/events/" + invocation.getArgument(0, Integer.class));
+    }
+
+    @Test
+    void loadsRecentHitsAndCoversTheWindow() {
+        doAnswer(invocation -> {
+            StatStreamRepository.RawHitConsumer consumer = invocation.getArgument(1);
+            consumer.accept(1, 1, "10.0.0.1", now.minusHours(3));
+            consumer.accept(1, 1, "10.0.0.1", now.minusMinutes(30));
+            consumer.accept(1, 2, "10.0.0.2", now.minusMinutes(10));
+            return null;
+        }).when(repository).streamRawHits(any(), any());
+
+        HotWindow window = window(1_000);
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.covers(now.minusMinutes(59))).isTrue();
+        assertThat(window.covers(now.minusHours(2))).isFalse();
+        assertThat(window.count(now.minusMinutes(59), now.plusMinutes(1), null, null, false))
+                .extracting(RequestOutDTO::getUri).containsExactlyInAnyOrder("/events/1", "/events/2");
+        assertThat(registry.counter("stats.hot.served").count()).isEqualTo(1);
+        assertThat(registry.counter("stats.hot.fallbacks").count()).isEqualTo(1);
+    }
+
+    @Test
+    void countsHitsAndUniqueAddressesInTheRange() {
+        HotWindow window = window(1_000);
+        window.addAll(Arrays.asList(
+                hit("/events/1", "::1", now.minusMinutes(5)),
+                hit("/events/1", "0:0:0:0:0:0:0:1", now.minusMinutes(5)),
+                hit("/events/1", "10.0.0.1", now.minusMinutes(4)),
+                hit("/events/2", "10.0.0.1", now.minusMinutes(3)),
+                hit("/events/2", "10.0.0.1", now.minusMinutes(30))), APP_IDS, uriIds());
+
+        LocalDateTime from = now.minusMinutes(10);
+        LocalDateTime to = now.plusMinutes(1);
+        assertThat(hits(window.count(from, to, null, null, false))).containsExactly("/events/1=3", "/events/2=1");
+        assertThat(hits(window.count(from, to, null, null, true))).containsExactlyInAnyOrder("/events/1=2", "/events/2=1");
+        assertThat(hits(window.count(from, to, List.of(2), null, false))).containsExactly("/events/2=1");
+        assertThat(hits(window.count(from, to, null, "::1", false))).containsExactly("/events/1=2");
+        assertThat(hits(window.count(now.minusMinutes(5), now.minusMinutes(4), null, null, false)))
+                .containsExactly("/events/1=2");
+    }
+
+    @Test
+    void evictsOldestBucketsOverMaxHitsAndMovesCoverage() {
+        HotWindow window = window(3);
+        window.addAll(Arrays.asList(
+                hit("/events/1", "10.0.0.1", now.minusMinutes(50)),
+                hit("/events/1", "10.0.0.2", now.minusMinutes(50))), APP_IDS, uriIds());
+        assertThat(window.covers(now.minusMinutes(50))).isTrue();
+
+        window.addAll(Arrays.asList(
+                hit("/events/2", "10.0.0.1", now.minusMinutes(10)),
+                hit("/events/2", "10.0.0.2", now.minusMinutes(10))), APP_IDS, uriIds());
+
+        assertThat(window.size()).isEqualTo(2);
+        assertThat(window.covers(now.minusMinutes(50))).isFalse();
+        assertThat(window.covers(now.minusMinutes(11))).isTrue();
+        assertThat(hits(window.count(now.minusMinutes(11), now.plusMinutes(1), null, null, false)))
+                .containsExactly("/events/2=2");
+
+        // hits before the covered time are not stored
+        window.addAll(List.of(hit("/events/1", "10.0.0.3", now.minusMinutes(50))), APP_IDS, uriIds());
+        assertThat(window.size()).isEqualTo(2);
+    }
+
+    @Test
+    void coversNothingWhenDisabled() {
+        HotWindow window = new HotWindow(repository, mock(PlatformTransactionManager.class), appCache, uriDictionary,
+                registry, false, 1, 60, 1_000);
+        window.load();
+        window.addAll(List.of(hit("/events/1", "10.0.0.1", now)), APP_IDS, uriIds());
+
+        assertThat(window.size()).isZero();
+        assertThat(window.covers(now.minusMinutes(1))).isFalse();
+    }
+
+    private HotWindow window(long maxHits) {
+        HotWindow window = new HotWindow(repository, mock(PlatformTransactionManager.class), appCache, uriDictionary,
+                registry, true, 1, 60, maxHits);
+        window.load();
+        return window;
+    }
+
+    private static Map<String, Integer> uriIds() {
+        return Map.of("/events/1", 1, "/events/2", 2);
+    }
+
+    private static List<String> hits(List<RequestOutDTO> stats) {
+        return stats.stream().map(stat -> stat.getUri() + "=" + stat.getHits()).collect(Collectors.toList());
+    }
+
+    private static RequestDTO hit(String uri, String ip, LocalDateTime timestamp) {
+        return new RequestDTO(null, APP, uri, ip, timestamp);
+    }
+}
@@ -0,0 +1,159 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.HttpStatus;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.web.server.ResponseStatusException;
+import ru.practicum.RequestDTO;
+import ru.practicum.journal.HitJournal;
+import ru.practicum.repository.JournalCheckpointRepository;
+
+import java.io.IOException;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.IntStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class JournalHitIngestorTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final HitWriter hitWriter = mock(HitWriter.class);
+    private final HitQuarantine quarantine = mock(HitQuarantine.class);
+    private final JournalCheckpointRepository checkpointRepository = mock(JournalCheckpointRepository.class);
+    private final List<RequestDTO> written = new ArrayList<>();
+    private JournalHitIngestor ingestor;
+
+    @TempDir
+    Path dir;
+
+    @BeforeEach
+    void setUp() {
+        doAnswer(invocation -> {
+            written.addAll(invocation.getArgument(0));
+            return null;
+        }).when(hitWriter).write(anyList());
+        when(checkpointRepository.find()).thenReturn(Optional.empty());
+    }
+
+    @AfterEach
+    void tearDown() {
+        if (ingestor != null) ingestor.close();
+    }
+
+    @Test
+    void refusesHitsOverThePendingLimit() throws IOException {
+        ingestor = ingestor(10);
+        ingestor.ingest(hits(0, 8));
+
+        assertThatThrownBy(() -> ingestor.ingest(hits(8, 11)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThatThrownBy(() -> ingestor.ingest(hits(0, 11)))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.PAYLOAD_TOO_LARGE));
+
+        ingestor.drain();
+        ingestor.ingest(hits(8, 11));
+        assertThat(written).isEqualTo(hits(0, 8));
+    }
+
+    @Test
+    void countsPendingHitsUntilTheyAreDrained() throws IOException {
+        ingestor = ingestor(1_000);
+        ingestor.ingest(hits(0, 3));
+
+        assertThat(pendingCount()).isEqualTo(3);
+        ingestor.drain();
+
+        assertThat(pendingCount()).isZero();
+        assertThat(written).isEqualTo(hits(0, 3));
+        verify(checkpointRepository).save(any(HitJournal.Position.class));
+    }
+
+    @Test
+    void drainsInBatchesUpToTheHitsAcceptedBeforeTheCall() throws IOException {
+        ingestor = ingestor(1_000);
+        for (int i = 0; i < 10; i++) {
+            ingestor.ingest(hits(i * 3, i * 3 + 3));
+        }
+
+        ingestor.drain();
+        ingestor.drain();
+
+        assertThat(written).isEqualTo(hits(0, 30));
+        assertThat(pendingCount()).isZero();
+    }
+
+    @Test
+    void writesRejectedBatchesHitByHitWithTheCheckpoint() throws IOException {
+        doThrow(new DataIntegrityViolationException("bad hit")).when(hitWriter).write(anyList());
+        ingestor = ingestor(1_000);
+        ingestor.ingest(hits(0, 3));
+
+        ingestor.drain();
+
+        verify(quarantine).writeEach(any(), any());
+        assertThat(pendingCount()).isZero();
+    }
+
+    @Test
+    void keepsHitsPendingWhenTheFallbackFails() throws IOException {
+        doThrow(new DataIntegrityViolationException("bad hit")).when(hitWriter).write(anyList());
+        doThrow(new IllegalStateException("connection lost")).when(quarantine).writeEach(any(), any());
+        ingestor = ingestor(1_000);
+        ingestor.ingest(hits(0, 3));
+
+        assertThatThrownBy(() -> ingestor.drain()).isInstanceOf(IllegalStateException.class);
+
+        assertThat(pendingCount()).isEqualTo(3);
+    }
+
+    @Test
+    void replaysUndrainedHitsAfterRestart() throws IOException {
+        ingestor = ingestor(1_000);
+        ingestor.ingest(hits(0, 5));
+        doThrow(new IllegalStateException("connection lost")).when(hitWriter).write(anyList());
+        ingestor.close();
+
+        ingestor = ingestor(1_000);
+        assertThat(pendingCount()).isEqualTo(5);
+    }
+
+    private long pendingCount() {
+        return ingestor.query(pending -> pending.count(NOW, NOW.plusHours(1), null)).stream()
+                .mapToLong(row -> row.getHits())
+                .sum();
+    }
+
+    private JournalHitIngestor ingestor(long maxPendingHits) throws IOException {
+        JournalHitIngestor journalIngestor = new JournalHitIngestor(hitWriter, quarantine, checkpointRepository,
+                mock(PlatformTransactionManager.class), mock(StatsCache.class), new SimpleMeterRegistry(),
+                dir.toString(), 1 << 16, false, 4, maxPendingHits);
+        journalIngestor.open();
+        return journalIngestor;
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        return IntStream.range(from, to)
+                .mapToObj(i -> new RequestDTO(null, "ewm-main-service", "/events/" + i, "10.0.0.1", NOW.plusSeconds(i)))
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,52 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class PendingHitsTest {
+    private static final LocalDateTime NOW = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final PendingHits pending = new PendingHits();
+
+    @Test
+    void countsHitsInTheWindowPerAppAndUri() {
+        pending.add(Arrays.asList(hit("/events/1", NOW), hit("/events/1", NOW.plusSeconds(1)),
+                hit("/events/2", NOW.plusSeconds(59)), hit("/events/2", NOW.plusSeconds(60))));
+
+        assertThat(rows(pending.count(NOW, NOW.plusMinutes(1), null))).containsExactlyInAnyOrder("/events/1=2", "/events/2=1");
+        assertThat(rows(pending.count(NOW.plusSeconds(1), NOW.plusMinutes(2), null)))
+                .containsExactlyInAnyOrder("/events/1=1", "/events/2=2");
+        assertThat(rows(pending.count(NOW, NOW.plusMinutes(2), UriPattern.matcher(List.of("/events/2")))))
+                .containsExactly("/events/2=2");
+    }
+
+    @Test
+    void forgetsRemovedHits() {
+        List<RequestDTO> first = Arrays.asList(hit("/events/1", NOW), hit("/events/2", NOW));
+        List<RequestDTO> second = List.of(hit("/events/1", NOW));
+        pending.add(first);
+        pending.add(second);
+
+        pending.remove(first);
+        assertThat(rows(pending.count(NOW, NOW.plusSeconds(1), null))).containsExactly("/events/1=1");
+
+        pending.remove(second);
+        assertThat(pending.count(NOW.minusDays(1), NOW.plusDays(1), null)).isEmpty();
+    }
+
+    private static List<String> rows(List<RequestOutDTO> rows) {
+        return rows.stream().map(row -> row.getUri() + "=" + row.getHits()).collect(Collectors.toList());
+    }
+
+    private static RequestDTO hit(String uri, LocalDateTime timestamp) {
+        return new RequestDTO(null, "ewm-main-service", uri, "10.0.0.1", timestamp);
+    }
+}
@@ -0,0 +1,111 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.dao.QueryTimeoutException;
+import org.springframework.http.HttpStatus;
+import org.springframework.jdbc.UncategorizedSQLException;
+import org.springframework.web.server.ResponseStatusException;
+
+import java.sql.SQLException;
+import java.time.LocalDateTime;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class QueryGuardTest {
+    private static final LocalDateTime START = LocalDateTime.of(2026, 1, 1, 0, 0);
+
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final QueryGuard guard = new QueryGuard(registry, true, 30, 7, 10, 1, 1, 1, 1);
+
+    @Test
+    void rejectsWindowsLongerThanTheLimitOfTheClass() {
+        guard.checkRange(QueryGuard.QueryClass.HITS, START, START.plusDays(30));
+        guard.checkRange(QueryGuard.QueryClass.UNIQUE, START, START.plusDays(7));
+
+        assertThatThrownBy(() -> guard.checkRange(QueryGuard.QueryClass.UNIQUE_BY_URI, START, START.plusDays(8)))
+                .isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+                    assertThat(e.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST);
+                    assertThat(e.getReason()).isEqualTo("window longer than 7 days");
+                });
+        assertThat(registry.counter("stats.guard.rejected", "class", "unique-by-uri", "reason", "range").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void heldPermitRejectsFurtherQueriesOfItsClassUntilClosed() {
+        QueryGuard.Permit permit = guard.acquire(QueryGuard.QueryClass.HITS);
+
+        assertThatThrownBy(() -> guard.execute(QueryGuard.QueryClass.HITS, () -> 1))
+                .isInstanceOfSatisfying(ResponseStatusException.class,
+                        e -> assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE));
+        assertThat(guard.execute(QueryGuard.QueryClass.UNIQUE, () -> 2)).isEqualTo(2);
+
+        permit.close();
+        permit.close();
+        assertThat(guard.execute(QueryGuard.QueryClass.HITS, () -> 3)).isEqualTo(3);
+        assertThat(registry.get("stats.guard.available").tag("class", "hits").gauge().value()).isEqualTo(1);
+    }
+
+    @Test
+    void tryAcquireRejectsWithoutWaiting() {
+        QueryGuard slow = new QueryGuard(registry, true, 30, 7, 60_000, 1, 1, 1, 1);
+        QueryGuard.Permit permit = slow.tryAcquire(QueryGuard.QueryClass.UNIQUE);
+
+        long started = System.nanoTime();
+        assertThatThrownBy(() -> slow.tryAcquire(QueryGuard.QueryClass.UNIQUE))
+                .isInstanceOf(ResponseStatusException.class);
+        assertThat(System.nanoTime() - started).isLessThan(1_000_000_000L);
+
+        permit.close();
+        slow.tryAcquire(QueryGuard.QueryClass.UNIQUE).close();
+    }
+
+    @Test
+    void releasesThePermitWhenTheQueryFails() {
+        assertThatThrownBy(() -> guard.execute(QueryGuard.QueryClass.HITS, () -> {
+            throw new IllegalStateException("boom");
+        })).isInstanceOf(IllegalStateException.class);
+
+        assertThat(guard.execute(QueryGuard.QueryClass.HITS, () -> 1)).isEqualTo(1);
+    }
+
+    @Test
+    void answersTimeoutsWith503() {
+        SQLException canceled = new SQLException("canceling statement due to statement timeout", "57014");
+
+        assertTimeout(new QueryTimeoutException("timeout"));
+        assertTimeout(new UncategorizedSQLException("select", "select 1", canceled));
+        assertThat(registry.counter("stats.guard.timeouts", "class", "hits").count()).isEqualTo(2);
+    }
+
+    @Test
+    void passesOtherDatabaseErrorsThrough() {
+        DataIntegrityViolationException error = new DataIntegrityViolationException("duplicate",
+                new SQLException("duplicate key", "23505"));
+
+        assertThatThrownBy(() -> guard.execute(QueryGuard.QueryClass.HITS, () -> {
+            throw error;
+        })).isSameAs(error);
+    }
+
+    @Test
+    void disabledGuardRunsEverything() {
+        QueryGuard disabled = new QueryGuard(registry, false, 1, 1, 10, 1, 1, 1, 1);
+
+        disabled.checkRange(QueryGuard.QueryClass.UNIQUE, START, START.plusDays(100));
+        disabled.acquire(QueryGuard.QueryClass.HITS);
+        assertThat(disabled.execute(QueryGuard.QueryClass.HITS, () -> 1)).isEqualTo(1);
+    }
+
+    private void assertTimeout(RuntimeException error) {
+        assertThatThrownBy(() -> guard.execute(QueryGuard.QueryClass.HITS, () -> {
+            throw error;
+        })).isInstanceOfSatisfying(ResponseStatusException.class, e -> {
+            assertThat(e.getStatus()).isEqualTo(HttpStatus.SERVICE_UNAVAILABLE);
+            assertThat(e.getCause()).isSameAs(error);
+        });
+    }
+}
@@ -0,0 +1,118 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.springframework.transaction.PlatformTransactionManager;
+import ru.practicum.RequestDTO;
+import ru.practicum.repository.SketchRepository;
+import ru.practicum.sketch.HyperLogLog;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.atomic.AtomicBoolean;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.within;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.when;
+
+class SketchServiceTest {
+    private static final String APP = "ewm-main-service";
+    private static final String URI = "/events/1";
+    private static final LocalDateTime HOUR = LocalDateTime.of(2026, 1, 1, 12, 0);
+    private static final Map<String, Integer> APP_IDS = Map.of(APP, 1);
+    private static final Map<String, Integer> URI_IDS = Map.of(URI, 1);
+
+    private final SketchRepository repository = mock(SketchRepository.class);
+    private final Map<LocalDateTime, byte[]> stored = new ConcurrentHashMap<>();
+    private final SketchService service = new SketchService(repository, mock(PlatformTransactionManager.class), 0.02);
+
+    @BeforeEach
+    void setUp() {
+        when(repository.findForUpdate(anyInt(), anyInt(), any())).thenAnswer(invocation -> stored.get(invocation.getArgument(2)));
+        doAnswer(invocation -> stored.put(invocation.getArgument(2), invocation.getArgument(3)))
+                .when(repository).save(anyInt(), anyInt(), any(), any());
+        doAnswer(invocation -> {
+            SketchRepository.SketchConsumer consumer = invocation.getArgument(3);
+            stored.forEach((bucket, bytes) -> consumer.accept(APP, URI, bucket, bytes));
+            return null;
+        }).when(repository).forEachInRange(any(), any(), any(), any());
+    }
+
+    @Test
+    void countsEverySpellingOfAnAddressOnce() {
+        service.addAll(Arrays.asList(hit("2001:DB8::1"), hit("2001:db8:0::1"), hit("2001:0db8:0:0:0:0:0:1"),
+                hit("::ffff:1.2.3.4"), hit("::FFFF:1.2.3.4"), hit("1.2.3.4")), APP_IDS, URI_IDS);
+
+        // ::ffff:1.2.3.4 is kept apart from 1.2.3.4, as it is by inet
+        assertThat(estimate()).isEqualTo(3);
+        assertThat(SketchService.hashIp("2001:DB8::1")).isEqualTo(SketchService.hashIp("2001:db8::1"));
+        assertThat(SketchService.hashIp("::ffff:1.2.3.4")).isNotEqualTo(SketchService.hashIp("1.2.3.4"));
+    }
+
+    @Test
+    void mergesPendingAndFlushedSketches() {
+        service.addAll(hits(0, 500), APP_IDS, URI_IDS);
+        service.flush();
+        service.addAll(hits(250, 1_000), APP_IDS, URI_IDS);
+
+        assertThat((double) estimate()).isCloseTo(1_000, within(1_000 * 0.05));
+        service.flush();
+        assertThat((double) estimate()).isCloseTo(1_000, within(1_000 * 0.05));
+    }
+
+    @Test
+    void keepsVisitorsAddedWhileFlushing() throws InterruptedException {
+        AtomicBoolean adding = new AtomicBoolean(true);
+        Thread flusher = new Thread(() -> {
+            while (adding.get()) {
+                service.flush();
+            }
+        });
+        flusher.start();
+        List<Thread> writers = new ArrayList<>();
+        for (int t = 0; t < 4; t++) {
+            int from = t * 5_000;
+            Thread writer = new Thread(() -> {
+                for (int i = from; i < from + 5_000; i++) {
+                    service.addAll(hits(i, i + 1), APP_IDS, URI_IDS);
+                }
+            });
+            writers.add(writer);
+            writer.start();
+        }
+        for (Thread writer : writers) {
+            writer.join();
+        }
+        adding.set(false);
+        flusher.join();
+        service.flush();
+
+        HyperLogLog expected = service.newSketch();
+        hits(0, 20_000).forEach(hit -> expected.addHash(SketchService.hashIp(hit.getIp())));
+        assertThat(HyperLogLog.fromBytes(stored.get(HOUR)).toBytes()).isEqualTo(expected.toBytes());
+    }
+
+    private long estimate() {
+        return service.findSketches(HOUR, HOUR.plusHours(1), null).get(Arrays.asList(APP, URI)).estimate();
+    }
+
+    private static List<RequestDTO> hits(int from, int to) {
+        List<RequestDTO> hits = new ArrayList<>();
+        for (int i = from; i < to; i++) {
+            hits.add(hit("10." + (i >> 16) + "." + (i >> 8 & 0xff) + "." + (i & 0xff)));
+        }
+        return hits;
+    }
+
+    private static RequestDTO hit(String ip) {
+        return new RequestDTO(null, APP, URI, ip, HOUR.plusMinutes(5));
+    }
+}
@@ -0,0 +1,80 @@
+package ru.practicum.service;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class StatsCacheTest {
+    private static final LocalDateTime T = LocalDateTime.of(2026, 1, 1, 12, 30, 17);
+
+    private final StatsCache cache = new StatsCache(new SimpleMeterRegistry(), true, 100, 60, 600);
+    private final List<String> loads = new ArrayList<>();
+
+    @Test
+    void sharesTheAlignedInteriorBetweenNearbyWindows() {
+        cache.get(T.minusHours(1), T, null, true, "10.0.0.1", this::load);
+        assertThat(loads).containsExactly("11:30:17-11:30:59", "11:31-12:29:59", "12:30-12:30:17");
+
+        loads.clear();
+        cache.get(T.minusHours(1).plusSeconds(20), T.plusSeconds(20), null, true, "10.0.0.1", this::load);
+
+        assertThat(loads).containsExactly("11:30:37-11:30:59", "12:30-12:30:37");
+    }
+
+    @Test
+    void combinesPartsBySumOrByMaximum() {
+        List<RequestOutDTO> hits = cache.get(T.minusHours(1), T, null, false, null, (from, to) -> rows(1));
+        List<RequestOutDTO> byIp = cache.get(T.minusHours(1), T, null, true, "10.0.0.1", (from, to) -> rows(1));
+
+        assertThat(hits).extracting(RequestOutDTO::getHits).containsExactly(3L);
+        assertThat(byIp).extracting(RequestOutDTO::getHits).containsExactly(1L);
+    }
+
+    @Test
+    void reloadsTheInteriorOnceItsBucketsChange() {
+        cache.get(T.minusHours(1), T, null, false, null, this::load);
+        cache.onHits(List.of(new RequestDTO(null, "ewm-main-service", "/events/1", "10.0.0.1", T.minusMinutes(10))));
+
+        loads.clear();
+        cache.get(T.minusHours(1), T, null, false, null, this::load);
+        assertThat(loads).contains("11:31-12:29:59");
+
+        loads.clear();
+        cache.onHits(List.of(new RequestDTO(null, "ewm-main-service", "/events/1", "10.0.0.1", T)));
+        cache.get(T.minusHours(1), T, null, false, null, this::load);
+        assertThat(loads).doesNotContain("11:31-12:29:59");
+    }
+
+    @Test
+    void cachesUniqueCountsOverAllIpsForTheExactWindow() {
+        cache.get(T.minusHours(1), T, null, true, null, this::load);
+        cache.get(T.minusHours(1), T, null, true, null, this::load);
+        cache.get(T.minusHours(1).plusSeconds(1), T.plusSeconds(1), null, true, null, this::load);
+
+        assertThat(loads).containsExactly("11:30:17-12:30:17", "11:30:18-12:30:18");
+    }
+
+    @Test
+    void loadsShortWindowsWithoutCaching() {
+        cache.get(T, T.plusSeconds(30), null, false, null, this::load);
+        cache.get(T, T.plusSeconds(30), null, false, null, this::load);
+
+        assertThat(loads).containsExactly("12:30:17-12:30:47", "12:30:17-12:30:47");
+    }
+
+    private List<RequestOutDTO> load(LocalDateTime from, LocalDateTime to) {
+        loads.add(from.toLocalTime() + "-" + to.toLocalTime());
+        return rows(1);
+    }
+
+    private static List<RequestOutDTO> rows(long hits) {
+        return List.of(new RequestOutDTO("ewm-main-service", "/events/1", hits));
+    }
+}
@@ -0,0 +1,48 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+import ru.practicum.RequestOutDTO;
+
+import java.time.LocalDateTime;
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TrendingServiceTest {
+    private final TrendingService service = new TrendingService(10, 60, 16);
+
+    @Test
+    void ranksPairsByHitsInTheWindow() {
+        LocalDateTime now = LocalDateTime.now();
+        service.record(Arrays.asList(hit("/events/1", now), hit("/events/2", now), hit("/events/2", now),
+                hit("/users/1", now)));
+
+        List<RequestOutDTO> trending = service.findTrending(60, 10, "/events/");
+
+        assertThat(trending).extracting(RequestOutDTO::getUri).containsExactly("/events/2", "/events/1");
+        assertThat(trending).extracting(RequestOutDTO::getHits).containsExactly(2L, 1L);
+        assertThat(service.findTrending(60, 1, null)).extracting(RequestOutDTO::getUri).containsExactly("/events/2");
+    }
+
+    @Test
+    void recyclesIdsOfPairsWithoutHitsInTheWindow() {
+        LocalDateTime old = LocalDateTime.now().minusHours(2);
+        service.record(Arrays.asList(hit("/events/1", old), hit("/events/2", old)));
+        service.record(Collections.singletonList(hit("/events/3", LocalDateTime.now())));
+        assertThat(service.getIdCount()).isEqualTo(3);
+
+        service.recycleIds();
+        assertThat(service.getIdCount()).isEqualTo(1);
+
+        service.record(Collections.singletonList(hit("/events/4", LocalDateTime.now())));
+        assertThat(service.findTrending(60, 10, null)).extracting(RequestOutDTO::getUri)
+                .containsExactlyInAnyOrder("/events/3", "/events/4");
+    }
+
+    private static RequestDTO hit(String uri, LocalDateTime timestamp) {
+        return new RequestDTO(null, "ewm-main-service", uri, "10.0.0.1", timestamp);
+    }
+}
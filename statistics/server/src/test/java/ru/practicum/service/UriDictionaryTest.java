@@ -0,0 +1,52 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.SimpleTransactionStatus;
+import ru.practicum.model.UriEntry;
+import ru.practicum.repository.UriEntryRepository;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+import static org.mockito.Mockito.when;
+
+class UriDictionaryTest {
+    private final UriEntryRepository repository = mock(UriEntryRepository.class);
+    private final UriDictionary dictionary = new UriDictionary(repository, transactionManager());
+
+    @Test
+    void findsTheUriCreatedConcurrentlyAfterAConflict() {
+        DataIntegrityViolationException conflict = new DataIntegrityViolationException("duplicate key");
+        when(repository.findByUri("/events/1"))
+                .thenReturn(Optional.empty())
+                .thenReturn(Optional.of(new UriEntry(7, "/events/1")));
+        when(repository.save(any())).thenThrow(conflict);
+
+        assertThat(dictionary.resolve("/events/1")).isEqualTo(7);
+        assertThat(dictionary.resolve("/events/1")).isEqualTo(7);
+        assertThat(dictionary.getUri(7)).isEqualTo("/events/1");
+        verify(repository, times(2)).findByUri("/events/1");
+    }
+
+    @Test
+    void rethrowsTheConflictWhenTheUriIsStillMissing() {
+        DataIntegrityViolationException conflict = new DataIntegrityViolationException("uri too long");
+        when(repository.findByUri("/events/1")).thenReturn(Optional.empty());
+        when(repository.save(any())).thenThrow(conflict);
+
+        assertThatThrownBy(() -> dictionary.resolve("/events/1")).isSameAs(conflict);
+    }
+
+    private static PlatformTransactionManager transactionManager() {
+        PlatformTransactionManager transactionManager = mock(PlatformTransactionManager.class);
+        when(transactionManager.getTransaction(any())).thenAnswer(invocation -> new SimpleTransactionStatus());
+        return transactionManager;
+    }
+}
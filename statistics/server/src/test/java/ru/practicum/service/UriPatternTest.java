@@ -0,0 +1,72 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.CsvSource;
+
+import java.util.Arrays;
+import java.util.Collections;
+import java.util.function.Predicate;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class UriPatternTest {
+
+    @ParameterizedTest
+    @CsvSource({
+            "/events/*, /events/1, true",
+            "/events/*, /events/, true",
+            "/events/*, /events/1/comments, true",
+            "/events/*, /events, false",
+            "/events/*, /users/1, false",
+            "/events/*/comments, /events/1/comments, true",
+            "/events/*/comments, /events/1/2/comments, true",
+            "/events/*/comments, /events/1/comments/2, false",
+            "/events/*/comments, /events/comments, false",
+            "*/comments, /events/1/comments, true",
+            "*, /, true",
+            "/a*b*c, /a-b-c, true",
+            "/a*b*c, /abc, true",
+            "/a*b*c, /a-c-b, false",
+    })
+    void matchesGlob(String glob, String uri, boolean matches) {
+        assertThat(UriPattern.of(glob).matches(uri)).isEqualTo(matches);
+    }
+
+    @Test
+    void treatsRegexCharactersLiterally() {
+        UriPattern pattern = UriPattern.of("/events?id=*.json");
+
+        assertThat(pattern.matches("/events?id=1.json")).isTrue();
+        assertThat(pattern.matches("/eventsid=1.json")).isFalse();
+        assertThat(pattern.matches("/events?id=1xjson")).isFalse();
+    }
+
+    @Test
+    void matchesAcrossLineBreaks() {
+        assertThat(UriPattern.of("/events/*/comments").matches("/events/1\n2/comments")).isTrue();
+    }
+
+    @Test
+    void exposesLiteralPrefix() {
+        assertThat(UriPattern.of("/events/*/comments").getPrefix()).isEqualTo("/events/");
+        assertThat(UriPattern.of("*.json").getPrefix()).isEmpty();
+    }
+
+    @Test
+    void rejectsUrisWithoutWildcard() {
+        assertThat(UriPattern.isPattern("/events/1")).isFalse();
+        assertThatThrownBy(() -> UriPattern.of("/events/1")).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    @Test
+    void combinesLiteralsAndPatterns() {
+        Predicate<String> matcher = UriPattern.matcher(Arrays.asList("/users/1", "/events/*"));
+
+        assertThat(matcher).accepts("/users/1", "/events/1", "/events/2");
+        assertThat(matcher).rejects("/users/2", "/users/1/events");
+        assertThat(UriPattern.matcher(null)).isNull();
+        assertThat(UriPattern.matcher(Collections.emptyList())).isNull();
+    }
+}
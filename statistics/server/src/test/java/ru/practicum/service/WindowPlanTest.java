@@ -0,0 +1,87 @@
+package ru.practicum.service;
+
+import org.junit.jupiter.api.Test;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class WindowPlanTest {
+
+    @Test
+    void splitsUnalignedWindowIntoRawMinuteAndHourParts() {
+        WindowPlan plan = WindowPlan.of(at("10:17:42"), at("14:05:09"));
+
+        assertThat(ranges(plan.getRaw())).containsExactly("10:17:42-10:18", "14:05-14:05:09");
+        assertThat(ranges(plan.getMinutes())).containsExactly("10:18-11:00", "14:00-14:05");
+        assertThat(ranges(plan.getHours())).containsExactly("11:00-14:00");
+    }
+
+    @Test
+    void usesOnlyHoursForHourAlignedWindow() {
+        WindowPlan plan = WindowPlan.of(at("10:00:00"), at("12:00:00"));
+
+        assertThat(plan.getRaw()).isEmpty();
+        assertThat(plan.getMinutes()).isEmpty();
+        assertThat(ranges(plan.getHours())).containsExactly("10:00-12:00");
+    }
+
+    @Test
+    void usesMinutesWhenNoWholeHourFits() {
+        WindowPlan plan = WindowPlan.of(at("10:17:00"), at("11:05:30"));
+
+        assertThat(ranges(plan.getRaw())).containsExactly("11:05-11:05:30");
+        assertThat(ranges(plan.getMinutes())).containsExactly("10:17-11:05");
+        assertThat(plan.getHours()).isEmpty();
+    }
+
+    @Test
+    void readsWindowWithinOneMinuteFromRawHits() {
+        WindowPlan plan = WindowPlan.of(at("10:17:05"), at("10:17:55"));
+
+        assertThat(ranges(plan.getRaw())).containsExactly("10:17:05-10:17:55");
+        assertThat(plan.getMinutes()).isEmpty();
+        assertThat(plan.getHours()).isEmpty();
+    }
+
+    @Test
+    void readsWindowCrossingOneMinuteBoundaryFromRawHits() {
+        WindowPlan plan = WindowPlan.of(at("10:17:30"), at("10:18:30"));
+
+        assertThat(ranges(plan.getRaw())).containsExactly("10:17:30-10:18:30");
+        assertThat(plan.getMinutes()).isEmpty();
+    }
+
+    @Test
+    void partsCoverTheWindowWithoutGapsOrOverlaps() {
+        LocalDateTime from = at("23:59:59").minusDays(1);
+        LocalDateTime to = at("00:00:01").plusDays(1);
+        WindowPlan plan = WindowPlan.of(from, to);
+
+        List<WindowPlan.Range> parts = new ArrayList<>(plan.getRaw());
+        parts.addAll(plan.getMinutes());
+        parts.addAll(plan.getHours());
+        parts.sort(Comparator.comparing(WindowPlan.Range::getFrom));
+
+        assertThat(parts.get(0).getFrom()).isEqualTo(from);
+        for (int i = 1; i < parts.size(); i++) {
+            assertThat(parts.get(i).getFrom()).isEqualTo(parts.get(i - 1).getTo());
+        }
+        assertThat(parts.get(parts.size() - 1).getTo()).isEqualTo(to);
+        assertThat(plan.getHours()).hasSize(1);
+    }
+
+    private static LocalDateTime at(String time) {
+        return LocalDateTime.parse("2026-01-15T" + time);
+    }
+
+    private static List<String> ranges(List<WindowPlan.Range> ranges) {
+        return ranges.stream()
+                .map(range -> range.getFrom().toLocalTime() + "-" + range.getTo().toLocalTime())
+                .collect(Collectors.toList());
+    }
+}
@@ -0,0 +1,117 @@
+package ru.practicum.sketch;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Random;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class SpaceSavingTest {
+    private static final int CAPACITY = 50;
+
+    @Test
+    void countsExactlyWhileKeysFit() {
+        SpaceSaving<String> summary = new SpaceSaving<>(3);
+        summary.add("a", 5);
+        summary.add("b", 1);
+        summary.add("a", 2);
+        summary.add("c", 3);
+
+        List<SpaceSaving.Entry<String>> top = summary.top(3);
+        assertThat(top).extracting(SpaceSaving.Entry::getKey).containsExactly("a", "c", "b");
+        assertThat(top).extracting(SpaceSaving.Entry::getCount).containsExactly(7L, 3L, 1L);
+        assertThat(top).extracting(SpaceSaving.Entry::getError).containsOnly(0L);
+        assertThat(summary.getMinCount()).isEqualTo(1);
+    }
+
+    @Test
+    void evictsTheSmallestCounter() {
+        SpaceSaving<String> summary = new SpaceSaving<>(2);
+        summary.add("a", 5);
+        summary.add("b", 2);
+        summary.add("c", 1);
+
+        List<SpaceSaving.Entry<String>> top = summary.top(2);
+        assertThat(top).extracting(SpaceSaving.Entry::getKey).containsExactly("a", "c");
+        assertThat(top.get(1).getCount()).isEqualTo(3);
+        assertThat(top.get(1).getError()).isEqualTo(2);
+    }
+
+    @Test
+    void staysWithinErrorBoundsOnSkewedStream() {
+        Map<Integer, Long> truth = new HashMap<>();
+        SpaceSaving<Integer> summary = new SpaceSaving<>(CAPACITY);
+        long total = feed(summary, truth, new Random(1), 100_000);
+
+        assertBounds(summary, truth, total);
+    }
+
+    @Test
+    void staysWithinErrorBoundsAfterMerge() {
+        Map<Integer, Long> truth = new HashMap<>();
+        SpaceSaving<Integer> left = new SpaceSaving<>(CAPACITY);
+        SpaceSaving<Integer> right = new SpaceSaving<>(CAPACITY);
+        long total = feed(left, truth, new Random(2), 50_000) + feed(right, truth, new Random(3), 70_000);
+
+        SpaceSaving<Integer> merged = left.merge(right);
+
+        assertThat(merged.getCapacity()).isEqualTo(CAPACITY);
+        assertBounds(merged, truth, total);
+    }
+
+    @Test
+    void mergeWithEmptySummaryKeepsCounts() {
+        SpaceSaving<String> summary = new SpaceSaving<>(4);
+        summary.add("a", 3);
+        summary.add("b", 1);
+
+        SpaceSaving<String> merged = summary.merge(new SpaceSaving<>(4));
+
+        assertThat(merged.top(2)).extracting(SpaceSaving.Entry::getCount).containsExactly(3L, 1L);
+        assertThat(merged.top(2)).extracting(SpaceSaving.Entry::getError).containsOnly(0L);
+    }
+
+    @Test
+    void rejectsNonPositiveCapacity() {
+        assertThatThrownBy(() -> new SpaceSaving<>(0)).isInstanceOf(IllegalArgumentException.class);
+    }
+
+    /**
+     * Adds {@code hits} hits of Zipf-like distributed keys, a few keys get most of them.
+     */
+    private static long feed(SpaceSaving<Integer> summary, Map<Integer, Long> truth, Random random, int hits) {
+        for (int i = 0; i < hits; i++) {
+            int key = (int) Math.floor(Math.pow(1000, random.nextDouble())) - 1;
+            summary.add(key, 1);
+            truth.merge(key, 1L, Long::sum);
+        }
+        return hits;
+    }
+
+    private static void assertBounds(SpaceSaving<Integer> summary, Map<Integer, Long> truth, long total) {
+        List<SpaceSaving.Entry<Integer>> top = summary.top(CAPACITY);
+        long maxError = total / CAPACITY;
+
+        for (SpaceSaving.Entry<Integer> entry : top) {
+            long actual = truth.getOrDefault(entry.getKey(), 0L);
+            assertThat(entry.getCount()).isGreaterThanOrEqualTo(actual);
+            assertThat(entry.getCount() - entry.getError()).isLessThanOrEqualTo(actual);
+            assertThat(entry.getError()).isLessThanOrEqualTo(maxError);
+        }
+        truth.forEach((key, count) -> {
+            if (count > maxError) {
+                assertThat(top).extracting(SpaceSaving.Entry::getKey).contains(key);
+            }
+            if (top.stream().noneMatch(entry -> entry.getKey().equals(key))) {
+                assertThat(count).isLessThanOrEqualTo(summary.getMinCount());
+            }
+        });
+        for (int i = 1; i < top.size(); i++) {
+            assertThat(top.get(i).getCount()).isLessThanOrEqualTo(top.get(i - 1).getCount());
+        }
+    }
+}
@@ -0,0 +1,188 @@
+package ru.practicum.tcp;
+
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import ru.practicum.RequestDTO;
+import ru.practicum.journal.HitCodec;
+import ru.practicum.service.StatService;
+
+import javax.validation.Validation;
+import java.io.DataInputStream;
+import java.io.DataOutputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.net.Socket;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.atomic.AtomicInteger;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyList;
+import static org.mockito.Mockito.doAnswer;
+import static org.mockito.Mockito.doThrow;
+import static org.mockito.Mockito.mock;
+
+class TcpHitListenerTest {
+    private static final LocalDateTime TIMESTAMP = LocalDateTime.of(2026, 1, 1, 12, 0);
+
+    private final StatService statService = mock(StatService.class);
+    private final SimpleMeterRegistry registry = new SimpleMeterRegistry();
+    private final List<List<RequestDTO>> stored = Collections.synchronizedList(new ArrayList<>());
+    private TcpHitListener listener;
+
+    @AfterEach
+    void tearDown() {
+        if (listener != null) {
+            listener.stop();
+        }
+    }
+
+    @Test
+    void acknowledgesTheFramesProcessedSoFar() throws IOException {
+        recordBatches();
+        start(2);
+
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            DataInputStream in = new DataInputStream(socket.getInputStream());
+            for (int i = 0; i < 5; i++) {
+                writeFrame(out, hit("/events/" + i, "10.0.0.1"));
+            }
+
+            assertThat(readAcksUntil(in, 5)).isSorted().last().isEqualTo(5L);
+        }
+
+        List<String> uris = new ArrayList<>();
+        stored.forEach(batch -> batch.forEach(hit -> uris.add(hit.getUri())));
+        assertThat(uris).containsExactly("/events/0", "/events/1", "/events/2", "/events/3", "/events/4");
+        assertThat(stored).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+        assertThat(stored.get(0).get(0).getTimestamp()).isEqualTo(TIMESTAMP);
+    }
+
+    @Test
+    void skipsAndCountsInvalidHits() throws IOException {
+        recordBatches();
+        start(10);
+
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            writeFrame(out, hit("/events/1", "10.0.0.1"));
+            writeFrame(out, hit("/events/2", "not an ip"));
+
+            assertThat(readAcksUntil(new DataInputStream(socket.getInputStream()), 2)).last().isEqualTo(2L);
+        }
+
+        assertThat(stored).hasSize(1);
+        assertThat(stored.get(0)).extracting(RequestDTO::getUri).containsExactly("/events/1");
+        assertThat(registry.counter("stats.tcp.received").count()).isEqualTo(2);
+        assertThat(registry.counter("stats.tcp.rejected").count()).isEqualTo(1);
+    }
+
+    @Test
+    void storesOneBatchAtATime() throws Exception {
+        CountDownLatch release = new CountDownLatch(1);
+        AtomicInteger storing = new AtomicInteger();
+        AtomicInteger maxStoring = new AtomicInteger();
+        doAnswer(invocation -> {
+            maxStoring.accumulateAndGet(storing.incrementAndGet(), Math::max);
+            release.await(10, TimeUnit.SECONDS);
+            stored.add(new ArrayList<>(invocation.getArgument(0)));
+            storing.decrementAndGet();
+            return null;
+        }).when(statService).addRequests(anyList());
+        start(2);
+
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            for (int i = 0; i < 20; i++) {
+                writeFrame(out, hit("/events/" + i, "10.0.0.1"));
+            }
+            Thread.sleep(200);
+            // the first batch is still being stored, nothing is acknowledged and nothing else is stored
+            assertThat(socket.getInputStream().available()).isZero();
+            assertThat(stored).isEmpty();
+
+            release.countDown();
+            assertThat(readAcksUntil(new DataInputStream(socket.getInputStream()), 20)).last().isEqualTo(20L);
+        }
+
+        assertThat(maxStoring).hasValue(1);
+        assertThat(stored).allSatisfy(batch -> assertThat(batch).hasSizeLessThanOrEqualTo(2));
+    }
+
+    @Test
+    void closesTheConnectionWithoutAcknowledgingAFailedBatch() throws IOException {
+        doThrow(new IllegalStateException("database is down")).when(statService).addRequests(anyList());
+        start(10);
+
+        try (Socket socket = connect()) {
+            writeFrame(new DataOutputStream(socket.getOutputStream()), hit("/events/1", "10.0.0.1"));
+
+            assertThatThrownBy(() -> new DataInputStream(socket.getInputStream()).readLong())
+                    .isInstanceOf(EOFException.class);
+        }
+    }
+
+    @Test
+    void closesTheConnectionOnAMalformedFrame() throws IOException {
+        recordBatches();
+        start(10);
+
+        try (Socket socket = connect()) {
+            DataOutputStream out = new DataOutputStream(socket.getOutputStream());
+            out.writeInt(3);
+            out.write(new byte[]{1, 2, 3});
+            out.flush();
+
+            assertThatThrownBy(() -> new DataInputStream(socket.getInputStream()).readLong())
+                    .isInstanceOf(EOFException.class);
+        }
+        assertThat(stored).isEmpty();
+    }
+
+    private void recordBatches() {
+        doAnswer(invocation -> {
+            stored.add(new ArrayList<>(invocation.getArgument(0)));
+            return null;
+        }).when(statService).addRequests(anyList());
+    }
+
+    private void start(int batchSize) {
+        listener = new TcpHitListener(statService, Validation.buildDefaultValidatorFactory().getValidator(), registry,
+                "127.0.0.1", 0, 1 << 16, batchSize, 20);
+        listener.start();
+    }
+
+    private Socket connect() throws IOException {
+        Socket socket = new Socket("127.0.0.1", listener.getBoundPort());
+        socket.setSoTimeout(10_000);
+        return socket;
+    }
+
+    private static void writeFrame(DataOutputStream out, RequestDTO hit) throws IOException {
+        byte[] payload = HitCodec.encode(hit);
+        out.writeInt(payload.length);
+        out.write(payload);
+        out.flush();
+    }
+
+    private static List<Long> readAcksUntil(DataInputStream in, long count) throws IOException {
+        List<Long> acks = new ArrayList<>();
+        long processed = 0;
+        while (processed < count) {
+            processed = in.readLong();
+            acks.add(processed);
+        }
+        return acks;
+    }
+
+    private static RequestDTO hit(String uri, String ip) {
+        return new RequestDTO(null, "ewm-main-service", uri, ip, TIMESTAMP);
+    }
+}
@@ -0,0 +1,79 @@
+package ru.practicum.trending;
+
+import org.junit.jupiter.api.Test;
+
+import java.util.HashMap;
+import java.util.Map;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class IntCountMapTest {
+
+    @Test
+    void keepsCountsAcrossResizes() {
+        IntCountMap map = new IntCountMap(2);
+        for (int round = 1; round <= 3; round++) {
+            for (int key = 0; key < 10_000; key++) {
+                map.add(key * 31, key);
+            }
+        }
+
+        assertThat(map.size()).isEqualTo(10_000);
+        for (int key = 0; key < 10_000; key++) {
+            assertThat(map.get(key * 31)).isEqualTo(3L * key);
+        }
+        assertThat(map.get(1)).isZero();
+    }
+
+    @Test
+    void visitsEveryEntryOnce() {
+        IntCountMap map = new IntCountMap(4);
+        map.add(0, 1);
+        map.add(7, 2);
+        map.add(1 << 20, 3);
+        map.add(7, 5);
+
+        Map<Integer, Long> entries = new HashMap<>();
+        map.forEach((key, count) -> assertThat(entries.put(key, count)).isNull());
+
+        assertThat(entries).containsOnly(Map.entry(0, 1L), Map.entry(7, 7L), Map.entry(1 << 20, 3L));
+    }
+
+    @Test
+    void addsAllCountsOfAnotherMap() {
+        IntCountMap left = new IntCountMap(4);
+        left.add(1, 1);
+        left.add(2, 2);
+        IntCountMap right = new IntCountMap(4);
+        right.add(2, 3);
+        right.add(3, 4);
+
+        left.addAll(right);
+
+        assertThat(left.size()).isEqualTo(3);
+        assertThat(left.get(1)).isEqualTo(1);
+        assertThat(left.get(2)).isEqualTo(5);
+        assertThat(left.get(3)).isEqualTo(4);
+    }
+
+    @Test
+    void clearRemovesEverything() {
+        IntCountMap map = new IntCountMap(4);
+        for (int key = 0; key < 100; key++) {
+            map.add(key, 1);
+        }
+
+        map.clear();
+        map.add(5, 2);
+
+        assertThat(map.size()).isEqualTo(1);
+        assertThat(map.get(5)).isEqualTo(2);
+        assertThat(map.get(6)).isZero();
+    }
+
+    @Test
+    void rejectsNegativeKeys() {
+        assertThatThrownBy(() -> new IntCountMap(4).add(-1, 1)).isInstanceOf(IllegalArgumentException.class);
+    }
+}
@@ -0,0 +1,58 @@
+package ru.practicum.trending;
+
+import org.junit.jupiter.api.Test;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SlidingWindowCounterTest {
+    // six buckets of ten seconds
+    private final SlidingWindowCounter counter = new SlidingWindowCounter(6, 10, 4);
+
+    @Test
+    void sumsTheRequestedPartOfTheWindow() {
+        long now = 1_000;
+        counter.add(1, now, now);
+        counter.add(1, now - 10, now);
+        counter.add(2, now - 35, now);
+
+        assertThat(counter.getWindowSeconds()).isEqualTo(60);
+        assertThat(counter.sum(10, now).get(1)).isEqualTo(1);
+        assertThat(counter.sum(20, now).get(1)).isEqualTo(2);
+        assertThat(counter.sum(20, now).get(2)).isZero();
+        assertThat(counter.sum(60, now).get(2)).isEqualTo(1);
+    }
+
+    @Test
+    void ignoresHitsOutsideTheWindow() {
+        long now = 1_000;
+
+        assertThat(counter.add(1, now - 60, now)).isFalse();
+        assertThat(counter.add(1, now + 10, now)).isFalse();
+        assertThat(counter.add(1, now - 50, now)).isTrue();
+    }
+
+    @Test
+    void reusesBucketsOnceTheyLeaveTheWindow() {
+        long start = 1_000;
+        counter.add(1, start, start);
+        counter.add(1, start, start);
+
+        // same slot, one full rotation later
+        long later = start + 60;
+        assertThat(counter.add(2, later, later)).isTrue();
+
+        IntCountMap counts = counter.sum(60, later);
+        assertThat(counts.get(1)).isZero();
+        assertThat(counts.get(2)).isEqualTo(1);
+        assertThat(counter.add(1, start, later)).isFalse();
+    }
+
+    @Test
+    void dropsBucketsThatWereNotReusedYet() {
+        long start = 1_000;
+        counter.add(1, start, start);
+
+        assertThat(counter.sum(60, start + 59).get(1)).isEqualTo(1);
+        assertThat(counter.sum(60, start + 60).get(1)).isZero();
+    }
+}